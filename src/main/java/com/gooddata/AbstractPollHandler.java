@@ -19,7 +19,7 @@ import static com.gooddata.util.Validate.notNull;
  */
 public abstract class AbstractPollHandler<P,R> extends AbstractPollHandlerBase<P,R> {
 
-    private String pollingUri;
+    private volatile String pollingUri;
 
     /**
      * Creates a new instance of polling handler
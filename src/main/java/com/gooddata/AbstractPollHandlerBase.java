@@ -12,6 +12,8 @@ import static com.gooddata.util.Validate.notNull;
 
 /**
  * For internal use by services employing polling.<p>
+ * Polling of a handler is serialized by {@link AbstractService} (using a lock of the {@link PollResult}), the state
+ * is volatile, so the result is safely published to threads checking {@link #isDone()} without the lock.
  *
  * @param <P> polling type
  * @param <R> result type
@@ -21,8 +23,8 @@ import static com.gooddata.util.Validate.notNull;
 public abstract class AbstractPollHandlerBase<P, R> implements PollHandler<P, R> {
     protected final Class<P> pollClass;
     protected final Class<R> resultClass;
-    private boolean done = false;
-    private R result;
+    private volatile boolean done = false;
+    private volatile R result;
 
     protected AbstractPollHandlerBase(Class<P> pollClass, Class<R> resultClass) {
         this.pollClass = notNull(pollClass, "pollClass");
@@ -40,6 +42,7 @@ public abstract class AbstractPollHandlerBase<P, R> implements PollHandler<P, R>
     }
 
     protected PollHandler<P, R> setResult(R result) {
+        // result must be written before done, readers check done first
         this.result = result;
         this.done = true;
         onFinish();
@@ -23,10 +23,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * Parent for GoodData services providing helpers for REST API calls and polling.
+ * <p>
+ * Services must be thread-safe, a single instance is shared by all users of {@link GoodData}. Shared state
+ * (like {@link #mapper}, which is configured only in the constructor) must be immutable or concurrent.
  */
 public abstract class AbstractService {
 
@@ -61,11 +66,25 @@ public abstract class AbstractService {
     }
 
     final <R> R poll(final PollHandler<?,R> handler, long timeout, final TimeUnit unit) {
+        return poll(handler, new ReentrantLock(), timeout, unit);
+    }
+
+    /**
+     * Polls the handler until it's done. Polls of the same handler are serialized by given lock, this waits for
+     * the lock when another thread is polling.
+     */
+    final <R> R poll(final PollHandler<?,R> handler, final Lock pollLock, long timeout, final TimeUnit unit) {
         notNull(handler, "handler");
+        notNull(pollLock, "pollLock");
         final long start = System.currentTimeMillis();
         while (true) {
-            if (pollOnce(handler)) {
-                return handler.getResult();
+            pollLock.lock();
+            try {
+                if (handler.isDone() || doPollOnce(handler)) {
+                    return handler.getResult();
+                }
+            } finally {
+                pollLock.unlock();
             }
             if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
                 throw new GoodDataException("timeout");
@@ -79,8 +98,29 @@ public abstract class AbstractService {
         }
     }
 
-    final <P> boolean pollOnce(final PollHandler<P,?> handler) {
+    /**
+     * Polls the handler once. Polls of the same handler are serialized by given lock, so concurrent checks
+     * of a shared {@link FutureResult} don't advance the handler twice, a finished handler isn't polled anymore.
+     * The check doesn't wait when another thread is polling (which may include downloading the result),
+     * it reports the handler as not done instead.
+     */
+    final <P> boolean pollOnce(final PollHandler<P,?> handler, final Lock pollLock) {
         notNull(handler, "handler");
+        notNull(pollLock, "pollLock");
+        if (handler.isDone()) {
+            return true;
+        }
+        if (!pollLock.tryLock()) {
+            return false;
+        }
+        try {
+            return handler.isDone() || doPollOnce(handler);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    private <P> boolean doPollOnce(final PollHandler<P,?> handler) {
         final ClientHttpResponse response;
         try {
             response = restTemplate.execute(handler.getPollingUri(), GET, noopRequestCallback, reusableResponseExtractor);
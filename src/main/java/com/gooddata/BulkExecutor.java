@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Runs many asynchronous API tasks (anything returning {@link FutureResult}) with bounded concurrency, tracking
+ * all the running tasks from a single polling thread instead of blocking a thread per task.
+ * <p>
+ * Each item is submitted with a group (usually project id), tasks are started round-robin over the groups,
+ * so a group with many items doesn't starve the others. The polling interval adapts to the progress, it starts
+ * short and grows up to {@link AbstractService#WAIT_BEFORE_RETRY_IN_MILLIS} while nothing finishes. Failed items
+ * can be retried (see {@link #isRetryable(GoodDataException)}), the outcomes are streamed as the items finish
+ * (see {@link #next()}).
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     BulkExecutor&lt;Project, Void&gt; executor = new BulkExecutor&lt;&gt;("optimize", 10, 1);
+ *     for (final Project project : projects) {
+ *         executor.submit(project.getId(), project, new Callable&lt;FutureResult&lt;Void&gt;&gt;() {
+ *             public FutureResult&lt;Void&gt; call() {
+ *                 return datasetService.optimizeSliHash(project);
+ *             }
+ *         });
+ *     }
+ *     executor.close();
+ *     BulkOutcome&lt;Project, Void&gt; outcome;
+ *     while ((outcome = executor.next()) != null) {
+ *         ...
+ *     }
+ * </code></pre>
+ *
+ * @param <K> item type
+ * @param <R> result type
+ */
+public class BulkExecutor<K, R> implements Closeable {
+
+    static final long MIN_POLL_INTERVAL_MILLIS = 250;
+    static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+
+    private final String name;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Object lock = new Object();
+    private final Map<String, Deque<Task>> pending = new HashMap<>();
+    private final Deque<String> groups = new ArrayDeque<>();
+    private final List<Task> delayed = new LinkedList<>();
+    private final List<Task> inFlight = new ArrayList<>();
+    private final Deque<BulkOutcome<K, R>> outcomes = new ArrayDeque<>();
+    private long pollInterval = MIN_POLL_INTERVAL_MILLIS;
+    private int submitted;
+    private int finished;
+    private int delivered;
+    private boolean closed;
+    private Thread poller;
+
+    /**
+     * Creates executor, its polling thread is started by the first submit, so subclasses are fully constructed
+     * before it calls them
+     *
+     * @param name        name of the executor used for the polling thread
+     * @param maxInFlight maximum number of tasks running concurrently
+     * @param maxAttempts maximum number of attempts to process an item, 1 for no retries
+     */
+    public BulkExecutor(final String name, final int maxInFlight, final int maxAttempts) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.name = notNull(name, "name");
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Submits the item to be processed
+     *
+     * @param group   group of the item (usually project id) for fair scheduling
+     * @param item    item to be processed, reported in its {@link BulkOutcome}
+     * @param starter starts the task of the item, called again for each retry
+     * @throws IllegalStateException when the executor was closed
+     */
+    public void submit(final String group, final K item,
+                       final Callable<? extends FutureResult<? extends R>> starter) {
+        notNull(group, "group");
+        notNull(starter, "starter");
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Executor is closed");
+            }
+            submitted++;
+            enqueue(new Task(group, item, starter));
+            if (poller == null) {
+                startPoller();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Closes the executor for new submits. Already submitted items are still processed, the polling thread
+     * stops when all of them are finished.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the next finished item. When the executor isn't closed yet and all outcomes were already returned,
+     * waits for an item submitted later.
+     *
+     * @return outcome of the next finished item or null when the executor is closed and all outcomes were returned
+     * @throws GoodDataException when the thread was interrupted
+     */
+    public BulkOutcome<K, R> next() {
+        synchronized (lock) {
+            while (outcomes.isEmpty()) {
+                if (closed && delivered == submitted) {
+                    return null;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GoodDataException("interrupted");
+                }
+            }
+            delivered++;
+            return outcomes.poll();
+        }
+    }
+
+    /**
+     * Closes the executor and waits for all remaining outcomes
+     *
+     * @return outcomes in the order the items finished
+     * @throws GoodDataException when the thread was interrupted
+     */
+    public List<BulkOutcome<K, R>> awaitAll() {
+        close();
+        final List<BulkOutcome<K, R>> result = new ArrayList<>();
+        BulkOutcome<K, R> outcome;
+        while ((outcome = next()) != null) {
+            result.add(outcome);
+        }
+        return result;
+    }
+
+    /**
+     * Number of items submitted but not finished yet
+     *
+     * @return number of unfinished items
+     */
+    public int getUnfinishedCount() {
+        synchronized (lock) {
+            return submitted - finished;
+        }
+    }
+
+    /**
+     * Whether the failed item should be retried, by default server errors and I/O failures are retried.
+     * Called from the polling thread.
+     *
+     * @param failure failure of the item
+     * @return true if the item should be retried (when it has attempts left)
+     */
+    protected boolean isRetryable(final GoodDataException failure) {
+        Throwable cause = failure;
+        while (cause != null) {
+            if (cause instanceof GoodDataRestException) {
+                final int status = ((GoodDataRestException) cause).getStatusCode();
+                return status >= 500 || status == 429;
+            }
+            if (cause instanceof ResourceAccessException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Whether the failed item should be retried, delegates to {@link #isRetryable(GoodDataException)} by default.
+     * Override when the decision depends on the item. Called from the polling thread.
+     *
+     * @param item    failed item
+     * @param failure failure of the item
+     * @return true if the item should be retried (when it has attempts left)
+     */
+    protected boolean isRetryable(final K item, final GoodDataException failure) {
+        return isRetryable(failure);
+    }
+
+    private void startPoller() {
+        poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pollLoop();
+            }
+        }, "bulk-" + name);
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    private void pollLoop() {
+        while (true) {
+            final List<Task> toStart = new ArrayList<>();
+            final List<Task> running;
+            synchronized (lock) {
+                releaseDelayed();
+                while (inFlight.size() + toStart.size() < maxInFlight && !groups.isEmpty()) {
+                    toStart.add(dequeue());
+                }
+                if (toStart.isEmpty() && inFlight.isEmpty()) {
+                    if (closed && pending.isEmpty() && delayed.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        waitForWork();
+                    } catch (InterruptedException e) {
+                        abort();
+                        return;
+                    }
+                    continue;
+                }
+                running = new ArrayList<>(inFlight);
+            }
+
+            boolean progress = false;
+            for (Task task : toStart) {
+                progress |= start(task);
+            }
+            for (Task task : running) {
+                progress |= poll(task);
+            }
+
+            synchronized (lock) {
+                pollInterval = progress ? MIN_POLL_INTERVAL_MILLIS
+                        : Math.min(pollInterval * 2, AbstractService.WAIT_BEFORE_RETRY_IN_MILLIS);
+                if (groups.isEmpty() || inFlight.size() >= maxInFlight) {
+                    try {
+                        lock.wait(pollInterval);
+                    } catch (InterruptedException e) {
+                        abort();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the task finished
+     */
+    private boolean start(final Task task) {
+        task.attempts++;
+        try {
+            task.result = notNull(task.starter.call(), "started task");
+        } catch (Exception e) {
+            return fail(task, e);
+        }
+        synchronized (lock) {
+            inFlight.add(task);
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the task finished
+     */
+    private boolean poll(final Task task) {
+        final R result;
+        try {
+            if (!task.result.isDone()) {
+                return false;
+            }
+            result = task.result.get();
+        } catch (Exception e) {
+            synchronized (lock) {
+                inFlight.remove(task);
+            }
+            return fail(task, e);
+        }
+        synchronized (lock) {
+            inFlight.remove(task);
+        }
+        complete(new BulkOutcome<>(task.group, task.item, result, null, task.attempts));
+        return true;
+    }
+
+    /**
+     * @return true if the task finished (won't be retried)
+     */
+    private boolean fail(final Task task, final Exception e) {
+        final GoodDataException failure = e instanceof GoodDataException
+                ? (GoodDataException) e : new GoodDataException("Task failed: " + task.item, e);
+        task.result = null;
+        if (task.attempts < maxAttempts && isRetryable(task.item, failure)) {
+            synchronized (lock) {
+                final long delay = MIN_POLL_INTERVAL_MILLIS << (2 * Math.min(task.attempts, 8));
+                task.notBefore = System.currentTimeMillis() + Math.min(MAX_RETRY_DELAY_MILLIS, delay);
+                delayed.add(task);
+            }
+            return false;
+        }
+        complete(new BulkOutcome<K, R>(task.group, task.item, null, failure, task.attempts));
+        return true;
+    }
+
+    private void complete(final BulkOutcome<K, R> outcome) {
+        synchronized (lock) {
+            finished++;
+            outcomes.add(outcome);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Fails all unfinished tasks and closes the executor when the polling thread is interrupted, so nobody waits
+     * for outcomes which would never come
+     */
+    private void abort() {
+        synchronized (lock) {
+            closed = true;
+            final List<Task> remaining = new ArrayList<>(inFlight);
+            remaining.addAll(delayed);
+            while (!groups.isEmpty()) {
+                remaining.add(dequeue());
+            }
+            inFlight.clear();
+            delayed.clear();
+            for (Task task : remaining) {
+                complete(new BulkOutcome<K, R>(task.group, task.item, null,
+                        new GoodDataException("Polling thread interrupted: " + task.item), task.attempts));
+            }
+        }
+    }
+
+    private void enqueue(final Task task) {
+        Deque<Task> groupTasks = pending.get(task.group);
+        if (groupTasks == null) {
+            groupTasks = new ArrayDeque<>();
+            pending.put(task.group, groupTasks);
+            groups.add(task.group);
+        }
+        groupTasks.add(task);
+    }
+
+    private Task dequeue() {
+        final String group = groups.poll();
+        final Deque<Task> groupTasks = pending.get(group);
+        final Task task = groupTasks.poll();
+        if (groupTasks.isEmpty()) {
+            pending.remove(group);
+        } else {
+            groups.add(group);
+        }
+        return task;
+    }
+
+    private void releaseDelayed() {
+        final long now = System.currentTimeMillis();
+        for (Iterator<Task> it = delayed.iterator(); it.hasNext(); ) {
+            final Task task = it.next();
+            if (task.notBefore <= now) {
+                it.remove();
+                enqueue(task);
+            }
+        }
+    }
+
+    private void waitForWork() throws InterruptedException {
+        long timeout = 0;
+        final long now = System.currentTimeMillis();
+        for (Task task : delayed) {
+            final long wait = Math.max(1, task.notBefore - now);
+            timeout = timeout == 0 ? wait : Math.min(timeout, wait);
+        }
+        lock.wait(timeout);
+    }
+
+    private class Task {
+        private final String group;
+        private final K item;
+        private final Callable<? extends FutureResult<? extends R>> starter;
+        private FutureResult<? extends R> result;
+        private int attempts;
+        private long notBefore;
+
+        private Task(final String group, final K item, final Callable<? extends FutureResult<? extends R>> starter) {
+            this.group = group;
+            this.item = item;
+            this.starter = starter;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+/**
+ * Outcome of a single item processed by {@link BulkExecutor}, either result or failure.
+ *
+ * @param <K> item type
+ * @param <R> result type
+ */
+public class BulkOutcome<K, R> {
+
+    private final String group;
+    private final K item;
+    private final R result;
+    private final GoodDataException failure;
+    private final int attempts;
+
+    BulkOutcome(final String group, final K item, final R result, final GoodDataException failure,
+                final int attempts) {
+        this.group = group;
+        this.item = item;
+        this.result = result;
+        this.failure = failure;
+        this.attempts = attempts;
+    }
+
+    /**
+     * Group (usually project id) of the item
+     *
+     * @return group
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * Processed item
+     *
+     * @return item
+     */
+    public K getItem() {
+        return item;
+    }
+
+    /**
+     * Result of successfully processed item
+     *
+     * @return result or null in case of failure
+     */
+    public R getResult() {
+        return result;
+    }
+
+    /**
+     * Failure of the last attempt to process the item
+     *
+     * @return failure or null in case of success
+     */
+    public GoodDataException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Whether the item was processed successfully
+     *
+     * @return true if so
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Number of attempts made to process the item
+     *
+     * @return number of attempts
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkOutcome{group=" + group + ", item=" + item
+                + (isSuccess() ? ", result=" + result : ", failure=" + failure) + ", attempts=" + attempts + "}";
+    }
+}
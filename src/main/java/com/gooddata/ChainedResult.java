@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Result of two asynchronous tasks run one after another, the second task is started (by the given {@link Step})
+ * with the result of the first one as soon as the first one is done. Checking the result ({@link #isDone()}) never
+ * blocks, so chained results can be tracked from a single polling thread (see {@link BulkExecutor}).
+ *
+ * @param <T> result type of the first task
+ * @param <R> result type of the second task
+ */
+public final class ChainedResult<T, R> implements FutureResult<R> {
+
+    private final FutureResult<T> first;
+    private final Step<? super T, R> next;
+    private FutureResult<R> second;
+
+    /**
+     * Creates result of the first task followed by the next step
+     *
+     * @param first result of the first task
+     * @param next  starts the second task
+     */
+    public ChainedResult(final FutureResult<T> first, final Step<? super T, R> next) {
+        this.first = notNull(first, "first");
+        this.next = notNull(next, "next");
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        if (second == null) {
+            if (!first.isDone()) {
+                return false;
+            }
+            second = notNull(next.start(first.get()), "next step result");
+        }
+        return second.isDone();
+    }
+
+    @Override
+    public R get() {
+        return get(0, null);
+    }
+
+    @Override
+    public synchronized R get(final long timeout, final TimeUnit unit) {
+        final long start = System.currentTimeMillis();
+        while (!isDone()) {
+            if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
+                throw new GoodDataException("timeout");
+            }
+            try {
+                wait(AbstractService.WAIT_BEFORE_RETRY_IN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            }
+        }
+        return second.get();
+    }
+
+    @Override
+    public synchronized String getPollingUri() {
+        return second != null ? second.getPollingUri() : first.getPollingUri();
+    }
+
+    /**
+     * Returns already available result, useful for a step which has nothing to do
+     *
+     * @param value result value
+     * @param <T>   result type
+     * @return done result
+     */
+    public static <T> FutureResult<T> completed(final T value) {
+        return new FutureResult<T>() {
+            @Override
+            public boolean isDone() {
+                return true;
+            }
+
+            @Override
+            public T get() {
+                return value;
+            }
+
+            @Override
+            public T get(final long timeout, final TimeUnit unit) {
+                return value;
+            }
+
+            @Override
+            public String getPollingUri() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Starts the next task of the chain
+     *
+     * @param <T> result type of the previous task
+     * @param <R> result type of the started task
+     */
+    public interface Step<T, R> {
+
+        /**
+         * Starts the task, called once the previous task is done
+         *
+         * @param previous result of the previous task
+         * @return result of the started task
+         */
+        FutureResult<R> start(T previous);
+    }
+}
@@ -7,6 +7,9 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * Represents the result retrieved by polling on the REST API.
+ * <p>
+ * Implementations are thread-safe, the result may be checked and waited for from several threads, each check polls
+ * the REST API at most once at a time and the result is safely published to all of them.
  */
 public interface FutureResult<T> {
 
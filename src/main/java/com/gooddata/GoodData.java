@@ -15,8 +15,10 @@ import com.gooddata.http.client.GoodDataHttpClient;
 import com.gooddata.http.client.LoginSSTRetrievalStrategy;
 import com.gooddata.http.client.SSTRetrievalStrategy;
 import com.gooddata.md.MetadataService;
+import com.gooddata.model.ModelDiffCache;
 import com.gooddata.model.ModelService;
 import com.gooddata.project.ProjectService;
+import com.gooddata.report.ReportExecutionCache;
 import com.gooddata.report.ReportService;
 import org.apache.http.HttpHost;
 import org.apache.http.client.HttpClient;
@@ -37,9 +39,12 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
 import static java.util.Collections.singletonMap;
 import static org.apache.http.util.VersionInfo.loadVersionInfo;
 
@@ -49,6 +54,9 @@ import static org.apache.http.util.VersionInfo.loadVersionInfo;
  * Configure connection to GoodData using one of constructors. One can then get initialized service he needs from
  * the newly constructed instance. This instance can be also used later for logout from GoodData Platform.
  * <p>
+ * The instance and all its services are thread-safe, a single instance can be shared by many threads (the number
+ * of concurrent requests is limited by {@link GoodDataSettings#getMaxConnections()}).
+ * <p>
  * Usage example:
  * <pre><code>
  *     GoodData gd = new GoodData("roman@gooddata.com", "Roman1");
@@ -67,18 +75,100 @@ public class GoodData {
 
     private static final int RESTAPI_VERSION = 1;
 
+    /**
+     * Same for all instances, resolved once per class loader
+     */
+    private static final String USER_AGENT = createUserAgent();
+
+    private static final List<HttpMessageConverter<?>> MESSAGE_CONVERTERS = createMessageConverters();
+
+    private final String hostname;
+    private final String login;
+    private final String password;
+    private final int port;
+    private final String protocol;
+    private final GoodDataSettings settings;
+    private final HttpClientBuilder httpClientBuilder;
     private final RestTemplate restTemplate;
-    private final AccountService accountService;
-    private final ProjectService projectService;
-    private final MetadataService metadataService;
-    private final ModelService modelService;
-    private final GdcService gdcService;
-    private final DataStoreService dataStoreService;
-    private final DatasetService datasetService;
-    private final ReportService reportService;
-    private final ConnectorService connectorService;
-    private final ProcessService processService;
-    private final WarehouseService warehouseService;
+
+    private final Lazy<AccountService> accountService = new Lazy<AccountService>() {
+        @Override
+        protected AccountService create() {
+            return new AccountService(getRestTemplate());
+        }
+    };
+
+    private final Lazy<ProjectService> projectService = new Lazy<ProjectService>() {
+        @Override
+        protected ProjectService create() {
+            return new ProjectService(getRestTemplate(), getAccountService());
+        }
+    };
+
+    private final Lazy<MetadataService> metadataService = new Lazy<MetadataService>() {
+        @Override
+        protected MetadataService create() {
+            return new MetadataService(getRestTemplate());
+        }
+    };
+
+    private final Lazy<ModelService> modelService = new Lazy<ModelService>() {
+        @Override
+        protected ModelService create() {
+            return new ModelService(getRestTemplate(), getDatasetService(), settings.getModelDiffCacheSize() == 0
+                    ? null : new ModelDiffCache(settings.getModelDiffCacheSize()));
+        }
+    };
+
+    private final Lazy<GdcService> gdcService = new Lazy<GdcService>() {
+        @Override
+        protected GdcService create() {
+            return new GdcService(getRestTemplate());
+        }
+    };
+
+    private final Lazy<DataStoreService> dataStoreService = new Lazy<DataStoreService>() {
+        @Override
+        protected DataStoreService create() {
+            return new DataStoreService(httpClientBuilder, getGdcService(),
+                    new HttpHost(hostname, port, protocol).toURI(), login, password);
+        }
+    };
+
+    private final Lazy<DatasetService> datasetService = new Lazy<DatasetService>() {
+        @Override
+        protected DatasetService create() {
+            return new DatasetService(getRestTemplate(), getDataStoreService());
+        }
+    };
+
+    private final Lazy<ReportService> reportService = new Lazy<ReportService>() {
+        @Override
+        protected ReportService create() {
+            return new ReportService(getRestTemplate(), createReportExecutionCache(settings));
+        }
+    };
+
+    private final Lazy<ConnectorService> connectorService = new Lazy<ConnectorService>() {
+        @Override
+        protected ConnectorService create() {
+            return new ConnectorService(getRestTemplate(), getProjectService());
+        }
+    };
+
+    private final Lazy<ProcessService> processService = new Lazy<ProcessService>() {
+        @Override
+        protected ProcessService create() {
+            return new ProcessService(getRestTemplate(), getAccountService(), getDataStoreService());
+        }
+    };
+
+    private final Lazy<WarehouseService> warehouseService = new Lazy<WarehouseService>() {
+        @Override
+        protected WarehouseService create() {
+            return new WarehouseService(getRestTemplate(), hostname, port);
+        }
+    };
 
     /**
      * Create instance configured to communicate with GoodData Platform under user with given credentials.
@@ -172,21 +262,24 @@ public class GoodData {
         notEmpty(login, "login");
         notEmpty(password, "password");
         notEmpty(protocol, "protocol");
-        final HttpClientBuilder httpClientBuilder = createHttpClientBuilder(settings);
-
+        this.hostname = hostname;
+        this.login = login;
+        this.password = password;
+        this.port = port;
+        this.protocol = protocol;
+        this.settings = notNull(settings, "settings");
+        httpClientBuilder = createHttpClientBuilder(settings);
+
+        // services (and the datastore WebDAV client) are created on first use, see Lazy
         restTemplate = createRestTemplate(login, password, hostname, httpClientBuilder, port, protocol);
+    }
 
-        accountService = new AccountService(getRestTemplate());
-        projectService = new ProjectService(getRestTemplate(), accountService);
-        metadataService = new MetadataService(getRestTemplate());
-        modelService = new ModelService(getRestTemplate());
-        gdcService = new GdcService(getRestTemplate());
-        dataStoreService = new DataStoreService(httpClientBuilder, gdcService, new HttpHost(hostname, port, protocol).toURI(), login, password);
-        datasetService = new DatasetService(getRestTemplate(), dataStoreService);
-        reportService = new ReportService(getRestTemplate());
-        processService = new ProcessService(getRestTemplate(), accountService, dataStoreService);
-        warehouseService = new WarehouseService(getRestTemplate(), hostname, port);
-        connectorService = new ConnectorService(getRestTemplate(), projectService);
+    private static ReportExecutionCache createReportExecutionCache(final GoodDataSettings settings) {
+        if (settings.getReportExecutionCacheTtlSeconds() == 0) {
+            return null;
+        }
+        return new ReportExecutionCache(settings.getReportExecutionCacheTtlSeconds(), TimeUnit.SECONDS,
+                settings.getReportExecutionCacheMaxBytes());
     }
 
     private RestTemplate createRestTemplate(String login, String password, String hostname, HttpClientBuilder builder,
@@ -199,6 +292,19 @@ public class GoodData {
         restTemplate.setInterceptors(Arrays.<ClientHttpRequestInterceptor>asList(
                 new HeaderSettingRequestInterceptor(singletonMap("Accept", getAcceptHeaderValue()))));
 
+        final List<HttpMessageConverter<?>> messageConverters = new ArrayList<>(MESSAGE_CONVERTERS);
+        restTemplate.setMessageConverters(messageConverters);
+
+        restTemplate.setErrorHandler(new ResponseErrorHandler(messageConverters));
+
+        return restTemplate;
+    }
+
+    /**
+     * Converters are stateless (the Jackson mapper is thread-safe), so they're created once and shared
+     * by all instances.
+     */
+    private static List<HttpMessageConverter<?>> createMessageConverters() {
         // avoid jackson2 auto-detection and ensure jackson1 converter is present
         final List<HttpMessageConverter<?>> partConverters = new ArrayList<>();
         partConverters.add(new ByteArrayHttpMessageConverter());
@@ -216,11 +322,7 @@ public class GoodData {
         messageConverters.add(new ResourceHttpMessageConverter());
         messageConverters.add(formHttpMessageConverter);
         messageConverters.add(new MappingJacksonHttpMessageConverter());
-        restTemplate.setMessageConverters(messageConverters);
-
-        restTemplate.setErrorHandler(new ResponseErrorHandler(messageConverters));
-
-        return restTemplate;
+        return Collections.unmodifiableList(messageConverters);
     }
 
     private HttpClientBuilder createHttpClientBuilder(final GoodDataSettings settings) {
@@ -234,7 +336,7 @@ public class GoodData {
         requestConfig.setSocketTimeout(settings.getSocketTimeout());
 
         return HttpClientBuilder.create()
-                .setUserAgent(getUserAgent())
+                .setUserAgent(USER_AGENT)
                 .setConnectionManager(connectionManager)
                 .setDefaultRequestConfig(requestConfig.build());
     }
@@ -255,7 +357,7 @@ public class GoodData {
         return new GoodDataHttpClient(httpClient, strategy);
     }
 
-    private String getUserAgent() {
+    private static String createUserAgent() {
         final Package pkg = Package.getPackage("com.gooddata");
         final String clientVersion = pkg != null && pkg.getImplementationVersion() != null
                 ? pkg.getImplementationVersion() : UNKNOWN_VERSION;
@@ -290,7 +392,7 @@ public class GoodData {
      * @return initialized service for project management
      */
     public ProjectService getProjectService() {
-        return projectService;
+        return projectService.get();
     }
 
     /**
@@ -299,7 +401,7 @@ public class GoodData {
      * @return initialized service for account management
      */
     public AccountService getAccountService() {
-        return accountService;
+        return accountService.get();
     }
 
     /**
@@ -309,7 +411,7 @@ public class GoodData {
      * @return initialized service for metadata management
      */
     public MetadataService getMetadataService() {
-        return metadataService;
+        return metadataService.get();
     }
 
     /**
@@ -318,7 +420,7 @@ public class GoodData {
      * @return initialized service for model management
      */
     public ModelService getModelService() {
-        return modelService;
+        return modelService.get();
     }
 
     /**
@@ -327,7 +429,7 @@ public class GoodData {
      * @return initialized service for API root management
      */
     public GdcService getGdcService() {
-        return gdcService;
+        return gdcService.get();
     }
 
     /**
@@ -336,7 +438,7 @@ public class GoodData {
      * @return initialized service for data store management
      */
     public DataStoreService getDataStoreService() {
-        return dataStoreService;
+        return dataStoreService.get();
     }
 
     /**
@@ -345,7 +447,7 @@ public class GoodData {
      * @return initialized service for dataset management
      */
     public DatasetService getDatasetService() {
-        return datasetService;
+        return datasetService.get();
     }
 
     /**
@@ -354,7 +456,7 @@ public class GoodData {
      * @return initialized service for report management
      */
     public ReportService getReportService() {
-        return reportService;
+        return reportService.get();
     }
 
     /**
@@ -363,7 +465,7 @@ public class GoodData {
      * @return initialized service for dataload processes management and process executions
      */
     public ProcessService getProcessService() {
-        return processService;
+        return processService.get();
     }
 
     /**
@@ -372,7 +474,7 @@ public class GoodData {
      * @return initialized service for ADS management
      */
     public WarehouseService getWarehouseService() {
-        return warehouseService;
+        return warehouseService.get();
     }
 
     /**
@@ -381,6 +483,29 @@ public class GoodData {
      * @return initialized service for connector integration management
      */
     public ConnectorService getConnectorService() {
-        return connectorService;
+        return connectorService.get();
+    }
+
+    /**
+     * Value created on the first use, thread-safe
+     */
+    private abstract static class Lazy<T> {
+
+        private volatile T value;
+
+        T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        value = result = create();
+                    }
+                }
+            }
+            return result;
+        }
+
+        protected abstract T create();
     }
 }
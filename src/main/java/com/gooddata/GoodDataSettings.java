@@ -17,6 +17,9 @@ public class GoodDataSettings {
     private int connectionTimeout = secondsToMillis(10);
     private int connectionRequestTimeout = secondsToMillis(10);
     private int socketTimeout = secondsToMillis(60);
+    private int reportExecutionCacheTtlSeconds = 0;
+    private long reportExecutionCacheMaxBytes = 64 * 1024 * 1024;
+    private int modelDiffCacheSize = 0;
 
 
     /**
@@ -150,6 +153,72 @@ public class GoodDataSettings {
         return socketTimeout;
     }
 
+    /**
+     * Set how long report execution results are cached and shared by exports of the same report
+     * (see {@link com.gooddata.report.ReportExecutionCache}).
+     * <p>
+     * The default value is 0, which disables the cache.
+     *
+     * @param reportExecutionCacheTtlSeconds report execution cache time to live in seconds
+     */
+    public void setReportExecutionCacheTtlSeconds(final int reportExecutionCacheTtlSeconds) {
+        isTrue(reportExecutionCacheTtlSeconds >= 0, "reportExecutionCacheTtlSeconds must be not negative");
+        this.reportExecutionCacheTtlSeconds = reportExecutionCacheTtlSeconds;
+    }
+
+    /**
+     * Seconds the report execution results are cached, 0 when the cache is disabled
+     *
+     * @return report execution cache time to live in seconds
+     */
+    public int getReportExecutionCacheTtlSeconds() {
+        return reportExecutionCacheTtlSeconds;
+    }
+
+    /**
+     * Set maximum total size of cached report execution results, the least recently used results are evicted
+     * when exceeded.
+     * <p>
+     * The default value is 64 MB.
+     *
+     * @param reportExecutionCacheMaxBytes maximum size of report execution cache in bytes
+     */
+    public void setReportExecutionCacheMaxBytes(final long reportExecutionCacheMaxBytes) {
+        isTrue(reportExecutionCacheMaxBytes > 0, "reportExecutionCacheMaxBytes must be greater than zero");
+        this.reportExecutionCacheMaxBytes = reportExecutionCacheMaxBytes;
+    }
+
+    /**
+     * Maximum total size of cached report execution results
+     *
+     * @return maximum size of report execution cache in bytes
+     */
+    public long getReportExecutionCacheMaxBytes() {
+        return reportExecutionCacheMaxBytes;
+    }
+
+    /**
+     * Set maximum number of project model diffs cached and shared by projects with the same model
+     * (see {@link com.gooddata.model.ModelDiffCache}).
+     * <p>
+     * The default value is 0, which disables the cache.
+     *
+     * @param modelDiffCacheSize maximum number of cached model diffs
+     */
+    public void setModelDiffCacheSize(final int modelDiffCacheSize) {
+        isTrue(modelDiffCacheSize >= 0, "modelDiffCacheSize must be not negative");
+        this.modelDiffCacheSize = modelDiffCacheSize;
+    }
+
+    /**
+     * Maximum number of cached project model diffs, 0 when the cache is disabled
+     *
+     * @return maximum number of cached model diffs
+     */
+    public int getModelDiffCacheSize() {
+        return modelDiffCacheSize;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -160,7 +229,10 @@ public class GoodDataSettings {
         if (maxConnections != that.maxConnections) return false;
         if (connectionTimeout != that.connectionTimeout) return false;
         if (connectionRequestTimeout != that.connectionRequestTimeout) return false;
-        return socketTimeout == that.socketTimeout;
+        if (socketTimeout != that.socketTimeout) return false;
+        if (reportExecutionCacheTtlSeconds != that.reportExecutionCacheTtlSeconds) return false;
+        if (reportExecutionCacheMaxBytes != that.reportExecutionCacheMaxBytes) return false;
+        return modelDiffCacheSize == that.modelDiffCacheSize;
 
     }
 
@@ -170,6 +242,9 @@ public class GoodDataSettings {
         result = 31 * result + connectionTimeout;
         result = 31 * result + connectionRequestTimeout;
         result = 31 * result + socketTimeout;
+        result = 31 * result + reportExecutionCacheTtlSeconds;
+        result = 31 * result + (int) (reportExecutionCacheMaxBytes ^ (reportExecutionCacheMaxBytes >>> 32));
+        result = 31 * result + modelDiffCacheSize;
         return result;
     }
 
@@ -180,6 +255,9 @@ public class GoodDataSettings {
                 ", maxConnections=" + maxConnections +
                 ", connectionTimeout=" + connectionTimeout +
                 ", socketTimeout=" + socketTimeout +
+                ", reportExecutionCacheTtlSeconds=" + reportExecutionCacheTtlSeconds +
+                ", reportExecutionCacheMaxBytes=" + reportExecutionCacheMaxBytes +
+                ", modelDiffCacheSize=" + modelDiffCacheSize +
                 '}';
     }
 
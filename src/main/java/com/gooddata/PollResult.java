@@ -4,6 +4,8 @@
 package com.gooddata;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.gooddata.util.Validate.notNull;
 
@@ -16,6 +18,8 @@ public final class PollResult<T> implements FutureResult<T> {
 
     private final PollHandler<?,T> handler;
 
+    private final Lock pollLock = new ReentrantLock();
+
     /**
      * Creates a new instance of the result to be eventually retrieved by polling on the REST API.<p>
      * For internal use by services employing polling.
@@ -30,7 +34,7 @@ public final class PollResult<T> implements FutureResult<T> {
 
     @Override
     public boolean isDone() {
-        return handler.isDone() || service.pollOnce(handler);
+        return handler.isDone() || service.pollOnce(handler, pollLock);
     }
 
     @Override
@@ -43,7 +47,7 @@ public final class PollResult<T> implements FutureResult<T> {
         if (handler.isDone()) {
             return handler.getResult();
         }
-        return service.poll(handler, timeout, unit);
+        return service.poll(handler, pollLock, timeout, unit);
     }
 
     /**
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.AbstractService;
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Result of process execution which writes the execution log to the given stream while the execution is running.
+ * Every check of the execution fetches only the log bytes not written yet (using HTTP range request), the rest
+ * of the log is fetched when the execution finishes. Failures to get the log are ignored, failures to write it to
+ * the given stream fail the check of the execution.
+ */
+class ExecutionLogTail implements FutureResult<ProcessExecutionDetail> {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final RestTemplate restTemplate;
+    private final FutureResult<ProcessExecutionDetail> execution;
+    private final String detailLink;
+    private final OutputStream output;
+    private String logLink;
+    private long offset;
+
+    ExecutionLogTail(final RestTemplate restTemplate, final FutureResult<ProcessExecutionDetail> execution,
+                     final String detailLink, final OutputStream output) {
+        this.restTemplate = notNull(restTemplate, "restTemplate");
+        this.execution = notNull(execution, "execution");
+        this.detailLink = notNull(detailLink, "detailLink");
+        this.output = notNull(output, "output");
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        fetch();
+        final boolean done;
+        try {
+            done = execution.isDone();
+        } catch (GoodDataException e) {
+            try {
+                fetch();
+            } catch (GoodDataException logFailure) {
+                e.addSuppressed(logFailure);
+            }
+            throw e;
+        }
+        if (done) {
+            fetch();
+        }
+        return done;
+    }
+
+    @Override
+    public ProcessExecutionDetail get() {
+        return get(0, null);
+    }
+
+    @Override
+    public synchronized ProcessExecutionDetail get(final long timeout, final TimeUnit unit) {
+        final long start = System.currentTimeMillis();
+        while (!isDone()) {
+            if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
+                throw new GoodDataException("timeout");
+            }
+            try {
+                wait(AbstractService.WAIT_BEFORE_RETRY_IN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            }
+        }
+        return execution.get();
+    }
+
+    @Override
+    public String getPollingUri() {
+        return execution.getPollingUri();
+    }
+
+    /**
+     * Number of log bytes written so far
+     *
+     * @return log offset
+     */
+    synchronized long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Fetches the log bytes following the current offset and writes them to the output. Failures to get the log
+     * are ignored (the log may not exist yet and it is complementary to the execution result anyway), failures
+     * to write the log to the output are thrown.
+     *
+     * @throws GoodDataException when the log can't be written to the output
+     */
+    private void fetch() {
+        final byte[] data;
+        try {
+            if (logLink == null) {
+                final ProcessExecutionDetail detail =
+                        restTemplate.getForObject(detailLink, ProcessExecutionDetail.class);
+                if (detail == null || detail.getLogLink() == null) {
+                    return;
+                }
+                logLink = detail.getLogLink();
+            }
+            data = restTemplate.execute(logLink, HttpMethod.GET, new RangeRequestCallback(offset),
+                    new TailResponseExtractor(offset));
+        } catch (GoodDataException | RestClientException ignored) {
+            return;
+        }
+
+        if (data != null && data.length > 0) {
+            try {
+                output.write(data);
+                output.flush();
+            } catch (IOException e) {
+                throw new GoodDataException("Unable to write process execution log", e);
+            }
+            offset += data.length;
+        }
+    }
+
+    private static class RangeRequestCallback implements RequestCallback {
+
+        private final long offset;
+
+        private RangeRequestCallback(final long offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public void doWithRequest(final ClientHttpRequest request) throws IOException {
+            request.getHeaders().set("Range", "bytes=" + offset + "-");
+        }
+    }
+
+    /**
+     * Reads the log bytes following given offset, skips the already read bytes when the server ignored the range.
+     */
+    private static class TailResponseExtractor implements ResponseExtractor<byte[]> {
+
+        private final long offset;
+
+        private TailResponseExtractor(final long offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public byte[] extractData(final ClientHttpResponse response) throws IOException {
+            try (InputStream body = response.getBody()) {
+                if (body == null) {
+                    return null;
+                }
+                if (!HttpStatus.PARTIAL_CONTENT.equals(response.getStatusCode()) && !skip(body, offset)) {
+                    return null;
+                }
+                final ByteArrayOutputStream data = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    data.write(buffer, 0, read);
+                }
+                return data.toByteArray();
+            }
+        }
+
+        /**
+         * @return false if the stream ended before given number of bytes was skipped
+         */
+        private static boolean skip(final InputStream body, final long count) throws IOException {
+            long remaining = count;
+            while (remaining > 0) {
+                long skipped = body.skip(remaining);
+                if (skipped <= 0) {
+                    if (body.read() == -1) {
+                        return false;
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            return true;
+        }
+    }
+}
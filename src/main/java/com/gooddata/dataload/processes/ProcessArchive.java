@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.util.ZipHelper;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Zipped process data kept in memory, so the same archive can be deployed to many projects without zipping
+ * the process data again (see
+ * {@link ProcessService#createProcessFromArchive(com.gooddata.project.Project, DataloadProcess, ProcessArchive)}).
+ * Size and SHA-256 hash of the archive are known in advance.
+ */
+public class ProcessArchive {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String FILE_NAME = "process.zip";
+
+    /**
+     * Process data are rather small, a few threads are enough to zip them
+     */
+    static final int ZIP_PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private final byte[] data;
+    private final int size;
+    private final String hash;
+    private volatile String contentHash;
+
+    ProcessArchive(final byte[] data, final int size) {
+        this.data = data;
+        this.size = size;
+        this.hash = computeHash(data, size);
+    }
+
+    /**
+     * Zips given process data (see {@link ZipHelper#zip(File, java.io.OutputStream)}) into memory
+     *
+     * @param processData file or directory with the process data
+     * @return zipped process data
+     * @throws GoodDataException when the data can't be zipped
+     */
+    public static ProcessArchive zip(final File processData) {
+        notNull(processData, "processData");
+        final Buffer buffer = new Buffer();
+        try {
+            ZipHelper.zip(processData, buffer, false, Deflater.DEFAULT_COMPRESSION, ZIP_PARALLELISM);
+        } catch (IOException e) {
+            throw new GoodDataException("Unable to zip process data", e);
+        }
+        return buffer.toArchive();
+    }
+
+    /**
+     * Size of the archive
+     *
+     * @return size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * SHA-256 hash of the archive
+     *
+     * @return lowercase hex encoded hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * SHA-256 hash of the archived files, computed from their paths and contents only, so it doesn't change
+     * when the same process data are zipped again with different timestamps, entry order or compression.
+     *
+     * @return lowercase hex encoded hash
+     * @throws GoodDataException when the archive can't be read
+     */
+    public String getContentHash() {
+        String result = contentHash;
+        if (result == null) {
+            result = computeContentHash();
+            contentHash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Opens new stream reading the archive, the data are not copied.
+     *
+     * @return archive stream
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data, 0, size);
+    }
+
+    Resource toResource() {
+        return new AbstractResource() {
+            @Override
+            public String getDescription() {
+                return "process archive " + hash;
+            }
+
+            @Override
+            public String getFilename() {
+                return FILE_NAME;
+            }
+
+            @Override
+            public boolean exists() {
+                return true;
+            }
+
+            @Override
+            public long contentLength() {
+                return size;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return openStream();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessArchive{size=" + size + ", hash=" + hash + "}";
+    }
+
+    private static String computeHash(final byte[] data, final int size) {
+        final MessageDigest digest = newDigest();
+        digest.update(data, 0, size);
+        return toHex(digest.digest());
+    }
+
+    private String computeContentHash() {
+        final SortedMap<String, byte[]> entries = new TreeMap<>();
+        final byte[] buffer = new byte[8192];
+        try (ZipInputStream zip = new ZipInputStream(openStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                final MessageDigest digest = newDigest();
+                int read;
+                while ((read = zip.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+                entries.put(entry.getName().replace('\\', '/'), digest.digest());
+            }
+        } catch (IOException e) {
+            throw new GoodDataException("Unable to read process archive", e);
+        }
+        final MessageDigest digest = newDigest();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            digest.update(entry.getKey().getBytes(UTF_8));
+            digest.update((byte) 0);
+            digest.update(entry.getValue());
+        }
+        return toHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " not supported", e);
+        }
+    }
+
+    static String toHex(final byte[] bytes) {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Buffer turned into archive without copying the data.
+     */
+    static class Buffer extends ByteArrayOutputStream {
+
+        ProcessArchive toArchive() {
+            return new ProcessArchive(buf, count);
+        }
+
+        /**
+         * Reads given stream until it's exhausted or more than given number of bytes is buffered.
+         *
+         * @return true if the stream was exhausted
+         */
+        boolean readFrom(final InputStream input, final long limit) throws IOException {
+            final byte[] chunk = new byte[8192];
+            while (count <= limit) {
+                final int read = input.read(chunk);
+                if (read == -1) {
+                    return true;
+                }
+                write(chunk, 0, read);
+            }
+            return false;
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+
+import java.io.Closeable;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Deploys process data to many projects, skipping deployments whose content is unchanged. Each deployment is
+ * identified by a content key computed from the process name, type and {@link ProcessArchive#getContentHash()},
+ * so it doesn't depend on zip timestamps. Deployments are recorded in {@link ProcessDeploymentIndex} per project,
+ * when the same content was already deployed to the project, the recorded process is returned without any upload.
+ * <p>
+ * Archives too large for multipart request are uploaded to the user staging area only once and the uploaded file
+ * is referenced by deployments to all projects. When the reference fails (e.g. the file was removed meanwhile),
+ * the archive is uploaded again. The uploaded archives are deleted from the staging area by {@link #close()}.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ProcessDeploymentIndex index = ProcessDeploymentIndex.load(indexFile);
+ *     ProcessDeployer deployer = new ProcessDeployer(processService, index);
+ *     ProcessArchive archive = ProcessArchive.zip(processDir);
+ *     try {
+ *         for (Project project : projects) {
+ *             deployer.deploy(project, new DataloadProcess("etl", ProcessType.GRAPH), archive);
+ *         }
+ *     } finally {
+ *         deployer.close();
+ *     }
+ *     index.save(indexFile);
+ * </code></pre>
+ */
+public class ProcessDeployer implements Closeable {
+
+    private final ProcessService processService;
+    private final ProcessDeploymentIndex index;
+    private final ConcurrentMap<String, String> stagedArchives = new ConcurrentHashMap<>();
+
+    /**
+     * Creates deployer
+     *
+     * @param processService process service
+     * @param index          index of already deployed processes
+     */
+    public ProcessDeployer(final ProcessService processService, final ProcessDeploymentIndex index) {
+        this.processService = notNull(processService, "processService");
+        this.index = notNull(index, "index");
+    }
+
+    /**
+     * Zips the process data and deploys them, see {@link #deploy(Project, DataloadProcess, ProcessArchive)}.
+     *
+     * @param project     project to deploy to
+     * @param process     process to create (without URI) or update
+     * @param processData process data
+     * @return deployed process
+     */
+    public DataloadProcess deploy(final Project project, final DataloadProcess process, final File processData) {
+        notNull(processData, "processData");
+        return deploy(project, process, ProcessArchive.zip(processData));
+    }
+
+    /**
+     * Creates the process (when it has no URI) or updates it with given archive, unless the same content was
+     * already deployed as the same process to the project.
+     *
+     * @param project     project to deploy to
+     * @param process     process to create (without URI) or update
+     * @param processData zipped process data
+     * @return deployed process, the previously deployed one when the deployment was skipped
+     */
+    public DataloadProcess deploy(final Project project, final DataloadProcess process,
+                                  final ProcessArchive processData) {
+        notNull(project, "project");
+        notNull(process, "process");
+        notNull(processData, "processData");
+
+        final String contentKey = getContentKey(process, processData);
+        final String deployedUri = index.getProcessUri(project.getId(), contentKey);
+        if (deployedUri != null && (process.getUri() == null || deployedUri.equals(process.getUri()))) {
+            try {
+                return processService.getProcessByUri(deployedUri);
+            } catch (ProcessNotFoundException e) {
+                index.remove(project.getId(), deployedUri);
+            }
+        }
+
+        final DataloadProcess deployed;
+        if (ProcessService.isStagingNeeded(processData)) {
+            deployed = deployStaged(project, process, processData);
+        } else if (process.getUri() == null) {
+            deployed = processService.createProcessFromArchive(project, process, processData);
+        } else {
+            deployed = processService.updateProcessFromArchive(project, process, processData);
+        }
+        if (deployed != null && deployed.getUri() != null) {
+            index.put(project.getId(), contentKey, deployed.getUri());
+        }
+        return deployed;
+    }
+
+    private DataloadProcess deployStaged(final Project project, final DataloadProcess process,
+                                         final ProcessArchive processData) {
+        final String stagedPath = stagedArchives.get(processData.getHash());
+        if (stagedPath != null) {
+            try {
+                return processService.deployStagedProcess(project, process, stagedPath);
+            } catch (GoodDataException e) {
+                stagedArchives.remove(processData.getHash(), stagedPath);
+            }
+        }
+        final String path = processService.uploadProcessArchive(processData);
+        stagedArchives.put(processData.getHash(), path);
+        return processService.deployStagedProcess(project, process, path);
+    }
+
+    /**
+     * Deletes archives uploaded to the user staging area, so it should be called when all the deployments are
+     * finished. The deployer can still be used, the archives are uploaded again when needed.
+     *
+     * @throws com.gooddata.gdc.DataStoreException when an archive can't be deleted (the others are deleted anyway)
+     */
+    @Override
+    public void close() {
+        GoodDataException failure = null;
+        for (String hash : stagedArchives.keySet()) {
+            if (stagedArchives.remove(hash) == null) {
+                continue;
+            }
+            try {
+                processService.deleteProcessArchive(hash);
+            } catch (GoodDataException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    static String getContentKey(final DataloadProcess process, final ProcessArchive processData) {
+        final MessageDigest digest = ProcessArchive.newDigest();
+        digest.update(String.valueOf(process.getName()).getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(process.getType()).getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(processData.getContentHash().getBytes(UTF_8));
+        return ProcessArchive.toHex(digest.digest());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Local thread-safe index of deployed processes, mapping content key of the deployment (see
+ * {@link ProcessDeployer}) to URI of the deployed process per project. The index can be stored to a file
+ * and loaded again, so unchanged deployments are skipped across runs.
+ */
+public class ProcessDeploymentIndex {
+
+    private static final char SEPARATOR = '\t';
+
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> projects = new ConcurrentHashMap<>();
+
+    /**
+     * Loads index stored by {@link #save(Path)}. Returns empty index when the file doesn't exist.
+     *
+     * @param file index file
+     * @return loaded index
+     * @throws IOException when the file can't be read or is malformed
+     */
+    public static ProcessDeploymentIndex load(final Path file) throws IOException {
+        notNull(file, "file");
+        final ProcessDeploymentIndex index = new ProcessDeploymentIndex();
+        if (!Files.exists(file)) {
+            return index;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+                if (fields.length != 3) {
+                    throw new IOException("Malformed process deployment index line: " + line);
+                }
+                index.getProject(fields[0]).put(fields[1], fields[2]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Stores the index to the given file, the file is replaced atomically.
+     *
+     * @param file index file
+     * @throws IOException when the file can't be written
+     */
+    public void save(final Path file) throws IOException {
+        notNull(file, "file");
+        final Path absolute = file.toAbsolutePath();
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+                for (Map.Entry<String, ConcurrentMap<String, String>> project : projects.entrySet()) {
+                    for (Map.Entry<String, String> deployment : project.getValue().entrySet()) {
+                        writer.append(project.getKey()).append(SEPARATOR)
+                                .append(deployment.getKey()).append(SEPARATOR)
+                                .append(deployment.getValue()).append('\n');
+                    }
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns URI of process deployed with given content key in given project
+     *
+     * @param projectId  project id
+     * @param contentKey content key of the deployment
+     * @return process URI or null when there is no such deployment
+     */
+    public String getProcessUri(final String projectId, final String contentKey) {
+        notEmpty(projectId, "projectId");
+        notEmpty(contentKey, "contentKey");
+        final Map<String, String> deployments = projects.get(projectId);
+        return deployments != null ? deployments.get(contentKey) : null;
+    }
+
+    /**
+     * Records the deployment of given process, replacing any previous deployment of the same process
+     *
+     * @param projectId  project id
+     * @param contentKey content key of the deployment
+     * @param processUri URI of the deployed process
+     */
+    public void put(final String projectId, final String contentKey, final String processUri) {
+        notEmpty(contentKey, "contentKey");
+        notEmpty(processUri, "processUri");
+        remove(projectId, processUri);
+        getProject(projectId).put(contentKey, processUri);
+    }
+
+    /**
+     * Forgets all deployments of given process
+     *
+     * @param projectId  project id
+     * @param processUri process URI
+     */
+    public void remove(final String projectId, final String processUri) {
+        notEmpty(projectId, "projectId");
+        notEmpty(processUri, "processUri");
+        final Map<String, String> deployments = projects.get(projectId);
+        if (deployments != null) {
+            for (Iterator<String> it = deployments.values().iterator(); it.hasNext(); ) {
+                if (processUri.equals(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private ConcurrentMap<String, String> getProject(final String projectId) {
+        ConcurrentMap<String, String> deployments = projects.get(projectId);
+        if (deployments == null) {
+            final ConcurrentMap<String, String> created = new ConcurrentHashMap<>();
+            deployments = projects.putIfAbsent(projectId, created);
+            if (deployments == null) {
+                deployments = created;
+            }
+        }
+        return deployments;
+    }
+}
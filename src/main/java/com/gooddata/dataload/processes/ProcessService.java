@@ -2,6 +2,7 @@ package com.gooddata.dataload.processes;
 
 import com.gooddata.AbstractPollHandler;
 import com.gooddata.AbstractService;
+import com.gooddata.BulkExecutor;
 import com.gooddata.FutureResult;
 import com.gooddata.PollResult;
 import com.gooddata.GoodDataException;
@@ -12,7 +13,7 @@ import com.gooddata.collections.PageableList;
 import com.gooddata.gdc.DataStoreService;
 import com.gooddata.project.Project;
 import com.gooddata.util.ZipHelper;
-import org.springframework.core.io.FileSystemResource;
+import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -25,16 +26,22 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriTemplate;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
 import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.zip.Deflater;
 
+import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
 import static java.util.Collections.emptyList;
@@ -46,6 +53,7 @@ public class ProcessService extends AbstractService {
 
     private static final MediaType MEDIA_TYPE_ZIP = MediaType.parseMediaType("application/zip");
     private static final long MAX_MULTIPART_SIZE = 1024 * 1024;
+    private static final UriTemplate EXECUTIONS_TEMPLATE = new UriTemplate(DataloadProcess.URI + "/executions");
 
     private final AccountService accountService;
     private final DataStoreService dataStoreService;
@@ -79,6 +87,24 @@ public class ProcessService extends AbstractService {
         return postProcess(process, processData, getProcessesUri(project));
     }
 
+    /**
+     * Create new process with given zipped data by given project. The same archive can be used to create processes
+     * in many projects without zipping the data again.
+     *
+     * @param project project to which the process belongs
+     * @param process to create
+     * @param processData zipped process data to upload
+     * @return created process
+     */
+    public DataloadProcess createProcessFromArchive(Project project, DataloadProcess process,
+                                                    ProcessArchive processData) {
+        notNull(process, "process");
+        notNull(processData, "processData");
+        notNull(project, "project");
+
+        return postProcess(process, processData, getProcessesUri(project));
+    }
+
     /**
      * Create new process without data.
      * Only some specific types of processes can be created without data.
@@ -110,6 +136,24 @@ public class ProcessService extends AbstractService {
         return postProcess(process, processData, getProcessUri(project, process.getId()));
     }
 
+    /**
+     * Update process with given zipped data by given project. The same archive can be used to update processes
+     * in many projects without zipping the data again.
+     *
+     * @param project project to which the process belongs
+     * @param process to update
+     * @param processData zipped process data to upload
+     * @return updated process
+     */
+    public DataloadProcess updateProcessFromArchive(Project project, DataloadProcess process,
+                                                    ProcessArchive processData) {
+        notNull(process, "process");
+        notNull(processData, "processData");
+        notNull(project, "project");
+
+        return postProcess(process, processData, getProcessUri(project, process.getId()));
+    }
+
     /**
      * Get process by given URI.
      * @param uri process uri
@@ -217,6 +261,29 @@ public class ProcessService extends AbstractService {
      */
     public FutureResult<ProcessExecutionDetail> executeProcess(ProcessExecution execution) {
         notNull(execution, "execution");
+        return pollExecution(startExecution(execution));
+    }
+
+    /**
+     * Run given execution under given process and follow its log. The log is written to given stream while
+     * the execution is running, each check of the returned result (see {@link FutureResult#isDone()}) fetches only
+     * the part of the log written since the previous check. The rest of the log is written when the execution
+     * finishes, no matter whether it was successful or not.
+     *
+     * @param execution to run
+     * @param logOutput stream to write the log to
+     * @return result of the execution
+     * @throws com.gooddata.dataload.processes.ProcessExecutionException in case process can't be executed
+     */
+    public FutureResult<ProcessExecutionDetail> executeProcess(ProcessExecution execution, OutputStream logOutput) {
+        notNull(execution, "execution");
+        notNull(logOutput, "logOutput");
+        final ProcessExecutionTask executionTask = startExecution(execution);
+        return new ExecutionLogTail(restTemplate, pollExecution(executionTask), executionTask.getDetailLink(),
+                logOutput);
+    }
+
+    private ProcessExecutionTask startExecution(ProcessExecution execution) {
         ProcessExecutionTask executionTask;
         try {
             executionTask = restTemplate.postForObject(execution.getExecutionsUri(), execution, ProcessExecutionTask.class);
@@ -227,7 +294,10 @@ public class ProcessService extends AbstractService {
         if (executionTask == null) {
             throw new ProcessExecutionException("Cannot find started execution.");
         }
+        return executionTask;
+    }
 
+    private FutureResult<ProcessExecutionDetail> pollExecution(ProcessExecutionTask executionTask) {
         final String detailLink = executionTask.getDetailLink();
 
         return new PollResult<>(this, new AbstractPollHandler<Void, ProcessExecutionDetail>(executionTask.getPollLink(), Void.class, ProcessExecutionDetail.class) {
@@ -266,6 +336,33 @@ public class ProcessService extends AbstractService {
         });
     }
 
+    /**
+     * Run given executions with at most given number of executions running concurrently. Executions are started
+     * fairly over the projects they belong to and all of them are tracked from a single polling thread. Outcomes
+     * are streamed as the executions finish (see {@link BulkExecutor#next()}), failed executions are reported
+     * with {@link ProcessExecutionException} and never retried.
+     *
+     * @param executions    executions to run
+     * @param maxConcurrent maximum number of executions running concurrently
+     * @return closed executor streaming outcomes of the executions
+     */
+    public BulkExecutor<ProcessExecution, ProcessExecutionDetail> executeProcesses(
+            final Collection<ProcessExecution> executions, final int maxConcurrent) {
+        noNullElements(executions, "executions");
+        final BulkExecutor<ProcessExecution, ProcessExecutionDetail> executor =
+                new BulkExecutor<>("process-executions", maxConcurrent, 1);
+        for (final ProcessExecution execution : executions) {
+            executor.submit(getProjectId(execution), execution, new Callable<FutureResult<ProcessExecutionDetail>>() {
+                @Override
+                public FutureResult<ProcessExecutionDetail> call() {
+                    return executeProcess(execution);
+                }
+            });
+        }
+        executor.close();
+        return executor;
+    }
+
     /**
      * Create new schedule with given data by given project.
      *
@@ -427,6 +524,14 @@ public class ProcessService extends AbstractService {
         }
     }
 
+    private static String getProjectId(ProcessExecution execution) {
+        final String executionsUri = execution.getExecutionsUri();
+        if (EXECUTIONS_TEMPLATE.matches(executionsUri)) {
+            return EXECUTIONS_TEMPLATE.match(executionsUri).get("projectId");
+        }
+        return executionsUri;
+    }
+
     private static URI getProcessUri(Project project, String id) {
         return DataloadProcess.TEMPLATE.expand(project.getId(), id);
     }
@@ -435,38 +540,127 @@ public class ProcessService extends AbstractService {
         return DataloadProcesses.TEMPLATE.expand(project.getId());
     }
 
+    /**
+     * Zips the process data through a pipe, small archives are sent in multipart request, larger ones are streamed
+     * to the user staging area while being zipped. Failure of the zipping fails the upload, the uploaded file
+     * is deleted when the deployment fails.
+     */
     private DataloadProcess postProcess(DataloadProcess process, File processData, URI postUri) {
-        File tempFile = createTempFile("process", ".zip");
-
-        try (FileOutputStream output = new FileOutputStream(tempFile)) {
-            ZipHelper.zip(processData, output);
+        final ZipPipe pipe = new ZipPipe(processData).start();
+        try {
+            final ProcessArchive.Buffer head = new ProcessArchive.Buffer();
+            if (head.readFrom(pipe.getInput(), MAX_MULTIPART_SIZE)) {
+                pipe.finish();
+                return postProcess(process, head.toArchive(), postUri);
+            }
+            final String fileName = getProcessDataFileName();
+            boolean deployed = false;
+            try {
+                uploadProcessData(process, fileName, new SequenceInputStream(head.toInputStream(), pipe.getInput()));
+                pipe.finish();
+                final DataloadProcess result = exchangeProcess(process, getDataUploadMethod(postUri), postUri);
+                deployed = true;
+                return result;
+            } finally {
+                if (!deployed) {
+                    deleteProcessData(fileName);
+                }
+            }
         } catch (IOException e) {
             throw new GoodDataException("Unable to zip process data", e);
+        } finally {
+            pipe.close();
         }
+    }
 
-        Object processToSend;
-        HttpMethod method = HttpMethod.POST;
-        if (tempFile.length() > MAX_MULTIPART_SIZE) {
+    private DataloadProcess postProcess(DataloadProcess process, ProcessArchive processData, URI postUri) {
+        if (processData.getSize() > MAX_MULTIPART_SIZE) {
+            final String fileName = getProcessDataFileName();
+            boolean deployed = false;
             try {
-                process.setPath(dataStoreService.getUri(tempFile.getName()).getPath());
-                dataStoreService.upload(tempFile.getName(), new FileInputStream(tempFile));
-                processToSend = process;
-                if (DataloadProcess.TEMPLATE.matches(postUri.toString())) {
-                    method = HttpMethod.PUT;
+                uploadProcessData(process, fileName, processData.openStream());
+                final DataloadProcess result = exchangeProcess(process, getDataUploadMethod(postUri), postUri);
+                deployed = true;
+                return result;
+            } finally {
+                if (!deployed) {
+                    deleteProcessData(fileName);
                 }
-            } catch (FileNotFoundException e) {
-                throw new GoodDataException("Unable to access zipped process data at "
-                        + tempFile.getAbsolutePath(), e);
             }
-        } else {
-            final MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>(2);
-            parts.add("process", process);
-            final HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MEDIA_TYPE_ZIP);
-            parts.add("data", new HttpEntity<>(new FileSystemResource(tempFile), headers));
-            processToSend = parts;
         }
+        final MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>(2);
+        parts.add("process", process);
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MEDIA_TYPE_ZIP);
+        parts.add("data", new HttpEntity<>(processData.toResource(), headers));
+        return exchangeProcess(parts, HttpMethod.POST, postUri);
+    }
+
+    /**
+     * @return true if the archive is too large for multipart request and has to be uploaded to staging area
+     */
+    static boolean isStagingNeeded(ProcessArchive processData) {
+        return processData.getSize() > MAX_MULTIPART_SIZE;
+    }
+
+    /**
+     * Uploads the archive to the user staging area under a name derived from its hash.
+     *
+     * @return staging path which can be referenced by {@link #deployStagedProcess}
+     */
+    String uploadProcessArchive(ProcessArchive processData) {
+        final String fileName = getArchiveFileName(processData.getHash());
+        dataStoreService.upload(fileName, processData.openStream());
+        return dataStoreService.getUri(fileName).getPath();
+    }
+
+    /**
+     * Deletes the archive with given hash uploaded by {@link #uploadProcessArchive} from the user staging area.
+     */
+    void deleteProcessArchive(String hash) {
+        dataStoreService.delete(getArchiveFileName(hash));
+    }
+
+    private static String getArchiveFileName(String hash) {
+        return "process_" + hash + ".zip";
+    }
+
+    /**
+     * Creates (when the process has no URI yet) or updates the process with data already uploaded to staging area.
+     */
+    DataloadProcess deployStagedProcess(Project project, DataloadProcess process, String path) {
+        process.setPath(path);
+        if (process.getUri() == null) {
+            return exchangeProcess(process, HttpMethod.POST, getProcessesUri(project));
+        }
+        return exchangeProcess(process, HttpMethod.PUT, getProcessUri(project, process.getId()));
+    }
+
+    private static String getProcessDataFileName() {
+        return "process_" + RandomStringUtils.randomAlphanumeric(10) + ".zip";
+    }
+
+    private void uploadProcessData(DataloadProcess process, String fileName, InputStream processData) {
+        process.setPath(dataStoreService.getUri(fileName).getPath());
+        dataStoreService.upload(fileName, processData);
+    }
 
+    /**
+     * Deletes process data uploaded for a failed deployment, failures are ignored (the file may not exist at all).
+     */
+    private void deleteProcessData(String fileName) {
+        try {
+            dataStoreService.delete(fileName);
+        } catch (GoodDataException ignored) {
+            // todo log?
+        }
+    }
+
+    private static HttpMethod getDataUploadMethod(URI postUri) {
+        return DataloadProcess.TEMPLATE.matches(postUri.toString()) ? HttpMethod.PUT : HttpMethod.POST;
+    }
+
+    private DataloadProcess exchangeProcess(Object processToSend, HttpMethod method, URI postUri) {
         try {
             final ResponseEntity<DataloadProcess> response = restTemplate
                     .exchange(postUri, method, new HttpEntity<>(processToSend), DataloadProcess.class);
@@ -476,8 +670,6 @@ public class ProcessService extends AbstractService {
             return response.getBody();
         } catch (GoodDataException | RestClientException e) {
             throw new GoodDataException("Unable to post dataload process.", e);
-        } finally {
-            deleteTempFile(tempFile);
         }
     }
 
@@ -489,20 +681,116 @@ public class ProcessService extends AbstractService {
         }
     }
 
-    private File createTempFile(String prefix, String suffix) {
-        File tempFile;
-        try {
-            tempFile = File.createTempFile(prefix, suffix);
-            tempFile.deleteOnExit();
-        } catch (IOException e) {
-            throw new GoodDataException("Unable to create temporary file", e);
+    /**
+     * Zips the process data in a background thread into a pipe, so the archive is never stored as a whole.
+     */
+    static class ZipPipe implements Runnable {
+
+        private static final int PIPE_SIZE = 64 * 1024;
+
+        private final File processData;
+        private final PipedOutputStream output = new PipedOutputStream();
+        private final PipedInputStream input;
+        private final InputStream reader;
+        private final Thread thread;
+        private volatile boolean closed;
+        private volatile Throwable failure;
+
+        ZipPipe(File processData) {
+            this.processData = processData;
+            try {
+                this.input = new PipedInputStream(output, PIPE_SIZE);
+            } catch (IOException e) {
+                throw new GoodDataException("Unable to create pipe", e);
+            }
+            // the end of the pipe is the end of the archive only when the zipping didn't fail
+            this.reader = new FilterInputStream(input) {
+                @Override
+                public int read() throws IOException {
+                    return checkEnd(super.read());
+                }
+
+                @Override
+                public int read(final byte[] b, final int off, final int len) throws IOException {
+                    return checkEnd(super.read(b, off, len));
+                }
+            };
+            thread = new Thread(this, "process-zip");
+            thread.setDaemon(true);
         }
-        return tempFile;
-    }
 
-    private void deleteTempFile(File file) {
-        notNull(file, "file");
-        file.delete();
-    }
+        /**
+         * Starts zipping in the background thread
+         *
+         * @return this pipe
+         */
+        ZipPipe start() {
+            thread.start();
+            return this;
+        }
+
+        @Override
+        public void run() {
+            try {
+                zip(output);
+            } catch (IOException e) {
+                // failure caused by closing the reading side is not interesting
+                if (!closed) {
+                    failure = e;
+                }
+            } catch (RuntimeException | Error e) {
+                // the reader sees just the end of the pipe, the failure is checked before the archive is used
+                failure = e;
+            } finally {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        void zip(OutputStream output) throws IOException {
+            ZipHelper.zip(processData, output, false, Deflater.DEFAULT_COMPRESSION, ProcessArchive.ZIP_PARALLELISM);
+        }
+
+        InputStream getInput() {
+            return reader;
+        }
+
+        private int checkEnd(final int read) throws IOException {
+            if (read == -1 && failure != null) {
+                throw new IOException("Unable to zip process data", failure);
+            }
+            return read;
+        }
+
+        /**
+         * Waits until the process data are zipped
+         *
+         * @throws IOException when zipping failed
+         */
+        void finish() throws IOException {
+            close();
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw new GoodDataException("Unable to zip process data", failure);
+            }
+        }
 
+        void close() {
+            closed = true;
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            }
+        }
+    }
 }
@@ -0,0 +1,356 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.collections.PageableList;
+import com.gooddata.project.Project;
+import org.joda.time.DateTime;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.gooddata.util.Validate.noNullElements;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * In-memory inventory of schedules of many projects, indexed by state, next execution time and number of
+ * consecutive failed executions, so the queries don't call the API. Schedules are fetched by {@link #refresh}
+ * for many projects concurrently (all pages of each project), each project replaces its schedules in the indexes
+ * as soon as it's fetched and only the changed schedules are re-indexed.
+ * <p>
+ * The inventory is thread-safe, queries can run while refreshing.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     ScheduleInventory inventory = new ScheduleInventory(processService, 10);
+ *     inventory.refresh(projects);
+ *     Collection&lt;Schedule&gt; failing = inventory.getFailingSchedules(3);
+ * </code></pre>
+ */
+public class ScheduleInventory implements Closeable {
+
+    private final ProcessService processService;
+    private final ExecutorService fetcher;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Schedule> schedules = new HashMap<>();
+    private final Map<String, Set<String>> projects = new HashMap<>();
+    private final Map<String, Set<String>> byState = new HashMap<>();
+    private final NavigableMap<Long, Set<String>> byNextExecution = new TreeMap<>();
+    private final NavigableMap<Integer, Set<String>> byFailures = new TreeMap<>();
+
+    /**
+     * Creates empty inventory
+     *
+     * @param processService service to list schedules
+     * @param parallelism    maximum number of projects fetched concurrently
+     */
+    public ScheduleInventory(final ProcessService processService, final int parallelism) {
+        this.processService = notNull(processService, "processService");
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        final AtomicInteger threads = new AtomicInteger();
+        this.fetcher = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "schedule-inventory-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Fetches schedules of given projects concurrently and replaces their schedules in the inventory.
+     * Schedules of other projects are kept. When fetching of a project fails, its previously fetched schedules
+     * are kept too.
+     *
+     * @param projects projects to refresh
+     * @return failures of projects which couldn't be refreshed by project id, empty when all were refreshed
+     * @throws GoodDataException when the thread was interrupted
+     */
+    public Map<String, GoodDataException> refresh(final Collection<Project> projects) {
+        noNullElements(projects, "projects");
+        final CompletionService<ProjectSchedules> completion = new ExecutorCompletionService<>(fetcher);
+        final Map<Future<ProjectSchedules>, String> submitted = new HashMap<>();
+        for (final Project project : projects) {
+            submitted.put(completion.submit(new Callable<ProjectSchedules>() {
+                @Override
+                public ProjectSchedules call() {
+                    return new ProjectSchedules(project.getId(), listAllSchedules(project));
+                }
+            }), project.getId());
+        }
+
+        final Map<String, GoodDataException> failures = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < submitted.size(); i++) {
+                final Future<ProjectSchedules> future = completion.take();
+                try {
+                    final ProjectSchedules fetched = future.get();
+                    update(fetched.projectId, fetched.schedules);
+                } catch (ExecutionException e) {
+                    final String projectId = submitted.get(future);
+                    failures.put(projectId, e.getCause() instanceof GoodDataException
+                            ? (GoodDataException) e.getCause()
+                            : new GoodDataException("Unable to list schedules of project " + projectId, e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<ProjectSchedules> future : submitted.keySet()) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new GoodDataException("interrupted");
+        }
+        return failures;
+    }
+
+    /**
+     * Removes all schedules of given project from the inventory
+     *
+     * @param project project to remove
+     */
+    public void remove(final Project project) {
+        notNull(project, "project");
+        update(project.getId(), null);
+    }
+
+    /**
+     * Schedules of given project
+     *
+     * @param project project
+     * @return schedules of the project, empty when the project wasn't fetched
+     */
+    public Collection<Schedule> getSchedules(final Project project) {
+        notNull(project, "project");
+        lock.readLock().lock();
+        try {
+            return resolve(projects.get(project.getId()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Schedules in given state
+     *
+     * @param state schedule state
+     * @return schedules in the state
+     */
+    public Collection<Schedule> getSchedulesByState(final ScheduleState state) {
+        notNull(state, "state");
+        lock.readLock().lock();
+        try {
+            return resolve(byState.get(state.name()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Schedules with next execution time not later than given time
+     *
+     * @param time time
+     * @return schedules ordered by the next execution time
+     */
+    public Collection<Schedule> getSchedulesDueBefore(final DateTime time) {
+        notNull(time, "time");
+        lock.readLock().lock();
+        try {
+            return resolveAll(byNextExecution.headMap(time.getMillis(), true).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Schedules with at least given number of consecutive failed executions
+     *
+     * @param minFailures minimum number of consecutive failed executions, should be positive
+     * @return schedules ordered from the most failing ones
+     */
+    public Collection<Schedule> getFailingSchedules(final int minFailures) {
+        lock.readLock().lock();
+        try {
+            return resolveAll(byFailures.tailMap(minFailures, true).descendingMap().values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of schedules in the inventory
+     *
+     * @return number of schedules
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return schedules.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the fetching threads, running refresh is interrupted.
+     */
+    @Override
+    public void close() {
+        fetcher.shutdownNow();
+    }
+
+    private List<Schedule> listAllSchedules(final Project project) {
+        final List<Schedule> result = new ArrayList<>();
+        PageableList<Schedule> page = processService.listSchedules(project);
+        result.addAll(page);
+        while (page.hasNextPage()) {
+            page = processService.listSchedules(project, page.getNextPage());
+            result.addAll(page);
+        }
+        return result;
+    }
+
+    /**
+     * Replaces schedules of given project, re-indexes only changed schedules
+     *
+     * @param projectId project id
+     * @param fetched   current schedules of the project, null to remove the project
+     */
+    private void update(final String projectId, final List<Schedule> fetched) {
+        notEmpty(projectId, "projectId");
+        lock.writeLock().lock();
+        try {
+            final Set<String> previous = projects.remove(projectId);
+            final Set<String> current = new LinkedHashSet<>();
+            if (fetched != null) {
+                for (Schedule schedule : fetched) {
+                    final String uri = schedule.getUri();
+                    if (uri == null || !current.add(uri)) {
+                        continue;
+                    }
+                    final Schedule old = schedules.put(uri, schedule);
+                    if (old == null) {
+                        index(uri, schedule);
+                    } else if (!isIndexedEqually(old, schedule)) {
+                        unindex(uri, old);
+                        index(uri, schedule);
+                    }
+                }
+                projects.put(projectId, current);
+            }
+            if (previous != null) {
+                for (String uri : previous) {
+                    if (!current.contains(uri)) {
+                        unindex(uri, schedules.remove(uri));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(final String uri, final Schedule schedule) {
+        add(byState, schedule.getState(), uri);
+        if (schedule.getNextExecutionTime() != null) {
+            add(byNextExecution, schedule.getNextExecutionTime().getMillis(), uri);
+        }
+        if (schedule.getConsecutiveFailedExecutionCount() > 0) {
+            add(byFailures, schedule.getConsecutiveFailedExecutionCount(), uri);
+        }
+    }
+
+    private void unindex(final String uri, final Schedule schedule) {
+        if (schedule == null) {
+            return;
+        }
+        remove(byState, schedule.getState(), uri);
+        if (schedule.getNextExecutionTime() != null) {
+            remove(byNextExecution, schedule.getNextExecutionTime().getMillis(), uri);
+        }
+        if (schedule.getConsecutiveFailedExecutionCount() > 0) {
+            remove(byFailures, schedule.getConsecutiveFailedExecutionCount(), uri);
+        }
+    }
+
+    private static boolean isIndexedEqually(final Schedule a, final Schedule b) {
+        return equal(a.getState(), b.getState())
+                && equal(a.getNextExecutionTime() == null ? null : a.getNextExecutionTime().getMillis(),
+                         b.getNextExecutionTime() == null ? null : b.getNextExecutionTime().getMillis())
+                && a.getConsecutiveFailedExecutionCount() == b.getConsecutiveFailedExecutionCount();
+    }
+
+    private static boolean equal(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static <T> void add(final Map<T, Set<String>> index, final T key, final String uri) {
+        Set<String> uris = index.get(key);
+        if (uris == null) {
+            uris = new HashSet<>();
+            index.put(key, uris);
+        }
+        uris.add(uri);
+    }
+
+    private static <T> void remove(final Map<T, Set<String>> index, final T key, final String uri) {
+        final Set<String> uris = index.get(key);
+        if (uris != null && uris.remove(uri) && uris.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private List<Schedule> resolve(final Set<String> uris) {
+        final List<Schedule> result = new ArrayList<>();
+        if (uris != null) {
+            for (String uri : uris) {
+                result.add(schedules.get(uri));
+            }
+        }
+        return result;
+    }
+
+    private List<Schedule> resolveAll(final Collection<Set<String>> uriSets) {
+        final List<Schedule> result = new ArrayList<>();
+        for (Set<String> uris : uriSets) {
+            result.addAll(resolve(uris));
+        }
+        return result;
+    }
+
+    private static class ProjectSchedules {
+        private final String projectId;
+        private final List<Schedule> schedules;
+
+        private ProjectSchedules(final String projectId, final List<Schedule> schedules) {
+            this.projectId = projectId;
+            this.schedules = schedules;
+        }
+    }
+}
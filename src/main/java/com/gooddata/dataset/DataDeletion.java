@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Deletion of data by elements of an attribute, built into MAQL DML statement
+ * {@code DELETE FROM {attribute} WHERE {whereAttribute} IN ([elementUri], ...);}. Deletions of many elements are split
+ * to several statements under the size limit by {@link DatasetService#deleteProjectData}.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     DataDeletion deletion = new DataDeletion("attr.person.id")
+ *         .element("/gdc/md/PROJECT_ID/obj/123/elements?id=1")
+ *         .element("/gdc/md/PROJECT_ID/obj/123/elements?id=2");
+ * </code></pre>
+ */
+public class DataDeletion {
+
+    private final String attribute;
+    private final String whereAttribute;
+    private final List<String> elements = new ArrayList<>();
+
+    /**
+     * Creates deletion of data of the given attribute elements
+     *
+     * @param attribute identifier of the attribute to delete data from and which elements are listed
+     */
+    public DataDeletion(final String attribute) {
+        this(attribute, attribute);
+    }
+
+    /**
+     * Creates deletion of data of the given attribute where the other attribute is one of the listed elements
+     *
+     * @param attribute      identifier of the attribute to delete data from
+     * @param whereAttribute identifier of the attribute which elements are listed
+     */
+    public DataDeletion(final String attribute, final String whereAttribute) {
+        this.attribute = checkIdentifier(attribute, "attribute");
+        this.whereAttribute = checkIdentifier(whereAttribute, "whereAttribute");
+    }
+
+    /**
+     * Adds element which data should be deleted
+     *
+     * @param elementUri URI of the attribute element
+     * @return this deletion
+     */
+    public DataDeletion element(final String elementUri) {
+        notEmpty(elementUri, "elementUri");
+        if (elementUri.indexOf(']') >= 0) {
+            throw new IllegalArgumentException("elementUri can't contain ']'");
+        }
+        elements.add(elementUri);
+        return this;
+    }
+
+    /**
+     * Adds elements which data should be deleted
+     *
+     * @param elementUris URIs of the attribute elements
+     * @return this deletion
+     */
+    public DataDeletion elements(final Collection<String> elementUris) {
+        notNull(elementUris, "elementUris");
+        for (String elementUri : elementUris) {
+            element(elementUri);
+        }
+        return this;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public String getWhereAttribute() {
+        return whereAttribute;
+    }
+
+    public List<String> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * @return MAQL DML statement deleting all the elements
+     */
+    public String toMaql() {
+        final StringBuilder maql = new StringBuilder(prefix());
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                maql.append(", ");
+            }
+            maql.append('[').append(elements.get(i)).append(']');
+        }
+        return maql.append(");").toString();
+    }
+
+    /**
+     * Splits the deletion to deletions of the same attribute which statements aren't larger than given size.
+     * A statement of a single element is never split.
+     *
+     * @param maxBytes maximum size of the statement in bytes (UTF-8)
+     * @return deletions of all the elements
+     */
+    List<DataDeletion> split(final int maxBytes) {
+        final List<DataDeletion> chunks = new ArrayList<>();
+        final int base = prefix().getBytes(UTF_8).length + 2;
+        DataDeletion chunk = null;
+        int bytes = 0;
+        for (String element : elements) {
+            final int size = element.getBytes(UTF_8).length + 4;
+            if (chunk == null || bytes + size > maxBytes) {
+                chunk = new DataDeletion(attribute, whereAttribute);
+                chunks.add(chunk);
+                bytes = base;
+            }
+            chunk.elements.add(element);
+            bytes += size;
+        }
+        return chunks;
+    }
+
+    private String prefix() {
+        return "DELETE FROM {" + attribute + "} WHERE {" + whereAttribute + "} IN (";
+    }
+
+    private static String checkIdentifier(final String identifier, final String name) {
+        notEmpty(identifier, name);
+        if (identifier.indexOf('}') >= 0) {
+            throw new IllegalArgumentException(name + " can't contain '}'");
+        }
+        return identifier;
+    }
+
+    @Override
+    public String toString() {
+        return "DataDeletion{attribute=" + attribute + ", elements=" + elements.size() + "}";
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Input stream encoding dataset rows to CSV lazily, as the stream is read. It can be passed directly
+ * to {@link DatasetService#loadDataset(com.gooddata.project.Project, DatasetManifest, InputStream)} or
+ * {@link DatasetManifest#setSource(InputStream)}, so rows are streamed to the upload without any temporary file
+ * and with constant memory regardless of the number of rows.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     DatasetManifest manifest = datasetService.getDatasetManifest(project, "dataset.person");
+ *     datasetService.loadDataset(project, manifest, DatasetCsvInputStream.fromResultSet(manifest, resultSet)).get();
+ * </code></pre>
+ *
+ * @see DatasetCsvWriter
+ */
+public class DatasetCsvInputStream extends InputStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    private final RowSource rows;
+    private final ReusableByteArrayOutputStream buffer = new ReusableByteArrayOutputStream();
+    private final DatasetCsvWriter writer;
+    private int position;
+    private boolean finished;
+
+    private DatasetCsvInputStream(final DatasetManifest manifest, final RowSource rows) {
+        this.rows = rows;
+        this.writer = new DatasetCsvWriter(manifest, buffer);
+    }
+
+    /**
+     * Creates stream of rows given as arrays of values in the order of manifest parts.
+     *
+     * @param manifest dataset manifest
+     * @param rows     rows to be encoded
+     * @return CSV input stream
+     * @see DatasetCsvWriter#writeRow(Object...)
+     */
+    public static DatasetCsvInputStream fromArrays(final DatasetManifest manifest, final Iterator<Object[]> rows) {
+        notNull(rows, "rows");
+        return new DatasetCsvInputStream(manifest, new RowSource() {
+            @Override
+            public boolean writeNextRow(final DatasetCsvWriter writer) throws IOException {
+                if (!rows.hasNext()) {
+                    return false;
+                }
+                writer.writeRow(rows.next());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Creates stream of rows given as maps of values by column name.
+     *
+     * @param manifest dataset manifest
+     * @param rows     rows to be encoded
+     * @return CSV input stream
+     * @see DatasetCsvWriter#writeRow(Map)
+     */
+    public static DatasetCsvInputStream fromMaps(final DatasetManifest manifest,
+                                                 final Iterator<? extends Map<String, ?>> rows) {
+        notNull(rows, "rows");
+        return new DatasetCsvInputStream(manifest, new RowSource() {
+            @Override
+            public boolean writeNextRow(final DatasetCsvWriter writer) throws IOException {
+                if (!rows.hasNext()) {
+                    return false;
+                }
+                writer.writeRow(rows.next());
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Creates stream of remaining rows of the given result set. Columns are mapped by position.
+     * The result set is not closed by this stream.
+     *
+     * @param manifest  dataset manifest
+     * @param resultSet result set to be encoded
+     * @return CSV input stream
+     * @see DatasetCsvWriter#writeRow(ResultSet)
+     */
+    public static DatasetCsvInputStream fromResultSet(final DatasetManifest manifest, final ResultSet resultSet) {
+        notNull(resultSet, "resultSet");
+        return new DatasetCsvInputStream(manifest, new RowSource() {
+            private boolean validated;
+
+            @Override
+            public boolean writeNextRow(final DatasetCsvWriter writer) throws IOException {
+                try {
+                    if (!validated) {
+                        writer.validateColumnCount(resultSet);
+                        validated = true;
+                    }
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                    writer.writeRow(resultSet);
+                    return true;
+                } catch (SQLException e) {
+                    throw new IOException("Unable to read row from result set", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer.byteAt(position++) & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        notNull(b, "b");
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int count = Math.min(len, buffer.size() - position);
+        buffer.copyTo(position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.size() - position;
+    }
+
+    /**
+     * Ensures there are unread bytes in the buffer, encoding next rows when needed.
+     *
+     * @return false when all rows were read
+     */
+    private boolean fill() throws IOException {
+        if (position < buffer.size()) {
+            return true;
+        }
+        buffer.reset();
+        position = 0;
+        while (buffer.size() == 0 && !finished) {
+            if (!rows.writeNextRow(writer)) {
+                finished = true;
+                writer.close();
+            }
+        }
+        return buffer.size() > 0;
+    }
+
+    private interface RowSource {
+        /**
+         * @return false if there are no more rows
+         */
+        boolean writeNextRow(DatasetCsvWriter writer) throws IOException;
+    }
+
+    /**
+     * Byte buffer keeping its capacity on reset, so the encoded rows are read without copying.
+     */
+    private static class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ReusableByteArrayOutputStream() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        byte byteAt(final int index) {
+            return buf[index];
+        }
+
+        void copyTo(final int index, final byte[] target, final int offset, final int length) {
+            System.arraycopy(buf, index, target, offset, length);
+        }
+    }
+}
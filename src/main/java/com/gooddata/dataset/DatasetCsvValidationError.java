@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+/**
+ * Error found by {@link DatasetCsvValidator} in dataset CSV.
+ */
+public class DatasetCsvValidationError implements Comparable<DatasetCsvValidationError> {
+
+    private final long row;
+    private final String column;
+    private final String message;
+
+    /**
+     * Creates error
+     *
+     * @param row     row number, zero for header and 1 for the first data row
+     * @param column  column name or null when the error is related to whole row
+     * @param message error description
+     */
+    public DatasetCsvValidationError(final long row, final String column, final String message) {
+        this.row = row;
+        this.column = column;
+        this.message = message;
+    }
+
+    /**
+     * Row number, zero for header and 1 for the first data row
+     *
+     * @return row number
+     */
+    public long getRow() {
+        return row;
+    }
+
+    /**
+     * Column name
+     *
+     * @return column name or null when the error is related to whole row
+     */
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Error description
+     *
+     * @return error description
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    DatasetCsvValidationError withRowOffset(final long offset) {
+        return new DatasetCsvValidationError(row + offset, column, message);
+    }
+
+    @Override
+    public int compareTo(final DatasetCsvValidationError other) {
+        return row < other.row ? -1 : (row == other.row ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "row " + row + (column != null ? ", column " + column : "") + ": " + message;
+    }
+}
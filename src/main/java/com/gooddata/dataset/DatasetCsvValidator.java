@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.GoodDataException;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Validates dataset CSV file against the {@link DatasetManifest} locally, before it's uploaded. Checks are driven
+ * by manifest parts:
+ * <ul>
+ * <li>header contains all manifest columns and no unknown column</li>
+ * <li>every row has the same number of columns as the header</li>
+ * <li>values of parts with {@code date} constraint match the date format</li>
+ * <li>values of {@link DatasetManifest.Part#isReferenceKey() reference key} parts are not empty</li>
+ * </ul>
+ * The file is memory mapped and split to chunks on record boundaries (line breaks inside quoted values are
+ * respected), which are validated in parallel. Instances are thread safe.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     List&lt;DatasetCsvValidationError&gt; errors = new DatasetCsvValidator(manifest).validate(csvFile);
+ * </code></pre>
+ */
+public class DatasetCsvValidator {
+
+    private static final String DATE_CONSTRAINT = "date";
+    private static final int DEFAULT_MAX_ERRORS = 100;
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final byte QUOTE = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte LINE_END = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final DatasetManifest manifest;
+    private final int parallelism;
+    private int maxErrors = DEFAULT_MAX_ERRORS;
+
+    /**
+     * Creates validator using number of available processors as parallelism
+     *
+     * @param manifest manifest to validate against
+     */
+    public DatasetCsvValidator(final DatasetManifest manifest) {
+        this(manifest, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates validator
+     *
+     * @param manifest    manifest to validate against
+     * @param parallelism number of threads used for validation
+     */
+    public DatasetCsvValidator(final DatasetManifest manifest, final int parallelism) {
+        this.manifest = notNull(manifest, "manifest");
+        DatasetCsvWriter.getColumnNames(manifest);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be greater than zero");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set maximum number of reported errors. The default value is 100.
+     *
+     * @param maxErrors maximum number of reported errors
+     */
+    public void setMaxErrors(final int maxErrors) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("maxErrors must be greater than zero");
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Validates the given CSV file.
+     *
+     * @param file CSV file
+     * @return errors ordered by row, empty list if the file is valid
+     * @throws IOException when the file can't be read
+     */
+    public List<DatasetCsvValidationError> validate(final Path file) throws IOException {
+        notNull(file, "file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long headerEnd = findRecordEnd(channel, 0, false);
+            final List<DatasetCsvValidationError> errors = new ArrayList<>();
+            final List<String> header = readHeader(channel, headerEnd);
+            final ColumnCheck[] checks = createChecks(header, errors);
+
+            final long[] starts = split(channel, headerEnd, size);
+            final List<ChunkResult> results = validateChunks(channel, starts, header.size(), checks);
+
+            long rowOffset = 0;
+            for (ChunkResult result : results) {
+                for (DatasetCsvValidationError error : result.errors) {
+                    errors.add(error.withRowOffset(rowOffset));
+                }
+                rowOffset += result.rows;
+            }
+            Collections.sort(errors);
+            return errors.size() > maxErrors ? new ArrayList<>(errors.subList(0, maxErrors)) : errors;
+        }
+    }
+
+    private List<String> readHeader(final FileChannel channel, final long headerEnd) throws IOException {
+        if (headerEnd == 0) {
+            return Collections.emptyList();
+        }
+        final ChunkParser parser = new ChunkParser(0, null, maxErrors);
+        parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd));
+        return parser.headerValues;
+    }
+
+    private ColumnCheck[] createChecks(final List<String> header, final List<DatasetCsvValidationError> errors) {
+        final ColumnCheck[] checks = new ColumnCheck[header.size()];
+        final Set<String> columns = new HashSet<>();
+        for (DatasetManifest.Part part : manifest.getParts()) {
+            final String column = part.getColumnName();
+            columns.add(column);
+            final int index = header.indexOf(column);
+            if (index < 0) {
+                errors.add(new DatasetCsvValidationError(0, column, "column is missing in header"));
+                continue;
+            }
+            final Map<String, String> constraints = part.getConstraints();
+            final String datePattern = constraints != null ? constraints.get(DATE_CONSTRAINT) : null;
+            checks[index] = new ColumnCheck(column, part.isReferenceKey(),
+                    datePattern != null ? DateTimeFormat.forPattern(datePattern) : null, datePattern);
+        }
+        for (String column : header) {
+            if (!columns.contains(column)) {
+                errors.add(new DatasetCsvValidationError(0, column, "column is not defined in manifest"));
+            }
+        }
+        return checks;
+    }
+
+    /**
+     * Splits data part of the file to chunks starting at record boundaries
+     */
+    private long[] split(final FileChannel channel, final long dataStart, final long size) throws IOException {
+        final long dataSize = size - dataStart;
+        int chunks = dataSize < MIN_CHUNK_SIZE ? 1 : parallelism;
+        chunks = (int) Math.max(chunks, (dataSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        final long[] rawStarts = new long[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            rawStarts[i] = dataStart + dataSize * i / chunks;
+        }
+        rawStarts[chunks] = size;
+
+        final long[] quotes = countQuotes(channel, rawStarts);
+        final long[] starts = new long[chunks + 1];
+        starts[0] = dataStart;
+        long quotesBefore = 0;
+        for (int i = 1; i < chunks; i++) {
+            quotesBefore += quotes[i - 1];
+            starts[i] = findRecordEnd(channel, rawStarts[i], quotesBefore % 2 == 1);
+        }
+        starts[chunks] = size;
+        return starts;
+    }
+
+    private long[] countQuotes(final FileChannel channel, final long[] rawStarts) throws IOException {
+        final int chunks = rawStarts.length - 1;
+        final List<Callable<Long>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks - 1; i++) {
+            final long start = rawStarts[i];
+            final long end = rawStarts[i + 1];
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() throws IOException {
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    long count = 0;
+                    while (buffer.hasRemaining()) {
+                        if (buffer.get() == QUOTE) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            });
+        }
+        final long[] counts = new long[chunks];
+        final List<Long> results = invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            counts[i] = results.get(i);
+        }
+        return counts;
+    }
+
+    private List<ChunkResult> validateChunks(final FileChannel channel, final long[] starts, final int columnCount,
+                                             final ColumnCheck[] checks) throws IOException {
+        final List<Callable<ChunkResult>> tasks = new ArrayList<>(starts.length - 1);
+        for (int i = 0; i < starts.length - 1; i++) {
+            final long start = starts[i];
+            final long end = starts[i + 1];
+            tasks.add(new Callable<ChunkResult>() {
+                @Override
+                public ChunkResult call() throws IOException {
+                    final ChunkParser parser = new ChunkParser(columnCount, checks, maxErrors);
+                    if (end > start) {
+                        parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                    }
+                    return new ChunkResult(parser.rows, parser.errors);
+                }
+            });
+        }
+        return invokeAll(tasks);
+    }
+
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (tasks.size() == 1 || parallelism == 1) {
+            final List<T> results = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new GoodDataException("Unable to validate CSV", e);
+                }
+            }
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()));
+        try {
+            final List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoodDataException("interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new GoodDataException("Unable to validate CSV", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds position after the first line end outside of quotes starting at the given position
+     */
+    private static long findRecordEnd(final FileChannel channel, final long from, final boolean inQuotesAtStart)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean inQuotes = inQuotesAtStart;
+        long position = from;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            buffer.flip();
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                } else if (b == LINE_END && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+            buffer.clear();
+        }
+        return position;
+    }
+
+    private static class ColumnCheck {
+        private final String column;
+        private final boolean required;
+        private final DateTimeFormatter dateFormatter;
+        private final String datePattern;
+
+        ColumnCheck(final String column, final boolean required, final DateTimeFormatter dateFormatter,
+                    final String datePattern) {
+            this.column = column;
+            this.required = required;
+            this.dateFormatter = dateFormatter;
+            this.datePattern = datePattern;
+        }
+    }
+
+    private static class ChunkResult {
+        private final long rows;
+        private final List<DatasetCsvValidationError> errors;
+
+        ChunkResult(final long rows, final List<DatasetCsvValidationError> errors) {
+            this.rows = rows;
+            this.errors = errors;
+        }
+    }
+
+    /**
+     * Parses records of a chunk. Collects header values when no checks are given, validates rows otherwise.
+     */
+    private static class ChunkParser {
+        private final int columnCount;
+        private final ColumnCheck[] checks;
+        private final int maxErrors;
+        private final List<DatasetCsvValidationError> errors = new ArrayList<>();
+        private final List<String> headerValues = new ArrayList<>();
+
+        private byte[] field = new byte[256];
+        private int fieldLength;
+        private int column;
+        private boolean recordStarted;
+        private long rows;
+
+        ChunkParser(final int columnCount, final ColumnCheck[] checks, final int maxErrors) {
+            this.columnCount = columnCount;
+            this.checks = checks;
+            this.maxErrors = maxErrors;
+        }
+
+        void parse(final ByteBuffer buffer) {
+            boolean inQuotes = false;
+            final int limit = buffer.limit();
+            for (int i = buffer.position(); i < limit; i++) {
+                final byte b = buffer.get(i);
+                if (inQuotes) {
+                    if (b == QUOTE) {
+                        if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                            append(b);
+                            i++;
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else {
+                        append(b);
+                    }
+                    continue;
+                }
+                switch (b) {
+                    case QUOTE:
+                        inQuotes = true;
+                        recordStarted = true;
+                        break;
+                    case SEPARATOR:
+                        endField();
+                        column++;
+                        recordStarted = true;
+                        break;
+                    case CARRIAGE_RETURN:
+                        break;
+                    case LINE_END:
+                        endRecord();
+                        break;
+                    default:
+                        append(b);
+                }
+            }
+            endRecord();
+        }
+
+        private void append(final byte b) {
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, field.length * 2);
+            }
+            field[fieldLength++] = b;
+            recordStarted = true;
+        }
+
+        private void endField() {
+            if (checks == null) {
+                headerValues.add(new String(field, 0, fieldLength, UTF_8));
+            } else if (column < checks.length && checks[column] != null) {
+                check(checks[column]);
+            }
+            fieldLength = 0;
+        }
+
+        private void check(final ColumnCheck check) {
+            if (fieldLength == 0) {
+                if (check.required) {
+                    error(check.column, "reference key value is empty");
+                }
+                return;
+            }
+            if (check.dateFormatter != null) {
+                final String value = new String(field, 0, fieldLength, UTF_8);
+                try {
+                    check.dateFormatter.parseDateTime(value);
+                } catch (IllegalArgumentException e) {
+                    error(check.column, "value '" + value + "' doesn't match date format " + check.datePattern);
+                }
+            }
+        }
+
+        private void endRecord() {
+            if (!recordStarted) {
+                return;
+            }
+            endField();
+            if (checks != null && column + 1 != columnCount) {
+                error(null, "expected " + columnCount + " columns, but found " + (column + 1));
+            }
+            rows++;
+            column = 0;
+            recordStarted = false;
+        }
+
+        private void error(final String columnName, final String message) {
+            if (errors.size() < maxErrors) {
+                errors.add(new DatasetCsvValidationError(rows + 1, columnName, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.gooddata.util.Validate.noNullElements;
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes dataset rows as CSV suitable for dataset load. The header row is made of column names of the given
+ * {@link DatasetManifest} parts (in the order of parts) and it's written before the first row.
+ * <p>
+ * Values are encoded straight into the output using a reused char buffer, no intermediate row {@link String}
+ * is created. Values containing separator, quote or line breaks are quoted, {@code null} values are written as empty.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+ *         writer.writeRow("1", "Prague");
+ *         writer.writeRows(resultSet);
+ *     }
+ * </code></pre>
+ *
+ * @see DatasetCsvInputStream
+ */
+public class DatasetCsvWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final char LINE_END = '\n';
+
+    private final List<String> columns;
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private boolean headerWritten;
+
+    /**
+     * Creates writer with header made of column names of given manifest parts.
+     *
+     * @param manifest dataset manifest containing parts with column names
+     * @param output   stream the CSV is written to
+     */
+    public DatasetCsvWriter(final DatasetManifest manifest, final OutputStream output) {
+        this(getColumnNames(manifest), output);
+    }
+
+    /**
+     * Creates writer with header made of given column names.
+     *
+     * @param columns column names
+     * @param output  stream the CSV is written to
+     */
+    public DatasetCsvWriter(final List<String> columns, final OutputStream output) {
+        notEmpty(columns, "columns");
+        noNullElements(columns, "columns");
+        notNull(output, "output");
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.writer = new OutputStreamWriter(output, UTF_8);
+    }
+
+    /**
+     * Column names of the header row
+     *
+     * @return column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Writes single row. Values must be given in the order of columns.
+     *
+     * @param values row values
+     * @throws IOException in case of write failure
+     * @throws IllegalArgumentException when the number of values doesn't match the number of columns
+     */
+    public void writeRow(final Object... values) throws IOException {
+        notNull(values, "values");
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Row has " + values.length + " values, but " + columns.size()
+                    + " columns are expected");
+        }
+        writeHeaderIfNeeded();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            writeValue(values[i]);
+        }
+        append(LINE_END);
+    }
+
+    /**
+     * Writes single row. Values are looked up by column name, missing values are written as empty.
+     *
+     * @param values row values by column name
+     * @throws IOException in case of write failure
+     */
+    public void writeRow(final Map<String, ?> values) throws IOException {
+        notNull(values, "values");
+        writeHeaderIfNeeded();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            writeValue(values.get(columns.get(i)));
+        }
+        append(LINE_END);
+    }
+
+    /**
+     * Writes the current row of the given result set. Result set columns are mapped to dataset columns by position,
+     * the result set must contain at least as many columns as the header.
+     *
+     * @param resultSet result set positioned on the row to be written
+     * @throws IOException  in case of write failure
+     * @throws SQLException in case of result set read failure
+     */
+    public void writeRow(final ResultSet resultSet) throws IOException, SQLException {
+        notNull(resultSet, "resultSet");
+        writeHeaderIfNeeded();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            writeValue(resultSet.getString(i + 1));
+        }
+        append(LINE_END);
+    }
+
+    /**
+     * Writes all remaining rows of the given result set. The result set is not closed.
+     *
+     * @param resultSet result set to be written
+     * @return number of rows written
+     * @throws IOException  in case of write failure
+     * @throws SQLException in case of result set read failure
+     * @see #writeRow(ResultSet)
+     */
+    public long writeRows(final ResultSet resultSet) throws IOException, SQLException {
+        notNull(resultSet, "resultSet");
+        validateColumnCount(resultSet);
+        long count = 0;
+        while (resultSet.next()) {
+            writeRow(resultSet);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the header row unless it was already written. Called automatically before the first row.
+     *
+     * @throws IOException in case of write failure
+     */
+    public void writeHeaderIfNeeded() throws IOException {
+        if (headerWritten) {
+            return;
+        }
+        headerWritten = true;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                append(SEPARATOR);
+            }
+            writeValue(columns.get(i));
+        }
+        append(LINE_END);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    /**
+     * Writes the header (when no row was written), flushes and closes the underlying stream.
+     *
+     * @throws IOException in case of write failure
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeaderIfNeeded();
+            flushBuffer();
+        } finally {
+            writer.close();
+        }
+    }
+
+    void validateColumnCount(final ResultSet resultSet) throws SQLException {
+        final int columnCount = resultSet.getMetaData().getColumnCount();
+        if (columnCount < columns.size()) {
+            throw new IllegalArgumentException("Result set has " + columnCount + " columns, but " + columns.size()
+                    + " columns are expected");
+        }
+    }
+
+    private void writeValue(final Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        final CharSequence chars = value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+        final int length = chars.length();
+        if (needsQuoting(chars, length)) {
+            append(QUOTE);
+            for (int i = 0; i < length; i++) {
+                final char c = chars.charAt(i);
+                if (c == QUOTE) {
+                    append(QUOTE);
+                }
+                append(c);
+            }
+            append(QUOTE);
+        } else {
+            for (int i = 0; i < length; i++) {
+                append(chars.charAt(i));
+            }
+        }
+    }
+
+    private static boolean needsQuoting(final CharSequence chars, final int length) {
+        for (int i = 0; i < length; i++) {
+            final char c = chars.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == LINE_END || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(final char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            writer.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    static List<String> getColumnNames(final DatasetManifest manifest) {
+        notNull(manifest, "manifest");
+        final List<DatasetManifest.Part> parts = notNull(manifest.getParts(), "manifest parts");
+        final List<String> columns = new ArrayList<>(parts.size());
+        for (DatasetManifest.Part part : parts) {
+            columns.add(notEmpty(part.getColumnName(), "part column name"));
+        }
+        return columns;
+    }
+}
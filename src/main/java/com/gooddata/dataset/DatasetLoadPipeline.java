@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.util.Arrays.asList;
+
+/**
+ * Loads a sequence of dataset batches into the project, overlapping the upload of the next batch with the ETL pull
+ * of the previous ones. Each batch is uploaded to its own staging directory in the thread calling
+ * {@link #submit(Collection)}, while the pulls are triggered and polled one by one by a background thread, so the
+ * batches are loaded in the order they were submitted. The number of batches staged but not yet loaded is limited,
+ * {@link #submit(Collection)} blocks until a slot is free.
+ * <p>
+ * When a batch fails, all batches submitted after it fail too (their staging directories are deleted without pulling)
+ * and further submits are rejected, so no batch is ever loaded out of order.
+ * <p>
+ * Usage example:
+ * <pre><code>
+ *     try (DatasetLoadPipeline pipeline = new DatasetLoadPipeline(datasetService, project, 2)) {
+ *         for (DatasetManifest batch : batches) {
+ *             pipeline.submit(batch);
+ *         }
+ *     }
+ * </code></pre>
+ */
+public class DatasetLoadPipeline implements Closeable {
+
+    private final DatasetService service;
+    private final Project project;
+    private final Semaphore slots;
+    private final ExecutorService puller;
+    private volatile GoodDataException failure;
+
+    /**
+     * Creates pipeline
+     *
+     * @param service            dataset service
+     * @param project            project to load the datasets into
+     * @param maxBatchesInFlight maximum number of batches uploaded to staging area but not yet loaded
+     */
+    public DatasetLoadPipeline(final DatasetService service, final Project project, final int maxBatchesInFlight) {
+        this.service = notNull(service, "service");
+        this.project = notNull(project, "project");
+        if (maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("maxBatchesInFlight must be positive");
+        }
+        this.slots = new Semaphore(maxBatchesInFlight);
+        this.puller = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "dataset-load-pipeline-" + project.getId());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits the batch of datasets to be loaded
+     *
+     * @param datasets batch of datasets
+     * @return result of the batch load
+     * @see #submit(Collection)
+     */
+    public FutureResult<Void> submit(final DatasetManifest... datasets) {
+        return submit(asList(datasets));
+    }
+
+    /**
+     * Submits the batch of datasets to be loaded. Blocks until there is a free slot, then uploads the datasets and
+     * their manifests to a new staging directory and enqueues the ETL pull after the previously submitted batches.
+     *
+     * @param datasets batch of datasets
+     * @return result of the batch load
+     * @throws DatasetException when the upload fails or any previously submitted batch failed
+     */
+    public synchronized FutureResult<Void> submit(final Collection<DatasetManifest> datasets) {
+        service.validateUploadManifests(datasets);
+        if (puller.isShutdown()) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+        final List<String> datasetsNames = DatasetService.getDatasetNames(datasets);
+        checkNotFailed(datasetsNames);
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoodDataException("interrupted");
+        }
+
+        final Path dirPath;
+        boolean staged = false;
+        try {
+            checkNotFailed(datasetsNames);
+            dirPath = service.stageDatasets(project, datasets, datasetsNames);
+            staged = true;
+        } catch (RuntimeException e) {
+            fail(toFailure(e, datasetsNames));
+            throw e;
+        } finally {
+            if (!staged) {
+                slots.release();
+            }
+        }
+
+        final Batch batch = new Batch(dirPath, datasetsNames);
+        batch.future = puller.submit(batch);
+        return batch;
+    }
+
+    /**
+     * Waits until all submitted batches are finished and releases the background thread.
+     */
+    @Override
+    public void close() {
+        puller.shutdown();
+        try {
+            while (!puller.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting for the batches in flight
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoodDataException("interrupted");
+        }
+    }
+
+    private void checkNotFailed(final Collection<String> datasetsNames) {
+        if (failure != null) {
+            throw new DatasetException("Previous batch failed", datasetsNames, failure);
+        }
+    }
+
+    private void fail(final GoodDataException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private static GoodDataException toFailure(final RuntimeException e, final Collection<String> datasetsNames) {
+        return e instanceof GoodDataException ? (GoodDataException) e
+                : new DatasetException("Unable to load", datasetsNames, e);
+    }
+
+    private class Batch implements Callable<Void>, FutureResult<Void> {
+
+        private final Path dirPath;
+        private final List<String> datasetsNames;
+        private volatile Future<Void> future;
+        private volatile String pollingUri;
+
+        private Batch(final Path dirPath, final List<String> datasetsNames) {
+            this.dirPath = dirPath;
+            this.datasetsNames = datasetsNames;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                if (failure != null) {
+                    service.deleteStagingDir(dirPath);
+                    checkNotFailed(datasetsNames);
+                }
+                final FutureResult<Void> result = service.startPull(project, dirPath, datasetsNames);
+                pollingUri = result.getPollingUri();
+                return result.get();
+            } catch (RuntimeException e) {
+                fail(toFailure(e, datasetsNames));
+                throw e;
+            } finally {
+                slots.release();
+            }
+        }
+
+        @Override
+        public boolean isDone() {
+            if (!future.isDone()) {
+                return false;
+            }
+            get();
+            return true;
+        }
+
+        @Override
+        public Void get() {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        @Override
+        public Void get(final long timeout, final TimeUnit unit) {
+            try {
+                return future.get(timeout, unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (TimeoutException e) {
+                throw new GoodDataException("timeout");
+            }
+        }
+
+        @Override
+        public String getPollingUri() {
+            return pollingUri;
+        }
+
+        private RuntimeException unwrap(final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                return (RuntimeException) e.getCause();
+            }
+            return new DatasetException("Unable to load", datasetsNames, e.getCause());
+        }
+    }
+}
@@ -15,6 +15,8 @@ import org.codehaus.jackson.map.annotate.JsonDeserialize;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -112,6 +114,22 @@ public class DatasetManifest {
         throw new IllegalArgumentException("Dataset manifest parts doesn't contain populate value " + populates);
     }
 
+    /**
+     * Copy of the manifest with copied parts, the source is shared
+     */
+    DatasetManifest copy() {
+        List<Part> copiedParts = null;
+        if (parts != null) {
+            copiedParts = new ArrayList<>(parts.size());
+            for (Part part : parts) {
+                copiedParts.add(part.copy());
+            }
+        }
+        final DatasetManifest copy = new DatasetManifest(dataSet, file, copiedParts);
+        copy.source = source;
+        return copy;
+    }
+
     @JsonIgnore
     public InputStream getSource() {
         return source;
@@ -183,6 +201,11 @@ public class DatasetManifest {
             return constraints;
         }
 
+        private Part copy() {
+            return new Part(uploadMode, columnName, populates == null ? null : new ArrayList<>(populates),
+                    referenceKey, constraints == null ? null : new HashMap<>(constraints));
+        }
+
         public void setConstraints(Map<String, String> constraints) {
             this.constraints = constraints;
         }
@@ -5,6 +5,8 @@ package com.gooddata.dataset;
 
 import com.gooddata.AbstractPollHandler;
 import com.gooddata.AbstractService;
+import com.gooddata.BulkExecutor;
+import com.gooddata.ChainedResult;
 import com.gooddata.FutureResult;
 import com.gooddata.PollResult;
 import com.gooddata.GoodDataException;
@@ -13,7 +15,9 @@ import com.gooddata.SimplePollHandler;
 import com.gooddata.gdc.DataStoreException;
 import com.gooddata.gdc.DataStoreService;
 import com.gooddata.gdc.TaskStatus;
+import com.gooddata.gdc.TaskStatusException;
 import com.gooddata.gdc.UriResponse;
+import com.gooddata.model.ProjectModelListener;
 import com.gooddata.project.Project;
 import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.http.client.ClientHttpResponse;
@@ -21,18 +25,26 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
 import static java.lang.String.format;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.springframework.util.StringUtils.isEmpty;
@@ -40,12 +52,20 @@ import static org.springframework.util.StringUtils.isEmpty;
 /**
  * Service to work with datasets and manifests.
  */
-public class DatasetService extends AbstractService {
+public class DatasetService extends AbstractService implements ProjectModelListener {
+
+    /**
+     * Default maximum size of MAQL DML statement executed by {@link #deleteProjectData}
+     */
+    public static final int MAX_DML_STATEMENT_BYTES = 32 * 1024;
 
     private static final String MANIFEST_FILE_NAME = "upload_info.json";
     private static final String STATUS_FILE_NAME = "upload_status.json";
 
     private final DataStoreService dataStoreService;
+    private final ConcurrentMap<String, ConcurrentMap<String, DatasetManifest>> manifestCache =
+            new ConcurrentHashMap<>();
+    private final AtomicLong manifestGeneration = new AtomicLong();
 
     public DatasetService(RestTemplate restTemplate, DataStoreService dataStoreService) {
         super(restTemplate);
@@ -77,6 +97,74 @@ public class DatasetService extends AbstractService {
         }
     }
 
+    /**
+     * Obtains manifest from given project by given datasetId, the manifest is cached per project and dataset id
+     * until the project model is changed by {@link com.gooddata.model.ModelService#updateProjectModel} or the cache
+     * is invalidated (see {@link #invalidateManifestCache(com.gooddata.project.Project)}). A manifest fetched while
+     * the cache was invalidated isn't cached, as it may belong to the previous model. Every call returns a copy,
+     * so changes of the manifest (like its upload mode) don't leak to other callers.
+     */
+    DatasetManifest getCachedDatasetManifest(final Project project, final String datasetId) {
+        final long generation = manifestGeneration.get();
+        ConcurrentMap<String, DatasetManifest> projectManifests = manifestCache.get(project.getId());
+        if (projectManifests == null) {
+            final ConcurrentMap<String, DatasetManifest> created = new ConcurrentHashMap<>();
+            projectManifests = manifestCache.putIfAbsent(project.getId(), created);
+            if (projectManifests == null) {
+                projectManifests = created;
+            }
+        }
+        DatasetManifest manifest = projectManifests.get(datasetId);
+        if (manifest == null) {
+            final DatasetManifest fetched = getDatasetManifest(project, datasetId);
+            if (manifestGeneration.get() != generation) {
+                return fetched;
+            }
+            manifest = projectManifests.putIfAbsent(datasetId, fetched);
+            if (manifest == null) {
+                manifest = fetched;
+                // invalidated between the check and the put
+                if (manifestGeneration.get() != generation) {
+                    projectManifests.remove(datasetId, fetched);
+                }
+            }
+        }
+        return manifest.copy();
+    }
+
+    /**
+     * Invalidates manifests cached for the project which model was changed by
+     * {@link com.gooddata.model.ModelService}.
+     *
+     * @param project project which model was changed
+     */
+    @Override
+    public void projectModelChanged(final Project project) {
+        invalidateManifestCache(project);
+    }
+
+    /**
+     * Invalidates manifests cached for the given project by
+     * {@link #loadDataset(com.gooddata.project.Project, String, java.io.InputStream)}. Called automatically
+     * when the project model is changed by {@link com.gooddata.model.ModelService}, changes of the model made
+     * by other means require explicit invalidation.
+     *
+     * @param project project which manifests should be invalidated
+     */
+    public void invalidateManifestCache(final Project project) {
+        notNull(project, "project");
+        manifestGeneration.incrementAndGet();
+        manifestCache.remove(project.getId());
+    }
+
+    /**
+     * Invalidates all cached manifests.
+     */
+    public void invalidateManifestCache() {
+        manifestGeneration.incrementAndGet();
+        manifestCache.clear();
+    }
+
     /**
      * Loads dataset into platform. Uploads given dataset and manifest to staging area and triggers ETL pull.
      * The call is asynchronous returning {@link com.gooddata.FutureResult} to let caller wait for results.
@@ -97,9 +185,7 @@ public class DatasetService extends AbstractService {
         final Path dirPath = Paths.get("/", project.getId() + "_" + RandomStringUtils.randomAlphabetic(3), "/");
         try {
             dataStoreService.upload(dirPath.resolve(manifest.getFile()).toString(), dataset);
-            final String manifestJson = mapper.writeValueAsString(manifest);
-            final ByteArrayInputStream inputStream = new ByteArrayInputStream(manifestJson.getBytes(UTF_8));
-            dataStoreService.upload(dirPath.resolve(MANIFEST_FILE_NAME).toString(), inputStream);
+            dataStoreService.upload(dirPath.resolve(MANIFEST_FILE_NAME).toString(), serialize(manifest));
 
             return pullLoad(project, dirPath, manifest.getDataSet());
         } catch (IOException e) {
@@ -110,7 +196,38 @@ public class DatasetService extends AbstractService {
     }
 
     /**
-     * Gets DatasetManifest (using {@link #getDatasetManifest(com.gooddata.project.Project, String)}
+     * Validates given CSV file against the manifest using {@link DatasetCsvValidator} and loads it into platform
+     * (see {@link #loadDataset(com.gooddata.project.Project, DatasetManifest, java.io.InputStream)}).
+     * Nothing is uploaded when the file is not valid.
+     *
+     * @param project  project to which dataset belongs
+     * @param manifest dataset manifest
+     * @param dataset  CSV file to upload
+     * @return {@link com.gooddata.FutureResult} of the task, which can throw {@link com.gooddata.dataset.DatasetException}
+     * in case the ETL pull task fails
+     * @throws com.gooddata.dataset.DatasetException if the file is not valid, can't be read or uploaded
+     */
+    public FutureResult<Void> loadDatasetFile(final Project project, final DatasetManifest manifest,
+                                              final Path dataset) {
+        notNull(project, "project");
+        notNull(manifest, "manifest");
+        notNull(dataset, "dataset");
+        try {
+            final List<DatasetCsvValidationError> errors = new DatasetCsvValidator(manifest).validate(dataset);
+            if (!errors.isEmpty()) {
+                throw new DatasetException("Invalid CSV " + dataset + ": " + errors, manifest.getDataSet());
+            }
+            try (InputStream stream = Files.newInputStream(dataset)) {
+                return loadDataset(project, manifest, stream);
+            }
+        } catch (IOException e) {
+            throw new DatasetException("Unable to read " + dataset, manifest.getDataSet(), e);
+        }
+    }
+
+    /**
+     * Gets DatasetManifest (using {@link #getDatasetManifest(com.gooddata.project.Project, String)}, cached until
+     * the project model changes, see {@link #invalidateManifestCache(com.gooddata.project.Project)})
      * first and then calls {@link #loadDataset(com.gooddata.project.Project, DatasetManifest, java.io.InputStream)}
      *
      * @param project   project to which dataset belongs
@@ -122,7 +239,81 @@ public class DatasetService extends AbstractService {
         notNull(project, "project");
         notEmpty(datasetId, "datasetId");
         notNull(dataset, "dataset");
-        return loadDataset(project, getDatasetManifest(project, datasetId), dataset);
+        return loadDataset(project, getCachedDatasetManifest(project, datasetId), dataset);
+    }
+
+    /**
+     * Loads only new or changed rows of dataset into platform using {@link UploadMode#INCREMENTAL} mode (upload mode
+     * of the given manifest is changed). Rows are compared with the given local index, which is committed once
+     * the ETL pull successfully finishes, so a failed load is repeated by the next call. When no row is new
+     * or changed, nothing is uploaded and already finished result is returned.
+     *
+     * @param project  project to which dataset belongs
+     * @param manifest dataset manifest
+     * @param rows     all rows of the dataset in the order of manifest parts
+     * @param index    local index of previously loaded rows
+     * @return {@link com.gooddata.FutureResult} of the task, which can throw {@link com.gooddata.dataset.DatasetException}
+     * in case the ETL pull task fails or the index can't be written
+     * @throws com.gooddata.dataset.DatasetException if there is a problem to serialize manifest or upload dataset
+     * @see RowHashIndex
+     */
+    public FutureResult<Void> loadDatasetDelta(final Project project, final DatasetManifest manifest,
+                                               final Iterator<Object[]> rows, final RowHashIndex index) {
+        notNull(project, "project");
+        notNull(manifest, "manifest");
+        notNull(rows, "rows");
+        notNull(index, "index");
+        index.rollback();
+        manifest.setUploadMode(UploadMode.INCREMENTAL);
+        final Iterator<Object[]> changedRows = index.filterArrays(rows);
+        if (!changedRows.hasNext()) {
+            return ChainedResult.completed(null);
+        }
+        final FutureResult<Void> result = loadDataset(project, manifest,
+                DatasetCsvInputStream.fromArrays(manifest, changedRows));
+        return new FutureResult<Void>() {
+            private boolean committed;
+
+            @Override
+            public boolean isDone() {
+                if (!result.isDone()) {
+                    return false;
+                }
+                commit();
+                return true;
+            }
+
+            @Override
+            public Void get() {
+                result.get();
+                commit();
+                return null;
+            }
+
+            @Override
+            public Void get(final long timeout, final TimeUnit unit) {
+                result.get(timeout, unit);
+                commit();
+                return null;
+            }
+
+            @Override
+            public String getPollingUri() {
+                return result.getPollingUri();
+            }
+
+            private synchronized void commit() {
+                if (committed) {
+                    return;
+                }
+                try {
+                    index.commit();
+                    committed = true;
+                } catch (IOException e) {
+                    throw new DatasetException("Unable to write row hash index", manifest.getDataSet(), e);
+                }
+            }
+        };
     }
 
     public FutureResult<Void> loadDatasets(final Project project, DatasetManifest... datasets) {
@@ -144,19 +335,28 @@ public class DatasetService extends AbstractService {
     public FutureResult<Void> loadDatasets(final Project project, final Collection<DatasetManifest> datasets) {
         notNull(project, "project");
         validateUploadManifests(datasets);
-        final List<String> datasetsNames = new ArrayList<>(datasets.size());
+        final List<String> datasetsNames = getDatasetNames(datasets);
+        final Path dirPath = stageDatasets(project, datasets, datasetsNames);
+        return startPull(project, dirPath, datasetsNames);
+    }
+
+    /**
+     * Uploads given datasets and their manifests to a new staging directory.
+     *
+     * @return staging directory path
+     */
+    Path stageDatasets(final Project project, final Collection<DatasetManifest> datasets,
+                       final Collection<String> datasetsNames) {
         try {
             final Path dirPath = Paths.get("/", project.getId() + "_" + RandomStringUtils.randomAlphabetic(3), "/");
             for (DatasetManifest datasetManifest : datasets) {
-                datasetsNames.add(datasetManifest.getDataSet());
                 dataStoreService.upload(dirPath.resolve(datasetManifest.getFile()).toString(), datasetManifest.getSource());
             }
 
-            final String manifestJson = mapper.writeValueAsString(new DatasetManifests(datasets));
-            final ByteArrayInputStream inputStream = new ByteArrayInputStream(manifestJson.getBytes(UTF_8));
-            dataStoreService.upload(dirPath.resolve(MANIFEST_FILE_NAME).toString(), inputStream);
+            dataStoreService.upload(dirPath.resolve(MANIFEST_FILE_NAME).toString(),
+                    serialize(new DatasetManifests(datasets)));
 
-            return pullLoad(project, dirPath, datasetsNames);
+            return dirPath;
         } catch (IOException e) {
             throw new DatasetException("Unable to serialize manifest", datasetsNames, e);
         } catch (DataStoreException | GoodDataRestException | RestClientException e) {
@@ -164,7 +364,38 @@ public class DatasetService extends AbstractService {
         }
     }
 
-    private void validateUploadManifests(final Collection<DatasetManifest> datasets) {
+    /**
+     * Triggers ETL pull of the given staging directory, the directory is deleted when the pull can't be started.
+     */
+    FutureResult<Void> startPull(final Project project, final Path dirPath, final Collection<String> datasetsNames) {
+        try {
+            return pullLoad(project, dirPath, datasetsNames);
+        } catch (GoodDataRestException | RestClientException e) {
+            deleteStagingDir(dirPath);
+            throw new DatasetException("Unable to load", datasetsNames, e);
+        }
+    }
+
+    /**
+     * Deletes the given staging directory, failures are ignored.
+     */
+    void deleteStagingDir(final Path dirPath) {
+        try {
+            dataStoreService.delete(dirPath.toString() + "/");
+        } catch (DataStoreException ignored) {
+            // todo log?
+        }
+    }
+
+    static List<String> getDatasetNames(final Collection<DatasetManifest> datasets) {
+        final List<String> datasetsNames = new ArrayList<>(datasets.size());
+        for (DatasetManifest datasetManifest : datasets) {
+            datasetsNames.add(datasetManifest.getDataSet());
+        }
+        return datasetsNames;
+    }
+
+    void validateUploadManifests(final Collection<DatasetManifest> datasets) {
         notEmpty(datasets, "datasets");
         for (DatasetManifest datasetManifest : datasets) {
             if (datasetManifest.getSource() == null) {
@@ -205,11 +436,7 @@ public class DatasetService extends AbstractService {
 
             @Override
             protected void onFinish() {
-                try {
-                    dataStoreService.delete(dirPath.toString() + "/");
-                } catch (DataStoreException ignored) {
-                    // todo log?
-                }
+                deleteStagingDir(dirPath);
             }
         });
 
@@ -246,6 +473,15 @@ public class DatasetService extends AbstractService {
         return message;
     }
 
+    /**
+     * Serializes given value to JSON stream without intermediate String and array copy.
+     */
+    private InputStream serialize(final Object value) throws IOException {
+        final JsonBuffer buffer = new JsonBuffer();
+        mapper.writeValue(buffer, value);
+        return buffer.toInputStream();
+    }
+
     private <T> T download(final Path path, final Class<T> type) throws IOException {
         try (final InputStream input = dataStoreService.download(path.toString())) {
             return mapper.readValue(input, type);
@@ -305,7 +541,8 @@ public class DatasetService extends AbstractService {
                 if (maqlDdlTaskStatus.isSuccess()) {
                     return true;
                 }
-                throw new GoodDataException("Unable to optimize SLI hash: " + maqlDdlTaskStatus.getMessages());
+                throw new TaskStatusException("Unable to optimize SLI hash: " + maqlDdlTaskStatus.getMessages(),
+                        maqlDdlTaskStatus);
             }
 
             @Override
@@ -317,6 +554,35 @@ public class DatasetService extends AbstractService {
 
     }
 
+    /**
+     * Optimize SLI hash (see {@link #optimizeSliHash(Project)}) in many projects, with at most given number
+     * of optimizations running concurrently, all of them tracked from a single polling thread. Optimizations failed
+     * for transient reasons (server error or I/O failure) are retried. Outcomes are streamed as the projects finish
+     * (see {@link BulkExecutor#next()}), optimizations finished with unsuccessful task status are reported
+     * with {@link TaskStatusException} carrying the status, none of the failures stops the other projects.
+     *
+     * @param projects      projects to optimize SLI hash in
+     * @param maxConcurrent maximum number of optimizations running concurrently
+     * @param maxAttempts   maximum number of attempts per project, 1 for no retries
+     * @return closed executor streaming outcomes of the projects
+     */
+    public BulkExecutor<Project, Void> optimizeSliHash(final Collection<Project> projects, final int maxConcurrent,
+                                                       final int maxAttempts) {
+        noNullElements(projects, "projects");
+        final BulkExecutor<Project, Void> executor =
+                new BulkExecutor<>("optimize-sli-hash", maxConcurrent, maxAttempts);
+        for (final Project project : projects) {
+            executor.submit(project.getId(), project, new Callable<FutureResult<Void>>() {
+                @Override
+                public FutureResult<Void> call() {
+                    return optimizeSliHash(project);
+                }
+            });
+        }
+        executor.close();
+        return executor;
+    }
+
     /**
      * Update project data with the given update script (MAQL). This method can be used for data manipulation only,
      * for model changes use {@link com.gooddata.model.ModelService#updateProjectModel}.
@@ -363,4 +629,69 @@ public class DatasetService extends AbstractService {
         });
     }
 
+    /**
+     * Delete project data by the given deletions, each split to MAQL DML statements of at most
+     * {@link #MAX_DML_STATEMENT_BYTES}. See {@link #deleteProjectData(Project, Collection, int, int, int)}.
+     *
+     * @param project       project which data should be deleted
+     * @param deletions     deletions to execute
+     * @param maxConcurrent maximum number of statements executed concurrently
+     * @param maxAttempts   maximum number of attempts per statement, 1 for no retries
+     * @return closed executor streaming outcomes of the statements
+     */
+    public BulkExecutor<DataDeletion, Void> deleteProjectData(final Project project,
+                                                              final Collection<DataDeletion> deletions,
+                                                              final int maxConcurrent, final int maxAttempts) {
+        return deleteProjectData(project, deletions, MAX_DML_STATEMENT_BYTES, maxConcurrent, maxAttempts);
+    }
+
+    /**
+     * Delete project data by the given deletions. Each deletion is split to MAQL DML statements not larger than
+     * the given size, the statements are executed with at most given number of them running concurrently, the next
+     * one is started as soon as one finishes. Statements failed for transient reasons (server error or I/O failure)
+     * are retried, deleting is idempotent. Outcomes are streamed as the statements finish
+     * (see {@link BulkExecutor#next()}), each of them carries the deletion of the elements the statement deleted,
+     * so the progress is the number of elements of the finished deletions.
+     *
+     * @param project       project which data should be deleted
+     * @param deletions     deletions to execute
+     * @param maxBytes      maximum size of a statement in bytes
+     * @param maxConcurrent maximum number of statements executed concurrently
+     * @param maxAttempts   maximum number of attempts per statement, 1 for no retries
+     * @return closed executor streaming outcomes of the statements
+     */
+    public BulkExecutor<DataDeletion, Void> deleteProjectData(final Project project,
+                                                              final Collection<DataDeletion> deletions,
+                                                              final int maxBytes, final int maxConcurrent,
+                                                              final int maxAttempts) {
+        notNull(project, "project");
+        noNullElements(deletions, "deletions");
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        final BulkExecutor<DataDeletion, Void> executor =
+                new BulkExecutor<>("data-deletion-" + project.getId(), maxConcurrent, maxAttempts);
+        for (DataDeletion deletion : deletions) {
+            for (final DataDeletion chunk : deletion.split(maxBytes)) {
+                executor.submit(project.getId(), chunk, new Callable<FutureResult<Void>>() {
+                    @Override
+                    public FutureResult<Void> call() {
+                        return updateProjectData(project, chunk.toMaql());
+                    }
+                });
+            }
+        }
+        executor.close();
+        return executor;
+    }
+
+    /**
+     * Byte buffer handing its content over to the upload stream without copying.
+     */
+    private static class JsonBuffer extends ByteArrayOutputStream {
+
+        private InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
 }
@@ -0,0 +1,429 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Local persistent index of dataset rows used for delta loads. Keeps 64-bit hash of the row key (values of
+ * {@link DatasetManifest.Part#isReferenceKey() reference key} columns) mapped to 64-bit hash of the whole row content.
+ * <p>
+ * Rows passing through {@link #filterArrays(Iterator)} or {@link #filterMaps(Iterator)} are compared with the index
+ * and only new or changed rows are returned. Their hashes are kept as pending until {@link #commit()} is called, which
+ * happens automatically by
+ * {@link DatasetService#loadDatasetDelta(com.gooddata.project.Project, DatasetManifest, Iterator, RowHashIndex)}
+ * when the load succeeds. Rows removed from the source are not detected (incremental load can't remove them anyway).
+ * <p>
+ * The index file is read using memory mapping and rewritten atomically on commit. Index is held in memory as
+ * an open addressing table of primitive longs (about 32 bytes per row). Instances are not thread safe.
+ */
+public class RowHashIndex {
+
+    private static final int MAGIC = 0x47445249; // GDRI
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long VALUE_SEPARATOR = 0x1f;
+    private static final long NULL_VALUE = 0x00;
+
+    private final Path file;
+    private final List<String> columns;
+    private final int[] keyPositions;
+    private final LongLongTable committed;
+    private final LongLongTable pending = new LongLongTable(INITIAL_CAPACITY);
+
+    /**
+     * Opens index stored in the given file for the given manifest. The file is created on first {@link #commit()}.
+     * The index key is made of values of manifest parts marked as reference key, or of all values when no part
+     * is marked.
+     *
+     * @param file     index file
+     * @param manifest dataset manifest
+     * @throws IOException when the existing index file can't be read
+     */
+    public RowHashIndex(final Path file, final DatasetManifest manifest) throws IOException {
+        this.file = notNull(file, "file");
+        this.columns = DatasetCsvWriter.getColumnNames(manifest);
+        this.keyPositions = getKeyPositions(manifest.getParts());
+        this.committed = Files.exists(file) ? read(file) : new LongLongTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Number of committed rows
+     *
+     * @return number of committed rows
+     */
+    public int size() {
+        return committed.size();
+    }
+
+    /**
+     * Number of new or changed rows seen since the last commit or rollback
+     *
+     * @return number of pending rows
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Compares the row with the index and remembers its hash as pending when it's new or changed.
+     *
+     * @param values row values in the order of manifest parts
+     * @return true if the row is new or changed
+     */
+    public boolean stage(final Object[] values) {
+        notNull(values, "values");
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Row has " + values.length + " values, but " + columns.size()
+                    + " columns are expected");
+        }
+        final long key = hash(values, keyPositions);
+        final long content = hash(values, null);
+        if (committed.containsEntry(key, content) || pending.containsEntry(key, content)) {
+            return false;
+        }
+        pending.put(key, content);
+        return true;
+    }
+
+    /**
+     * Compares the row with the index and remembers its hash as pending when it's new or changed.
+     *
+     * @param values row values by column name
+     * @return true if the row is new or changed
+     */
+    public boolean stage(final Map<String, ?> values) {
+        notNull(values, "values");
+        final Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = values.get(columns.get(i));
+        }
+        return stage(row);
+    }
+
+    /**
+     * Returns iterator of new or changed rows only
+     *
+     * @param rows row values in the order of manifest parts
+     * @return filtered rows
+     */
+    public Iterator<Object[]> filterArrays(final Iterator<Object[]> rows) {
+        notNull(rows, "rows");
+        return new FilteringIterator<Object[]>(rows) {
+            @Override
+            boolean accept(final Object[] row) {
+                return stage(row);
+            }
+        };
+    }
+
+    /**
+     * Returns iterator of new or changed rows only
+     *
+     * @param rows row values by column name
+     * @param <T>  type of row map
+     * @return filtered rows
+     */
+    public <T extends Map<String, ?>> Iterator<T> filterMaps(final Iterator<T> rows) {
+        notNull(rows, "rows");
+        return new FilteringIterator<T>(rows) {
+            @Override
+            boolean accept(final T row) {
+                return stage(row);
+            }
+        };
+    }
+
+    /**
+     * Merges pending rows into the index and writes the index file atomically.
+     *
+     * @throws IOException when the index file can't be written
+     */
+    public void commit() throws IOException {
+        if (pending.size() == 0 && Files.exists(file)) {
+            return;
+        }
+        final LongLongTable merged = committed.copy();
+        pending.putAllTo(merged);
+        write(merged, file);
+        committed.replaceWith(merged);
+        pending.clear();
+    }
+
+    /**
+     * Forgets rows staged since the last commit.
+     */
+    public void rollback() {
+        pending.clear();
+    }
+
+    private static int[] getKeyPositions(final List<DatasetManifest.Part> parts) {
+        final int[] positions = new int[parts.size()];
+        int count = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            if (parts.get(i).isReferenceKey()) {
+                positions[count++] = i;
+            }
+        }
+        if (count == 0) {
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = i;
+            }
+            return positions;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * FNV-1a hash of given values (of all values if positions are null), computed over chars without creating strings
+     * for {@link CharSequence} values.
+     */
+    static long hash(final Object[] values, final int[] positions) {
+        long hash = FNV_OFFSET;
+        final int count = positions == null ? values.length : positions.length;
+        for (int i = 0; i < count; i++) {
+            final Object value = values[positions == null ? i : positions[i]];
+            if (value == null) {
+                hash = (hash ^ NULL_VALUE) * FNV_PRIME;
+            } else {
+                final CharSequence chars = value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+                for (int j = 0; j < chars.length(); j++) {
+                    final char c = chars.charAt(j);
+                    hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                    hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+                }
+            }
+            hash = (hash ^ VALUE_SEPARATOR) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static LongLongTable read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Invalid row hash index file " + file);
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported row hash index file " + file);
+            }
+            final long count = buffer.getLong();
+            if (size != HEADER_SIZE + count * 16) {
+                throw new IOException("Corrupted row hash index file " + file);
+            }
+            final LongLongTable table = new LongLongTable((int) Math.min(Integer.MAX_VALUE / 2, count * 2));
+            final LongBuffer longs = buffer.asLongBuffer();
+            for (long i = 0; i < count; i++) {
+                table.put(longs.get(), longs.get());
+            }
+            return table;
+        }
+    }
+
+    private static void write(final LongLongTable table, final Path file) throws IOException {
+        final Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        final Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+                buffer.putInt(MAGIC).putInt(VERSION).putLong(table.size());
+                final long[] keys = table.keys;
+                final long[] values = table.values;
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != LongLongTable.EMPTY) {
+                        if (buffer.remaining() < 16) {
+                            drain(buffer, channel);
+                        }
+                        buffer.putLong(keys[i]).putLong(values[i]);
+                    }
+                }
+                drain(buffer, channel);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void drain(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Open addressing hash table of primitive longs. Zero key is reserved as empty slot marker,
+     * so zero hash is stored as one.
+     */
+    private static class LongLongTable {
+
+        private static final long EMPTY = 0L;
+
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+        LongLongTable(final int expected) {
+            allocate(capacityFor(expected));
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean containsEntry(final long key, final long value) {
+            final int slot = find(normalize(key));
+            return keys[slot] != EMPTY && values[slot] == value;
+        }
+
+        void put(final long key, final long value) {
+            final long normalized = normalize(key);
+            int slot = find(normalized);
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) * 4L > keys.length * 3L) {
+                    rehash(keys.length * 2);
+                    slot = find(normalized);
+                }
+                keys[slot] = normalized;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        void putAllTo(final LongLongTable target) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    target.put(keys[i], values[i]);
+                }
+            }
+        }
+
+        LongLongTable copy() {
+            final LongLongTable copy = new LongLongTable(0);
+            copy.keys = keys.clone();
+            copy.values = values.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        void replaceWith(final LongLongTable other) {
+            keys = other.keys;
+            values = other.values;
+            size = other.size;
+        }
+
+        void clear() {
+            if (size > 0) {
+                allocate(capacityFor(INITIAL_CAPACITY));
+            }
+        }
+
+        private int find(final long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash(final int capacity) {
+            final long[] oldKeys = keys;
+            final long[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    final int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    size++;
+                }
+            }
+        }
+
+        private void allocate(final int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            size = 0;
+        }
+
+        private static long normalize(final long key) {
+            return key == EMPTY ? 1L : key;
+        }
+
+        private static int capacityFor(final int expected) {
+            int capacity = 16;
+            while (capacity * 3L < expected * 4L) {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+    }
+
+    private abstract static class FilteringIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> delegate;
+        private T next;
+
+        FilteringIterator(final Iterator<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        abstract boolean accept(T row);
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && delegate.hasNext()) {
+                final T row = delegate.next();
+                if (row != null && accept(row)) {
+                    next = row;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T row = next;
+            next = null;
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
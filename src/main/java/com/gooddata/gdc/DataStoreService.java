@@ -11,19 +11,28 @@ import org.apache.http.impl.client.HttpClientBuilder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
 
 /**
  * Uploads, downloads, deletes, ... at datastore
+ * <p>
+ * The service is thread-safe. The user staging URI is discovered (and the WebDAV client created) once, on the first
+ * use (or by {@link #getUserStagingUri()}), concurrent callers wait for the single discovery instead of repeating it.
  */
 public class DataStoreService {
 
-    private final Sardine sardine;
+    private final HttpClientBuilder httpClientBuilder;
+    private final String user;
+    private final String pass;
     private final GdcService gdcService;
     private final URI gdcUri;
-    private UriPrefixer prefixer;
+    private final AtomicReference<FutureTask<Staging>> staging = new AtomicReference<>();
 
 
     /**
@@ -37,17 +46,66 @@ public class DataStoreService {
     public DataStoreService(HttpClientBuilder httClientBuilder, GdcService gdcService, String gdcUri, String user, String pass) {
         this.gdcService = notNull(gdcService, "gdcService");
         this.gdcUri = URI.create(notEmpty(gdcUri, "gdcUri"));
-        sardine = new SardineImpl(httClientBuilder, user, pass);
+        this.httpClientBuilder = notNull(httClientBuilder, "httClientBuilder");
+        this.user = user;
+        this.pass = pass;
     }
 
-    private UriPrefixer getPrefixer() {
-        if (prefixer == null) {
-            final String uriString = gdcService.getGdc().getUserStagingLink();
-            final URI uri = URI.create(uriString);
-            prefixer = new UriPrefixer(uri.isAbsolute() ? uri : gdcUri.resolve(uriString));
-            sardine.enablePreemptiveAuthentication(prefixer.getUriPrefix().getHost());
+    /**
+     * Returns the staging discovered by the first caller, the others wait for its result. Failed discovery
+     * is forgotten, so it's repeated by the next call.
+     */
+    private Staging getStaging() {
+        while (true) {
+            FutureTask<Staging> task = staging.get();
+            if (task == null) {
+                final FutureTask<Staging> discovery = new FutureTask<>(new Callable<Staging>() {
+                    @Override
+                    public Staging call() {
+                        return discoverStaging();
+                    }
+                });
+                if (!staging.compareAndSet(null, discovery)) {
+                    continue;
+                }
+                discovery.run();
+                task = discovery;
+            }
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                staging.compareAndSet(task, null);
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new DataStoreException("Unable to discover user staging URI", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataStoreException("Interrupted while discovering user staging URI", e);
+            }
         }
-        return prefixer;
+    }
+
+    /**
+     * Preemptive authentication is enabled before the client is published, so no upload sees the client
+     * without it.
+     */
+    private Staging discoverStaging() {
+        final String uriString = gdcService.getGdc().getUserStagingLink();
+        final URI uri = URI.create(uriString);
+        final UriPrefixer prefixer = new UriPrefixer(uri.isAbsolute() ? uri : gdcUri.resolve(uriString));
+        final Sardine sardine = new SardineImpl(httpClientBuilder, user, pass);
+        sardine.enablePreemptiveAuthentication(prefixer.getUriPrefix().getHost());
+        return new Staging(prefixer, sardine);
+    }
+
+    /**
+     * Returns the user staging URI, discovering it when it wasn't used yet. Can be called at startup to avoid
+     * the discovery during the first upload.
+     * @return user staging URI
+     */
+    public URI getUserStagingUri() {
+        return getStaging().prefixer.getUriPrefix();
     }
 
     /**
@@ -56,7 +114,7 @@ public class DataStoreService {
      * @return uri for given path
      */
     public URI getUri(String path) {
-        return getPrefixer().mergeUris(path);
+        return getStaging().prefixer.mergeUris(path);
     }
 
     /**
@@ -73,7 +131,7 @@ public class DataStoreService {
 
     private void upload(URI url, InputStream stream) {
         try {
-            sardine.put(url.toString(), stream);
+            getStaging().sardine.put(url.toString(), stream);
         } catch (IOException e) {
             throw new DataStoreException("Unable to upload to " + url, e);
         }
@@ -89,7 +147,7 @@ public class DataStoreService {
         notEmpty(path, "path");
         final URI uri = getUri(path);
         try {
-            return sardine.get(uri.toString());
+            return getStaging().sardine.get(uri.toString());
         } catch (IOException e) {
             throw new DataStoreException("Unable to download from " + uri, e);
         }
@@ -104,9 +162,23 @@ public class DataStoreService {
         notEmpty(path, "path");
         final URI uri = getUri(path);
         try {
-            sardine.delete(uri.toString());
+            getStaging().sardine.delete(uri.toString());
         } catch (IOException e) {
             throw new DataStoreException("Unable to delete " + uri, e);
         }
     }
+
+    /**
+     * User staging URI and the WebDAV client authenticated to its host
+     */
+    private static class Staging {
+
+        private final UriPrefixer prefixer;
+        private final Sardine sardine;
+
+        private Staging(final UriPrefixer prefixer, final Sardine sardine) {
+            this.prefixer = prefixer;
+            this.sardine = sardine;
+        }
+    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.gdc;
+
+import com.gooddata.GoodDataException;
+
+/**
+ * Asynchronous task finished unsuccessfully, carries the final status of the task
+ */
+public class TaskStatusException extends GoodDataException {
+
+    private final TaskStatus taskStatus;
+
+    public TaskStatusException(final String message, final TaskStatus taskStatus) {
+        super(message);
+        this.taskStatus = taskStatus;
+    }
+
+    /**
+     * Final status of the failed task
+     *
+     * @return task status
+     */
+    public TaskStatus getTaskStatus() {
+        return taskStatus;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.gooddata.util.Validate.noNullElements;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Budget of MAQL chunks executed by {@link ModelService#executeMaqlDdl}. Given MAQL is split to statements which are
+ * merged (in their original order) into chunks of at most given number of statements and bytes. A statement larger
+ * than the byte budget is executed as a chunk of its own.
+ */
+public class MaqlChunking {
+
+    /**
+     * Chunks of at most 100 statements and 64 kB
+     */
+    public static final MaqlChunking DEFAULT = new MaqlChunking(100, 64 * 1024);
+
+    private final int maxStatements;
+    private final int maxBytes;
+
+    /**
+     * @param maxStatements maximum number of statements in a chunk
+     * @param maxBytes      maximum size of a chunk in bytes (UTF-8)
+     */
+    public MaqlChunking(final int maxStatements, final int maxBytes) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements must be positive");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Splits the given MAQL to statements and merges them to chunks within the budget
+     *
+     * @param maql MAQL scripts
+     * @return chunks
+     */
+    List<String> chunk(final Collection<String> maql) {
+        noNullElements(maql, "maql");
+        final List<String> chunks = new ArrayList<>();
+        final StringBuilder chunk = new StringBuilder();
+        int statements = 0;
+        int bytes = 0;
+        for (String script : maql) {
+            for (String statement : split(script)) {
+                final int size = statement.getBytes(UTF_8).length;
+                // statements are joined by a newline
+                if (statements > 0 && (statements == maxStatements || bytes + 1 + size > maxBytes)) {
+                    chunks.add(chunk.toString());
+                    chunk.setLength(0);
+                    statements = 0;
+                    bytes = 0;
+                }
+                if (statements > 0) {
+                    chunk.append('\n');
+                    bytes++;
+                }
+                chunk.append(statement);
+                bytes += size;
+                statements++;
+            }
+        }
+        if (statements > 0) {
+            chunks.add(chunk.toString());
+        }
+        return chunks;
+    }
+
+    /**
+     * Splits MAQL script to statements terminated by semicolon, semicolons inside quoted strings don't terminate
+     * the statement
+     */
+    static List<String> split(final String script) {
+        final List<String> statements = new ArrayList<>();
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < script.length(); i++) {
+            final char c = script.charAt(i);
+            if (quoted && c == '\\') {
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && c == ';') {
+                addStatement(statements, script.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addStatement(statements, script.substring(start));
+        return statements;
+    }
+
+    private static void addStatement(final List<String> statements, final String statement) {
+        final String trimmed = statement.trim();
+        if (!trimmed.isEmpty()) {
+            statements.add(trimmed + ";");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MaqlChunking{maxStatements=" + maxStatements + ", maxBytes=" + maxBytes + "}";
+    }
+}
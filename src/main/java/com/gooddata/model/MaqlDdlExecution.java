@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import com.gooddata.AbstractService;
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import com.gooddata.gdc.TaskStatus;
+import com.gooddata.project.Project;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Execution of MAQL DDL chunks one after another (see {@link ModelService#executeMaqlDdl}). Every check
+ * ({@link #isDone()}) polls the running chunk once and submits the next chunk as soon as the previous one succeeds.
+ * Waiting for the result polls adaptively, starting with a short interval which grows while the chunk is running.
+ * When a chunk fails (including submission of the first one), the failure is thrown by the checks and the execution
+ * can be resumed from the failed chunk by {@link ModelService#resumeMaqlDdl}.
+ */
+public class MaqlDdlExecution implements FutureResult<Void> {
+
+    static final long MIN_POLL_INTERVAL_MILLIS = 100;
+
+    private final RestTemplate restTemplate;
+    private final ModelService service;
+    private final Project project;
+    private final List<String> chunks;
+    private final MaqlDdlListener listener;
+    private int executed;
+    private String pollUri;
+    private long chunkStart;
+    private boolean done;
+    private GoodDataException failure;
+
+    MaqlDdlExecution(final RestTemplate restTemplate, final ModelService service, final Project project,
+                     final List<String> chunks, final int executed, final MaqlDdlListener listener) {
+        this.restTemplate = notNull(restTemplate, "restTemplate");
+        this.service = notNull(service, "service");
+        this.project = notNull(project, "project");
+        this.chunks = notNull(chunks, "chunks");
+        this.executed = executed;
+        this.listener = listener;
+        if (executed < chunks.size()) {
+            try {
+                submitChunk();
+            } catch (GoodDataException ignored) {
+                // recorded as the failure, thrown by the checks, so the execution can be resumed
+            }
+        } else {
+            finish();
+        }
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (done) {
+            return true;
+        }
+        final ResponseEntity<TaskStatus> response;
+        try {
+            response = restTemplate.getForEntity(pollUri, TaskStatus.class);
+        } catch (GoodDataException | RestClientException e) {
+            throw fail(new ModelException("Unable to update project model", e));
+        }
+        if (response.getStatusCode() != HttpStatus.OK) {
+            return false;
+        }
+        final TaskStatus status = response.getBody();
+        if (status == null || !status.isSuccess()) {
+            throw fail(new ModelException("Unable to update project model: "
+                    + (status == null ? "no status" : status.getMessages())));
+        }
+        final int chunk = executed++;
+        if (listener != null) {
+            listener.chunkExecuted(this, chunk, System.currentTimeMillis() - chunkStart);
+        }
+        if (executed == chunks.size()) {
+            finish();
+            return true;
+        }
+        submitChunk();
+        return false;
+    }
+
+    @Override
+    public Void get() {
+        return get(0, null);
+    }
+
+    @Override
+    public synchronized Void get(final long timeout, final TimeUnit unit) {
+        final long start = System.currentTimeMillis();
+        long interval = MIN_POLL_INTERVAL_MILLIS;
+        while (true) {
+            final int before = executed;
+            if (isDone()) {
+                return null;
+            }
+            if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
+                throw new GoodDataException("timeout");
+            }
+            interval = executed != before ? MIN_POLL_INTERVAL_MILLIS
+                    : Math.min(interval * 2, AbstractService.WAIT_BEFORE_RETRY_IN_MILLIS);
+            try {
+                wait(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            }
+        }
+    }
+
+    @Override
+    public synchronized String getPollingUri() {
+        return pollUri;
+    }
+
+    public Project getProject() {
+        return project;
+    }
+
+    /**
+     * Chunks of the whole execution
+     *
+     * @return chunks
+     */
+    public List<String> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Number of successfully executed chunks, it's also index of the running (or failed) chunk
+     *
+     * @return number of executed chunks
+     */
+    public synchronized int getExecutedChunks() {
+        return executed;
+    }
+
+    /**
+     * Failure which stopped the execution
+     *
+     * @return failure or null when the execution didn't fail
+     */
+    public synchronized GoodDataException getFailure() {
+        return failure;
+    }
+
+    MaqlDdlListener getListener() {
+        return listener;
+    }
+
+    private void submitChunk() {
+        try {
+            final MaqlDdlLinks links = restTemplate.postForObject(MaqlDdl.URI, new MaqlDdl(chunks.get(executed)),
+                    MaqlDdlLinks.class, project.getId());
+            pollUri = links.getStatusLink();
+            chunkStart = System.currentTimeMillis();
+        } catch (GoodDataException | RestClientException e) {
+            throw fail(new ModelException("Unable to update project model", e));
+        }
+    }
+
+    private void finish() {
+        done = true;
+        service.projectModelChanged(project);
+    }
+
+    /**
+     * Model may be (partially) changed even when the chunk fails, so the listener is notified in any case.
+     */
+    private GoodDataException fail(final GoodDataException e) {
+        failure = e;
+        service.projectModelChanged(project);
+        return e;
+    }
+}
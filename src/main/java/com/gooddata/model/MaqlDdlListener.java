@@ -0,0 +1,19 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+/**
+ * Receives progress of {@link MaqlDdlExecution}. Called from the thread checking the execution, it shouldn't block.
+ */
+public interface MaqlDdlListener {
+
+    /**
+     * Called when a chunk was successfully executed
+     *
+     * @param execution      the execution, see {@link MaqlDdlExecution#getExecutedChunks()} for the progress
+     * @param chunk          index of the executed chunk
+     * @param durationMillis time between the chunk was submitted and its success was observed
+     */
+    void chunkExecuted(MaqlDdlExecution execution, int chunk, long durationMillis);
+}
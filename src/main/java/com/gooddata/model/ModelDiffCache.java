@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import com.gooddata.project.Project;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.gooddata.util.Validate.notNull;
+import static java.util.Collections.singletonMap;
+
+/**
+ * Cache of project model diffs shared by projects with the same model, keyed by a fingerprint of the project model
+ * and a canonical hash of the target model (JSON with ordered keys and no whitespace, so formatting doesn't matter).
+ * Diffs are kept in memory (the least recently used ones are evicted) and optionally also in a directory,
+ * so they survive the application restart.
+ * <p>
+ * Fingerprints of project models are known only for projects which model was registered by
+ * {@link #setProjectModel(Project, String)} or which were updated by {@link ModelService} using a diff to a known
+ * target model. Any other update of the project model through {@link ModelService} forgets its fingerprint. Diffs
+ * of projects with unknown fingerprint are always computed by the server. Models updated outside of this client
+ * must be forgotten by {@link #invalidate(Project)}.
+ * <p>
+ * The cache is thread-safe.
+ */
+public class ModelDiffCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int maxEntries;
+    private final Path directory;
+    private final LinkedHashMap<String, ModelDiff> diffs = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<ModelDiff, String> diffTargets = new WeakHashMap<>();
+    private final ConcurrentMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Creates in-memory cache
+     *
+     * @param maxEntries maximum number of diffs kept in memory
+     */
+    public ModelDiffCache(final int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Creates cache keeping the diffs also in the given directory
+     *
+     * @param maxEntries maximum number of diffs kept in memory
+     * @param directory  directory to keep the diffs in, null for in-memory cache
+     */
+    public ModelDiffCache(final int maxEntries, final Path directory) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+    }
+
+    /**
+     * Registers current model of the given project, so diffs of projects with the same model are shared
+     *
+     * @param project project
+     * @param model   current model of the project (LDM JSON)
+     */
+    public void setProjectModel(final Project project, final String model) {
+        notNull(project, "project");
+        fingerprints.put(project.getId(), hash(notNull(model, "model")));
+    }
+
+    /**
+     * Forgets fingerprint of the project model, call when the model was changed outside of {@link ModelService}
+     *
+     * @param project project
+     */
+    public void invalidate(final Project project) {
+        notNull(project, "project");
+        fingerprints.remove(project.getId());
+    }
+
+    /**
+     * Removes all cached diffs from memory and forgets all project model fingerprints. Diffs kept in the directory
+     * aren't removed (they remain valid, they depend only on the source and target model).
+     */
+    public synchronized void clear() {
+        diffs.clear();
+        diffTargets.clear();
+        fingerprints.clear();
+    }
+
+    /**
+     * Number of diffs cached in memory
+     *
+     * @return number of diffs
+     */
+    public synchronized int size() {
+        return diffs.size();
+    }
+
+    String getFingerprint(final Project project) {
+        return fingerprints.get(project.getId());
+    }
+
+    /**
+     * Records the project model was updated by the given diff, so it's now the diff target model
+     */
+    void updated(final Project project, final ModelDiff diff) {
+        final String target;
+        synchronized (this) {
+            target = diffTargets.get(diff);
+        }
+        if (target != null) {
+            updated(project, target);
+        }
+    }
+
+    void updated(final Project project, final String targetHash) {
+        fingerprints.put(project.getId(), targetHash);
+    }
+
+    synchronized ModelDiff get(final String fingerprint, final String targetHash) {
+        final String key = fingerprint + "-" + targetHash;
+        ModelDiff diff = diffs.get(key);
+        if (diff == null && directory != null) {
+            diff = read(directory.resolve(key + ".json"));
+            if (diff != null) {
+                add(key, diff, targetHash);
+            }
+        }
+        return diff;
+    }
+
+    synchronized void put(final String fingerprint, final String targetHash, final ModelDiff diff) {
+        final String key = fingerprint + "-" + targetHash;
+        add(key, diff, targetHash);
+        if (directory != null) {
+            write(directory.resolve(key + ".json"), diff);
+        }
+    }
+
+    private void add(final String key, final ModelDiff diff, final String targetHash) {
+        diffs.put(key, diff);
+        diffTargets.put(diff, targetHash);
+        if (diffs.size() > maxEntries) {
+            diffs.remove(diffs.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Reads the diff from the directory, unreadable files are treated as missing
+     */
+    private static ModelDiff read(final Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(file.toFile(), ModelDiff.class);
+        } catch (IOException ignored) {
+            // todo log?
+            return null;
+        }
+    }
+
+    /**
+     * Writes the diff in the format returned by the server, failure to write just leaves the diff in memory only
+     */
+    private static void write(final Path file, final ModelDiff diff) {
+        final List<Object> scripts = new ArrayList<>();
+        for (ModelDiff.UpdateScript script : diff.getUpdateScripts()) {
+            final Map<String, Object> fields = new HashMap<>();
+            fields.put("preserveData", script.isPreserveData());
+            fields.put("cascadeDrops", script.isCascadeDrops());
+            fields.put("maqlDdlChunks", script.getMaqlChunks());
+            scripts.add(singletonMap("updateScript", fields));
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            final Path temp = Files.createTempFile(file.getParent(), "diff", ".tmp");
+            try {
+                MAPPER.writeValue(temp.toFile(),
+                        singletonMap("projectModelDiff", singletonMap("updateScripts", scripts)));
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ignored) {
+            // todo log? the diff is still cached in memory
+        }
+    }
+
+    /**
+     * Converts the JSON tree to maps with fields sorted by name (recursively), arrays keep their order
+     */
+    private static Object canonical(final JsonNode node) {
+        if (node.isObject()) {
+            final Map<String, Object> fields = new TreeMap<>();
+            final Iterator<Map.Entry<String, JsonNode>> it = node.getFields();
+            while (it.hasNext()) {
+                final Map.Entry<String, JsonNode> field = it.next();
+                fields.put(field.getKey(), canonical(field.getValue()));
+            }
+            return fields;
+        }
+        if (node.isArray()) {
+            final List<Object> elements = new ArrayList<>(node.size());
+            for (JsonNode element : node) {
+                elements.add(canonical(element));
+            }
+            return elements;
+        }
+        return node;
+    }
+
+    /**
+     * Canonical hash of the model, independent of formatting and order of the JSON object fields
+     *
+     * @param model model (LDM JSON)
+     * @return hex encoded SHA-256 of the canonical JSON
+     */
+    static String hash(final String model) {
+        try {
+            final Object tree = canonical(MAPPER.readTree(model));
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(MAPPER.writeValueAsBytes(tree));
+            return String.format("%064x", new BigInteger(1, hash));
+        } catch (IOException e) {
+            throw new ModelException("Unable to parse model", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ModelException("Unable to compute hash of model", e);
+        }
+    }
+}
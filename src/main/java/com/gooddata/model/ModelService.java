@@ -4,6 +4,8 @@
 package com.gooddata.model;
 
 import com.gooddata.AbstractService;
+import com.gooddata.BulkExecutor;
+import com.gooddata.ChainedResult;
 import com.gooddata.FutureResult;
 import com.gooddata.PollResult;
 import com.gooddata.GoodDataRestException;
@@ -20,7 +22,13 @@ import org.springframework.web.client.RestTemplate;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notNull;
@@ -32,8 +40,60 @@ import static java.util.Arrays.asList;
  */
 public class ModelService extends AbstractService {
 
+    private final ProjectModelListener modelListener;
+    private final ModelDiffCache modelDiffCache;
+
     public ModelService(RestTemplate restTemplate) {
+        this(restTemplate, null);
+    }
+
+    /**
+     * Creates service notifying the given listener whenever the project model is updated (e.g.
+     * {@link com.gooddata.dataset.DatasetService} invalidating its cached manifests).
+     *
+     * @param restTemplate  RESTful HTTP Spring template
+     * @param modelListener listener of the project model changes, may be null
+     */
+    public ModelService(RestTemplate restTemplate, ProjectModelListener modelListener) {
+        this(restTemplate, modelListener, null);
+    }
+
+    /**
+     * Creates service sharing diffs of projects with the same model through the given cache
+     *
+     * @param restTemplate   RESTful HTTP Spring template
+     * @param modelListener  listener of the project model changes, may be null
+     * @param modelDiffCache cache of model diffs, null to let the server compute every diff
+     */
+    public ModelService(RestTemplate restTemplate, ProjectModelListener modelListener,
+                        ModelDiffCache modelDiffCache) {
         super(restTemplate);
+        this.modelListener = modelListener;
+        this.modelDiffCache = modelDiffCache;
+    }
+
+    /**
+     * Returns diff from the cache when the project model fingerprint is known, otherwise lets the server compute it
+     * and caches it when done
+     */
+    private FutureResult<ModelDiff> getProjectModelDiff(final Project project, final DiffRequest diffRequest,
+                                                        final String targetHash) {
+        final String fingerprint = modelDiffCache == null ? null : modelDiffCache.getFingerprint(project);
+        if (fingerprint == null) {
+            return getProjectModelDiff(project, diffRequest);
+        }
+        final ModelDiff cached = modelDiffCache.get(fingerprint, targetHash);
+        if (cached != null) {
+            return ChainedResult.completed(cached);
+        }
+        return new ChainedResult<>(getProjectModelDiff(project, diffRequest),
+                new ChainedResult.Step<ModelDiff, ModelDiff>() {
+                    @Override
+                    public FutureResult<ModelDiff> start(final ModelDiff diff) {
+                        modelDiffCache.put(fingerprint, targetHash, diff);
+                        return ChainedResult.completed(diff);
+                    }
+                });
     }
 
     private FutureResult<ModelDiff> getProjectModelDiff(Project project, DiffRequest diffRequest) {
@@ -56,7 +116,7 @@ public class ModelService extends AbstractService {
     public FutureResult<ModelDiff> getProjectModelDiff(Project project, String targetModel) {
         notNull(project, "project");
         notNull(targetModel, "targetModel");
-        return getProjectModelDiff(project, new DiffRequest(targetModel));
+        return getProjectModelDiff(project, new DiffRequest(targetModel), getTargetHash(targetModel));
     }
 
     public FutureResult<ModelDiff> getProjectModelDiff(Project project, Reader targetModel) {
@@ -69,6 +129,93 @@ public class ModelService extends AbstractService {
         }
     }
 
+    /**
+     * Update models of many projects to the given target model. Model diffs of the projects are computed
+     * concurrently and each project is updated as soon as its diff is known, with at most given number of projects
+     * being diffed or updated at once, all of them tracked from a single polling thread. Projects whose diffs
+     * produce the same update MAQL share one {@link ModelUpdate}, projects already matching the target model
+     * aren't updated. Failed projects are retried when the failure is transient (server error or I/O failure),
+     * each retry computes the diff again, so a partially applied update continues where it stopped.
+     * Outcomes are streamed as the projects finish (see {@link BulkExecutor#next()}).
+     *
+     * @param projects      projects to be updated
+     * @param targetModel   target model (LDM JSON)
+     * @param maxConcurrent maximum number of projects diffed or updated concurrently
+     * @param maxAttempts   maximum number of attempts per project, 1 for no retries
+     * @return closed executor streaming the applied updates
+     */
+    public BulkExecutor<Project, ModelUpdate> updateProjectModels(final Collection<Project> projects,
+                                                                  final String targetModel,
+                                                                  final int maxConcurrent, final int maxAttempts) {
+        noNullElements(projects, "projects");
+        final DiffRequest diffRequest = new DiffRequest(notNull(targetModel, "targetModel"));
+        final String targetHash = getTargetHash(targetModel);
+        final ConcurrentMap<String, ModelUpdate> updates = new ConcurrentHashMap<>();
+        final BulkExecutor<Project, ModelUpdate> executor =
+                new BulkExecutor<>("model-updates", maxConcurrent, maxAttempts);
+        for (final Project project : projects) {
+            executor.submit(project.getId(), project, new Callable<FutureResult<ModelUpdate>>() {
+                @Override
+                public FutureResult<ModelUpdate> call() {
+                    return new ChainedResult<>(getProjectModelDiff(project, diffRequest, targetHash),
+                            new ChainedResult.Step<ModelDiff, ModelUpdate>() {
+                                @Override
+                                public FutureResult<ModelUpdate> start(final ModelDiff diff) {
+                                    return updateProjectModel(project, getModelUpdate(updates, diff), targetHash);
+                                }
+                            });
+                }
+            });
+        }
+        executor.close();
+        return executor;
+    }
+
+    /**
+     * Returns the update shared by all projects with the same update MAQL
+     */
+    private static ModelUpdate getModelUpdate(final ConcurrentMap<String, ModelUpdate> updates,
+                                              final ModelDiff diff) {
+        final List<String> maql = diff.getUpdateMaql();
+        final String hash = ModelUpdate.hash(maql);
+        final ModelUpdate update = updates.get(hash);
+        if (update != null) {
+            return update;
+        }
+        final ModelUpdate created = new ModelUpdate(maql);
+        final ModelUpdate existing = updates.putIfAbsent(hash, created);
+        return existing != null ? existing : created;
+    }
+
+    private FutureResult<ModelUpdate> updateProjectModel(final Project project, final ModelUpdate update,
+                                                         final String targetHash) {
+        if (update.isEmpty()) {
+            modelUpdated(project, targetHash);
+            return ChainedResult.completed(update);
+        }
+        return new ChainedResult<>(updateProjectModel(project, update.getMaql()),
+                new ChainedResult.Step<Void, ModelUpdate>() {
+                    @Override
+                    public FutureResult<ModelUpdate> start(final Void previous) {
+                        modelUpdated(project, targetHash);
+                        return ChainedResult.completed(update);
+                    }
+                });
+    }
+
+    /**
+     * Canonical hash of the target model when diffs are cached, null otherwise
+     */
+    private String getTargetHash(final String targetModel) {
+        return modelDiffCache == null ? null : ModelDiffCache.hash(targetModel);
+    }
+
+    private void modelUpdated(final Project project, final String targetHash) {
+        if (modelDiffCache != null) {
+            modelDiffCache.updated(project, targetHash);
+        }
+    }
+
     /**
      * Update project model with the MAQL script from given ModelDiff with the least side-effects
      * (see {@link ModelDiff#getUpdateMaql()}).
@@ -77,9 +224,19 @@ public class ModelService extends AbstractService {
      * @param modelDiff difference of model to be applied into the project
      * @return poll result
      */
-    public FutureResult<Void> updateProjectModel(Project project, ModelDiff modelDiff) {
+    public FutureResult<Void> updateProjectModel(final Project project, final ModelDiff modelDiff) {
         notNull(modelDiff, "modelDiff");
-        return updateProjectModel(project, modelDiff.getUpdateMaql());
+        final FutureResult<Void> result = updateProjectModel(project, modelDiff.getUpdateMaql());
+        if (modelDiffCache == null) {
+            return result;
+        }
+        return new ChainedResult<>(result, new ChainedResult.Step<Void, Void>() {
+            @Override
+            public FutureResult<Void> start(final Void previous) {
+                modelDiffCache.updated(project, modelDiff);
+                return ChainedResult.completed(null);
+            }
+        });
     }
 
     /**
@@ -123,11 +280,14 @@ public class ModelService extends AbstractService {
         if (maqlDdl.isEmpty()) {
             throw new IllegalArgumentException("MAQL DDL string(s) should be given");
         }
+        if (modelDiffCache != null) {
+            modelDiffCache.invalidate(project);
+        }
         return new PollResult<>(this, new AbstractPollHandlerBase<MaqlDdlLinks, Void>(MaqlDdlLinks.class, Void.class) {
 
             private final String projectId = project.getId();
-            private final LinkedList<String> maqlChunks = new LinkedList<>(maqlDdl);
-            private String pollUri;
+            private final Queue<String> maqlChunks = new ConcurrentLinkedQueue<>(maqlDdl);
+            private volatile String pollUri;
 
             {
                 executeNextMaqlChunk();
@@ -145,7 +305,7 @@ public class ModelService extends AbstractService {
                         MaqlDdlLinks.class, projectId);
                     this.pollUri = links.getStatusLink();
                 } catch (GoodDataRestException | RestClientException e) {
-                    throw new ModelException("Unable to update project model", e);
+                    throw fail(new ModelException("Unable to update project model", e));
                 }
                 return false;
             }
@@ -162,7 +322,8 @@ public class ModelService extends AbstractService {
                 }
                 final TaskStatus maqlDdlTaskStatus = extractData(response, TaskStatus.class);
                 if (!maqlDdlTaskStatus.isSuccess()) {
-                    throw new ModelException("Unable to update project model: " + maqlDdlTaskStatus.getMessages());
+                    throw fail(new ModelException("Unable to update project model: "
+                            + maqlDdlTaskStatus.getMessages()));
                 }
                 return executeNextMaqlChunk();
             }
@@ -174,9 +335,72 @@ public class ModelService extends AbstractService {
 
             @Override
             public void handlePollException(final GoodDataRestException e) {
-                throw new ModelException("Unable to update project model", e);
+                throw fail(new ModelException("Unable to update project model", e));
+            }
+
+            @Override
+            protected void onFinish() {
+                projectModelChanged(project);
+            }
+
+            /**
+             * Model may be partially changed even when the update fails
+             */
+            private ModelException fail(final ModelException e) {
+                projectModelChanged(project);
+                return e;
             }
         });
     }
 
+    /**
+     * Execute the given MAQL DDL split to chunks within the given budget (see {@link MaqlChunking}). Chunks are
+     * executed one after another, the next chunk is submitted as soon as success of the previous one is observed
+     * and waiting for the result polls adaptively (see {@link MaqlDdlExecution}). When a chunk fails, the execution
+     * can be resumed from the failed chunk by {@link #resumeMaqlDdl(MaqlDdlExecution)}.
+     *
+     * @param project  project to be updated
+     * @param maqlDdl  update script(s) to be executed in the project
+     * @param chunking budget of the executed chunks
+     * @param listener listener of the progress, may be null
+     * @return execution of the chunks
+     */
+    public MaqlDdlExecution executeMaqlDdl(final Project project, final Collection<String> maqlDdl,
+                                           final MaqlChunking chunking, final MaqlDdlListener listener) {
+        notNull(project, "project");
+        notNull(chunking, "chunking");
+        final List<String> chunks = Collections.unmodifiableList(chunking.chunk(maqlDdl));
+        if (chunks.isEmpty()) {
+            throw new IllegalArgumentException("MAQL DDL statement(s) should be given");
+        }
+        if (modelDiffCache != null) {
+            modelDiffCache.invalidate(project);
+        }
+        return new MaqlDdlExecution(restTemplate, this, project, chunks, 0, listener);
+    }
+
+    /**
+     * Resume the failed MAQL DDL execution, the failed chunk is executed again and then the rest of the chunks
+     *
+     * @param execution failed execution
+     * @return execution of the remaining chunks
+     */
+    public MaqlDdlExecution resumeMaqlDdl(final MaqlDdlExecution execution) {
+        notNull(execution, "execution");
+        if (execution.getFailure() == null) {
+            throw new IllegalStateException("Only failed execution can be resumed");
+        }
+        if (modelDiffCache != null) {
+            modelDiffCache.invalidate(execution.getProject());
+        }
+        return new MaqlDdlExecution(restTemplate, this, execution.getProject(), execution.getChunks(),
+                execution.getExecutedChunks(), execution.getListener());
+    }
+
+    void projectModelChanged(final Project project) {
+        if (modelListener != null) {
+            modelListener.projectModelChanged(project);
+        }
+    }
+
 }
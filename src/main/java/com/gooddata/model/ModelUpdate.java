@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.gooddata.util.Validate.noNullElements;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Update of project model applied by {@link ModelService#updateProjectModels}. Projects whose model diffs produced
+ * the same update MAQL share the same instance, so the outcomes can be grouped by the update.
+ */
+public class ModelUpdate {
+
+    private final List<String> maql;
+    private final String hash;
+
+    ModelUpdate(final List<String> maql) {
+        this.maql = Collections.unmodifiableList(new ArrayList<>(noNullElements(maql, "maql")));
+        this.hash = hash(this.maql);
+    }
+
+    /**
+     * MAQL DDL chunks executed to update the project model
+     *
+     * @return update MAQL, empty when the project model already matched the target model
+     */
+    public List<String> getMaql() {
+        return maql;
+    }
+
+    /**
+     * Hash of the update MAQL identifying the update
+     *
+     * @return hex encoded SHA-256 of the update MAQL chunks
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return true if there was nothing to update
+     */
+    public boolean isEmpty() {
+        return maql.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ModelUpdate{hash=" + hash + ", chunks=" + maql.size() + "}";
+    }
+
+    static String hash(final List<String> maql) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String chunk : maql) {
+                digest.update(chunk.getBytes(UTF_8));
+                digest.update((byte) 0);
+            }
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ModelException("Unable to compute hash of update MAQL", e);
+        }
+    }
+}
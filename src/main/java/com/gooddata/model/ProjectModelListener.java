@@ -0,0 +1,20 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import com.gooddata.project.Project;
+
+/**
+ * Notified by {@link ModelService} whenever it changed (or may have partially changed) the project model,
+ * e.g. to invalidate caches derived from the model.
+ */
+public interface ProjectModelListener {
+
+    /**
+     * Called when an update of the project model finished or failed
+     *
+     * @param project project which model was changed
+     */
+    void projectModelChanged(Project project);
+}
@@ -138,7 +138,7 @@ public class Project {
 
     @JsonIgnore
     public String getUri() {
-        return links.getSelf();
+        return links == null ? null : links.getSelf();
     }
 
     @JsonIgnore
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.project;
+
+import com.gooddata.GoodDataException;
+
+/**
+ * Follow-up step of the project provisioning failed after the project was created
+ * (see {@link ProjectService#createProjects}).
+ */
+public class ProjectProvisioningException extends GoodDataException {
+
+    private final Project project;
+
+    public ProjectProvisioningException(final Project project, final Throwable cause) {
+        super("Provisioning of project " + describe(project) + " failed", cause);
+        this.project = project;
+    }
+
+    private static String describe(final Project project) {
+        return project.getUri() != null ? project.getUri() : "'" + project.getTitle() + "'";
+    }
+
+    /**
+     * Created project which provisioning failed
+     *
+     * @return created project
+     */
+    public Project getProject() {
+        return project;
+    }
+}
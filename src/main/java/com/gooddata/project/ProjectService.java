@@ -5,6 +5,8 @@ package com.gooddata.project;
 
 import com.gooddata.AbstractPollHandler;
 import com.gooddata.AbstractService;
+import com.gooddata.BulkExecutor;
+import com.gooddata.ChainedResult;
 import com.gooddata.FutureResult;
 import com.gooddata.GoodDataException;
 import com.gooddata.GoodDataRestException;
@@ -27,12 +29,16 @@ import java.net.URI;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static com.gooddata.gdc.FeatureFlags.AGGREGATED_FEATURE_FLAGS_TEMPLATE;
 import static com.gooddata.project.ProjectFeatureFlag.FEATURE_FLAG_TEMPLATE;
 import static com.gooddata.project.ProjectFeatureFlags.FEATURE_FLAGS_TEMPLATE;
+import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notEmpty;
 import static com.gooddata.util.Validate.notNull;
 import static java.util.Arrays.asList;
@@ -122,6 +128,75 @@ public class ProjectService extends AbstractService {
         });
     }
 
+    /**
+     * Create many projects, see {@link #createProjects(Collection, int, int, List)}.
+     *
+     * @param projects      projects to be created
+     * @param maxConcurrent maximum number of projects being created concurrently
+     * @param maxAttempts   maximum number of attempts to create a project, 1 for no retries
+     * @return closed executor streaming the created projects
+     */
+    public BulkExecutor<Project, Project> createProjects(final Collection<Project> projects, final int maxConcurrent,
+                                                         final int maxAttempts) {
+        return createProjects(projects, maxConcurrent, maxAttempts,
+                Collections.<ChainedResult.Step<Project, ?>>emptyList());
+    }
+
+    /**
+     * Create many projects and run the given follow-up steps (like model update, process deployment or data load)
+     * on each of them. At most given number of projects are being provisioned concurrently, all of them tracked from
+     * a single polling thread (see {@link BulkExecutor}), the steps of each project are started one after another
+     * as soon as the project is enabled or the previous step is done. Outcomes are streamed as the projects finish
+     * (see {@link BulkExecutor#next()}), the result of the outcome is the created project.
+     * <p>
+     * Creation of a project is retried only when it failed before the project was submitted to the API, so no
+     * project is created twice. Failure of a follow-up step is reported by {@link ProjectProvisioningException}
+     * carrying the created project.
+     *
+     * @param projects      projects to be created
+     * @param maxConcurrent maximum number of projects being provisioned concurrently
+     * @param maxAttempts   maximum number of attempts to create a project, 1 for no retries
+     * @param followUps     steps run on each created project in the given order
+     * @return closed executor streaming the provisioned projects
+     */
+    public BulkExecutor<Project, Project> createProjects(
+            final Collection<Project> projects, final int maxConcurrent, final int maxAttempts,
+            final List<? extends ChainedResult.Step<Project, ?>> followUps) {
+        noNullElements(projects, "projects");
+        noNullElements(followUps, "followUps");
+        final Set<Project> submitted = Collections.newSetFromMap(new IdentityHashMap<Project, Boolean>());
+        final BulkExecutor<Project, Project> executor =
+                new BulkExecutor<Project, Project>("project-provisioning", maxConcurrent, maxAttempts) {
+                    @Override
+                    protected boolean isRetryable(final Project project, final GoodDataException failure) {
+                        synchronized (submitted) {
+                            if (submitted.contains(project)) {
+                                return false;
+                            }
+                        }
+                        return super.isRetryable(project, failure);
+                    }
+                };
+        for (final Project project : projects) {
+            executor.submit("projects", project, new Callable<FutureResult<Project>>() {
+                @Override
+                public FutureResult<Project> call() {
+                    final FutureResult<Project> creation = createProject(project);
+                    synchronized (submitted) {
+                        submitted.add(project);
+                    }
+                    FutureResult<Project> result = creation;
+                    for (final ChainedResult.Step<Project, ?> followUp : followUps) {
+                        result = new ChainedResult<>(result, new FollowUpStep(followUp));
+                    }
+                    return result;
+                }
+            });
+        }
+        executor.close();
+        return executor;
+    }
+
     /**
      * Get project by URI.
      *
@@ -477,4 +552,61 @@ public class ProjectService extends AbstractService {
     private String getFeatureFlagUri(final Project project, final String featureFlagName) {
         return FEATURE_FLAG_TEMPLATE.expand(project.getId(), featureFlagName).toString();
     }
+
+    /**
+     * Runs the follow-up step on the created project and passes the project to the next step, failures of the step
+     * are reported with the project.
+     */
+    private static class FollowUpStep implements ChainedResult.Step<Project, Project> {
+
+        private final ChainedResult.Step<Project, ?> step;
+
+        private FollowUpStep(final ChainedResult.Step<Project, ?> step) {
+            this.step = step;
+        }
+
+        @Override
+        public FutureResult<Project> start(final Project project) {
+            final FutureResult<?> result;
+            try {
+                result = step.start(project);
+            } catch (RuntimeException e) {
+                throw new ProjectProvisioningException(project, e);
+            }
+            return new FutureResult<Project>() {
+                @Override
+                public boolean isDone() {
+                    try {
+                        return result.isDone();
+                    } catch (RuntimeException e) {
+                        throw new ProjectProvisioningException(project, e);
+                    }
+                }
+
+                @Override
+                public Project get() {
+                    return get(0, null);
+                }
+
+                @Override
+                public Project get(final long timeout, final TimeUnit unit) {
+                    try {
+                        if (unit == null) {
+                            result.get();
+                        } else {
+                            result.get(timeout, unit);
+                        }
+                    } catch (RuntimeException e) {
+                        throw new ProjectProvisioningException(project, e);
+                    }
+                    return project;
+                }
+
+                @Override
+                public String getPollingUri() {
+                    return result.getPollingUri();
+                }
+            };
+        }
+    }
 }
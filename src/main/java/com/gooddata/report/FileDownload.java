@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import com.gooddata.GoodDataException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+import static com.gooddata.util.Validate.notEmpty;
+import static com.gooddata.util.Validate.notNull;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.springframework.http.HttpMethod.GET;
+
+/**
+ * Downloads a resource to a file through a direct buffer. When the connection drops, the download is resumed
+ * by HTTP range request from the last written byte. The final file size is checked against the size announced
+ * by the server.
+ */
+class FileDownload implements RequestCallback, ResponseExtractor<Void> {
+
+    static final int MAX_RESUMES = 5;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long UNKNOWN = -1;
+
+    private final RestTemplate restTemplate;
+    private final String uri;
+    private final Path target;
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long offset;
+    private long expectedSize = UNKNOWN;
+    private IOException writeFailure;
+
+    FileDownload(final RestTemplate restTemplate, final String uri, final Path target) {
+        this.restTemplate = notNull(restTemplate, "restTemplate");
+        this.uri = notEmpty(uri, "uri");
+        this.target = notNull(target, "target");
+    }
+
+    /**
+     * Downloads the resource, the target file is replaced
+     *
+     * @return number of downloaded bytes
+     * @throws GoodDataException when the download fails even after resuming
+     */
+    long download() {
+        try (FileChannel fileChannel = FileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            channel = fileChannel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            int resumes = 0;
+            while (true) {
+                final long before = offset;
+                try {
+                    restTemplate.execute(uri, GET, this, this);
+                } catch (ResourceAccessException e) {
+                    if (writeFailure != null) {
+                        throw new GoodDataException("Unable to write " + target, writeFailure);
+                    }
+                    if (resumes++ >= MAX_RESUMES) {
+                        throw new GoodDataException("Unable to download " + uri, e);
+                    }
+                    continue;
+                }
+                if (expectedSize == UNKNOWN || offset == expectedSize) {
+                    return offset;
+                }
+                if (offset > expectedSize || offset == before || resumes++ >= MAX_RESUMES) {
+                    throw new GoodDataException("Downloaded size of " + uri + " " + offset
+                            + " doesn't match expected size " + expectedSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new GoodDataException("Unable to write " + target, e);
+        } catch (RestClientException e) {
+            throw new GoodDataException("Unable to download " + uri, e);
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void doWithRequest(final ClientHttpRequest request) throws IOException {
+        if (offset > 0) {
+            request.getHeaders().set("Range", "bytes=" + offset + "-");
+        }
+    }
+
+    @Override
+    public Void extractData(final ClientHttpResponse response) throws IOException {
+        final long contentLength = response.getHeaders().getContentLength();
+        if (HttpStatus.PARTIAL_CONTENT.equals(response.getStatusCode())) {
+            final String contentRange = response.getHeaders().getFirst("Content-Range");
+            if (contentRange == null || parseRangeStart(contentRange) != offset) {
+                throw new IOException("Unexpected content range " + contentRange + ", expected from " + offset);
+            }
+            final long total = parseRangeTotal(contentRange);
+            expectedSize = total != UNKNOWN ? total : (contentLength >= 0 ? offset + contentLength : UNKNOWN);
+        } else {
+            // server ignored the range, start over
+            offset = 0;
+            truncate();
+            expectedSize = contentLength >= 0 ? contentLength : UNKNOWN;
+        }
+
+        try (InputStream body = response.getBody()) {
+            if (body == null) {
+                return null;
+            }
+            final ReadableByteChannel source = Channels.newChannel(body);
+            buffer.clear();
+            try {
+                while (source.read(buffer) != -1) {
+                    if (!buffer.hasRemaining()) {
+                        flush();
+                    }
+                }
+            } finally {
+                // keep also the bytes received before the connection dropped
+                if (writeFailure == null) {
+                    flush();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+        } catch (IOException e) {
+            writeFailure = e;
+            throw e;
+        }
+        buffer.clear();
+    }
+
+    private void truncate() throws IOException {
+        try {
+            channel.truncate(0);
+        } catch (IOException e) {
+            writeFailure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Parses start of the range from <code>Content-Range</code> header (<code>bytes start-end/total</code>)
+     */
+    static long parseRangeStart(final String contentRange) throws IOException {
+        final int space = contentRange.indexOf(' ');
+        final int dash = contentRange.indexOf('-', space + 1);
+        if (dash < 0) {
+            throw new IOException("Malformed content range " + contentRange);
+        }
+        try {
+            return Long.parseLong(contentRange.substring(space + 1, dash).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed content range " + contentRange, e);
+        }
+    }
+
+    /**
+     * Parses total length from <code>Content-Range</code> header
+     *
+     * @return total length or {@link #UNKNOWN} when the header contains <code>*</code>
+     */
+    static long parseRangeTotal(final String contentRange) throws IOException {
+        final int slash = contentRange.indexOf('/');
+        if (slash < 0) {
+            throw new IOException("Malformed content range " + contentRange);
+        }
+        final String total = contentRange.substring(slash + 1).trim();
+        if ("*".equals(total)) {
+            return UNKNOWN;
+        }
+        try {
+            return Long.parseLong(total);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed content range " + contentRange, e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Single level of report result row or column headers (usually one attribute), dictionary encoded: every distinct
+ * header element is stored once and each row (or column) refers to it by a code. Slices share the codes and
+ * the dictionary with the header they were created from.
+ */
+public final class HeaderColumn {
+
+    private final String[] ids;
+    private final String[] labels;
+    private final int dictionarySize;
+    private final int[] codes;
+    private final int offset;
+    private final int size;
+
+    private HeaderColumn(final String[] ids, final String[] labels, final int dictionarySize, final int[] codes,
+                         final int offset, final int size) {
+        this.ids = ids;
+        this.labels = labels;
+        this.dictionarySize = dictionarySize;
+        this.codes = codes;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * @return number of rows (or columns) of the header
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index row (or column) index
+     * @return dictionary code of the header element
+     */
+    public int getCode(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return codes[offset + index];
+    }
+
+    /**
+     * @param index row (or column) index
+     * @return id of the header element
+     */
+    public String getId(final int index) {
+        return ids[getCode(index)];
+    }
+
+    /**
+     * @param index row (or column) index
+     * @return label of the header element
+     */
+    public String getLabel(final int index) {
+        return labels[getCode(index)];
+    }
+
+    /**
+     * @return number of distinct header elements
+     */
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    /**
+     * @param code dictionary code
+     * @return label of the header element with given code
+     */
+    public String getDictionaryLabel(final int code) {
+        if (code < 0 || code >= dictionarySize) {
+            throw new IndexOutOfBoundsException("Code " + code + ", dictionary size " + dictionarySize);
+        }
+        return labels[code];
+    }
+
+    /**
+     * Returns view of the given range of rows (or columns), nothing is copied
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return slice of the header
+     */
+    public HeaderColumn slice(final int from, final int to) {
+        MetricColumn.checkRange(from, to, size);
+        return new HeaderColumn(ids, labels, dictionarySize, codes, offset + from, to - from);
+    }
+
+    /**
+     * Builds the header element by element
+     */
+    public static class Builder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private String[] ids = new String[16];
+        private String[] labels = new String[16];
+        private int[] codes = new int[16];
+        private int size;
+
+        /**
+         * Appends header element of the next row (or column)
+         *
+         * @param id    element id
+         * @param label element label, may be set later by {@link #label(String, String)}
+         * @return this builder
+         */
+        public Builder add(final String id, final String label) {
+            notNull(id, "id");
+            Integer code = dictionary.get(id);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(id, code);
+                if (code == ids.length) {
+                    ids = Arrays.copyOf(ids, code * 2);
+                    labels = Arrays.copyOf(labels, code * 2);
+                }
+                ids[code] = id;
+            }
+            if (label != null) {
+                labels[code] = label;
+            }
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            codes[size++] = code;
+            return this;
+        }
+
+        /**
+         * Sets label of the element with given id, when the element was already added
+         *
+         * @param id    element id
+         * @param label element label
+         * @return this builder
+         */
+        public Builder label(final String id, final String label) {
+            final Integer code = dictionary.get(id);
+            if (code != null) {
+                labels[code] = label;
+            }
+            return this;
+        }
+
+        /**
+         * @return number of added elements
+         */
+        public int size() {
+            return size;
+        }
+
+        public HeaderColumn build() {
+            return new HeaderColumn(ids, labels, dictionary.size(), codes, 0, size);
+        }
+    }
+}
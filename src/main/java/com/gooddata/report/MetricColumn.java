@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import java.util.Arrays;
+
+/**
+ * Column of report result values backed by a primitive array. Missing values are {@link Double#NaN}.
+ * Slices share the array with the column they were created from.
+ */
+public final class MetricColumn {
+
+    private final double[] values;
+    private final int offset;
+    private final int size;
+
+    MetricColumn(final double[] values, final int offset, final int size) {
+        this.values = values;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * @return number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index value index
+     * @return value, {@link Double#NaN} when missing
+     */
+    public double get(final int index) {
+        return values[offset + checkIndex(index)];
+    }
+
+    /**
+     * @param index value index
+     * @return true if the value is missing
+     */
+    public boolean isMissing(final int index) {
+        return Double.isNaN(get(index));
+    }
+
+    /**
+     * @return sum of the values, missing values are skipped
+     */
+    public double sum() {
+        double sum = 0;
+        for (int i = offset; i < offset + size; i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return copy of the values
+     */
+    public double[] toArray() {
+        return Arrays.copyOfRange(values, offset, offset + size);
+    }
+
+    /**
+     * Returns view of the given range of values, the values are not copied
+     *
+     * @param from first index (inclusive)
+     * @param to   last index (exclusive)
+     * @return slice of the column
+     */
+    public MetricColumn slice(final int from, final int to) {
+        checkRange(from, to, size);
+        return new MetricColumn(values, offset + from, to - from);
+    }
+
+    private int checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return index;
+    }
+
+    static void checkRange(final int from, final int to, final int size) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + ", size " + size);
+        }
+    }
+}
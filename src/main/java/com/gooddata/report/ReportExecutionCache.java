@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.md.report.Report;
+import com.gooddata.md.report.ReportDefinition;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * In-memory cache of report execution results shared by exports of the same report or report definition,
+ * so exports to several formats execute the report only once. Results of reports are keyed by the report URI,
+ * results of report definitions by hash of the definition content. Cached results expire after given time
+ * (the underlying data may change meanwhile) and the least recently used results are evicted when the total size
+ * of cached results exceeds the limit. Concurrent exports of the same report wait for a single execution.
+ * <p>
+ * The cache is thread-safe, it's enabled by {@link com.gooddata.GoodDataSettings#setReportExecutionCacheTtlSeconds}.
+ */
+public class ReportExecutionCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, FutureTask<byte[]>> executing = new HashMap<>();
+    private long bytes;
+
+    /**
+     * Creates empty cache
+     *
+     * @param ttl      how long the execution results are cached
+     * @param unit     unit of the ttl
+     * @param maxBytes maximum total size of cached execution results
+     */
+    public ReportExecutionCache(final long ttl, final TimeUnit unit, final long maxBytes) {
+        notNull(unit, "unit");
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.ttlMillis = unit.toMillis(ttl);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Removes cached execution result of the given report
+     *
+     * @param report report
+     */
+    public synchronized void invalidate(final Report report) {
+        remove(keyOf(notNull(report, "report")));
+    }
+
+    /**
+     * Removes cached execution result of the given report definition
+     *
+     * @param reportDefinition report definition
+     */
+    public synchronized void invalidate(final ReportDefinition reportDefinition) {
+        remove(keyOf(notNull(reportDefinition, "reportDefinition")));
+    }
+
+    /**
+     * Removes all cached execution results
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Number of cached execution results, including the expired ones not evicted yet
+     *
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Total size of cached execution results
+     *
+     * @return size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns cached execution result or executes the report and caches its result. When the same key is being
+     * executed by another thread, waits for its result instead.
+     *
+     * @param key       cache key
+     * @param execution executes the report
+     * @return execution result
+     */
+    byte[] get(final String key, final Callable<byte[]> execution) {
+        final FutureTask<byte[]> task;
+        final boolean owner;
+        synchronized (this) {
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expires > System.currentTimeMillis()) {
+                    return entry.result;
+                }
+                remove(key);
+            }
+            final FutureTask<byte[]> running = executing.get(key);
+            owner = running == null;
+            task = owner ? new FutureTask<>(execution) : running;
+            if (owner) {
+                executing.put(key, task);
+            }
+        }
+
+        if (owner) {
+            task.run();
+        }
+        try {
+            final byte[] result = task.get();
+            if (owner) {
+                put(key, result);
+            }
+            return result;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GoodDataException) {
+                throw (GoodDataException) e.getCause();
+            }
+            throw new ReportException("Unable to execute report", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GoodDataException("interrupted");
+        } finally {
+            if (owner) {
+                synchronized (this) {
+                    executing.remove(key);
+                }
+            }
+        }
+    }
+
+    private synchronized void put(final String key, final byte[] result) {
+        remove(key);
+        if (result.length > maxBytes) {
+            return;
+        }
+        entries.put(key, new Entry(result, System.currentTimeMillis() + ttlMillis));
+        bytes += result.length;
+        final long now = System.currentTimeMillis();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && bytes > maxBytes; ) {
+            final Entry entry = it.next();
+            it.remove();
+            bytes -= entry.result.length;
+        }
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            final Entry entry = it.next();
+            if (entry.expires <= now) {
+                it.remove();
+                bytes -= entry.result.length;
+            }
+        }
+    }
+
+    private void remove(final String key) {
+        final Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.result.length;
+        }
+    }
+
+    static String keyOf(final Report report) {
+        return "report:" + report.getUri();
+    }
+
+    static String keyOf(final ReportDefinition reportDefinition) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] hash = digest.digest(MAPPER.writeValueAsBytes(reportDefinition));
+            final char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+            }
+            return "definition:" + new String(hex);
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new ReportException("Unable to compute hash of report definition", e);
+        }
+    }
+
+    private static class Entry {
+        private final byte[] result;
+        private final long expires;
+
+        private Entry(final byte[] result, final long expires) {
+            this.result = result;
+            this.expires = expires;
+        }
+    }
+}
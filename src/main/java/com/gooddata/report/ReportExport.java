@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import com.gooddata.md.Obj;
+import com.gooddata.md.report.Report;
+import com.gooddata.md.report.ReportDefinition;
+
+import java.io.OutputStream;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Single export of a report or report definition for {@link ReportService#exportReports}.
+ */
+public class ReportExport {
+
+    private final Report report;
+    private final ReportDefinition reportDefinition;
+    private final ReportRequest request;
+    private final String uri;
+    private final ReportExportFormat format;
+    private final OutputStream output;
+
+    /**
+     * Creates export of the given report
+     *
+     * @param report report
+     * @param format export format
+     * @param output target
+     */
+    public ReportExport(final Report report, final ReportExportFormat format, final OutputStream output) {
+        this(notNull(report, "report"), null, new ExecuteReport(report.getUri()), report.getUri(), format, output);
+    }
+
+    /**
+     * Creates export of the given report definition
+     *
+     * @param reportDefinition report definition
+     * @param format           export format
+     * @param output           target
+     */
+    public ReportExport(final ReportDefinition reportDefinition, final ReportExportFormat format,
+                        final OutputStream output) {
+        this(null, notNull(reportDefinition, "reportDefinition"), new ExecuteDefinition(reportDefinition.getUri()),
+                reportDefinition.getUri(), format, output);
+    }
+
+    private ReportExport(final Report report, final ReportDefinition reportDefinition, final ReportRequest request,
+                         final String uri, final ReportExportFormat format, final OutputStream output) {
+        this.report = report;
+        this.reportDefinition = reportDefinition;
+        this.request = request;
+        this.uri = uri;
+        this.format = notNull(format, "format");
+        this.output = notNull(output, "output");
+    }
+
+    /**
+     * URI of the exported report or report definition
+     *
+     * @return URI
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    public ReportExportFormat getFormat() {
+        return format;
+    }
+
+    public OutputStream getOutput() {
+        return output;
+    }
+
+    Report getReport() {
+        return report;
+    }
+
+    ReportDefinition getReportDefinition() {
+        return reportDefinition;
+    }
+
+    ReportRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return id of the project the exported object belongs to, or its URI when it can't be determined
+     */
+    String getProjectId() {
+        if (Obj.OBJ_TEMPLATE.matches(uri)) {
+            return Obj.OBJ_TEMPLATE.match(uri).get("projectId");
+        }
+        return uri;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportExport{uri=" + uri + ", format=" + format + "}";
+    }
+}
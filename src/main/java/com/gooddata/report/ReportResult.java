@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import org.codehaus.jackson.map.annotate.JsonDeserialize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.gooddata.util.Validate.notNull;
+
+/**
+ * Data grid of the report execution result stored column by column: every grid column is a primitive
+ * {@link MetricColumn}, row and column headers are dictionary encoded {@link HeaderColumn}s (one per header level).
+ * Missing values are {@link Double#NaN}. Slices share the underlying arrays, nothing is copied.
+ * <p>
+ * Instances are immutable and may be shared between threads.
+ */
+@JsonDeserialize(using = ReportResultDeserializer.class)
+public final class ReportResult {
+
+    private final MetricColumn[] columns;
+    private final int rowCount;
+    private final List<HeaderColumn> rowHeaders;
+    private final List<HeaderColumn> columnHeaders;
+
+    private ReportResult(final MetricColumn[] columns, final int rowCount, final List<HeaderColumn> rowHeaders,
+                         final List<HeaderColumn> columnHeaders) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.rowHeaders = Collections.unmodifiableList(rowHeaders);
+        this.columnHeaders = Collections.unmodifiableList(columnHeaders);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param row    row index
+     * @param column column index
+     * @return value of the cell, {@link Double#NaN} when missing
+     */
+    public double get(final int row, final int column) {
+        return getColumn(column).get(row);
+    }
+
+    /**
+     * @param column column index
+     * @return values of the column
+     */
+    public MetricColumn getColumn(final int column) {
+        if (column < 0 || column >= columns.length) {
+            throw new IndexOutOfBoundsException("Column " + column + ", column count " + columns.length);
+        }
+        return columns[column];
+    }
+
+    /**
+     * Row headers, one for each header level, each of {@link #getRowCount()} size
+     *
+     * @return row headers
+     */
+    public List<HeaderColumn> getRowHeaders() {
+        return rowHeaders;
+    }
+
+    /**
+     * Column headers, one for each header level, each of {@link #getColumnCount()} size
+     *
+     * @return column headers
+     */
+    public List<HeaderColumn> getColumnHeaders() {
+        return columnHeaders;
+    }
+
+    /**
+     * Returns view of the given range of rows, nothing is copied
+     *
+     * @param fromRow first row (inclusive)
+     * @param toRow   last row (exclusive)
+     * @return slice of the result
+     */
+    public ReportResult slice(final int fromRow, final int toRow) {
+        MetricColumn.checkRange(fromRow, toRow, rowCount);
+        final MetricColumn[] sliced = new MetricColumn[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            sliced[i] = columns[i].slice(fromRow, toRow);
+        }
+        final List<HeaderColumn> slicedHeaders = new ArrayList<>(rowHeaders.size());
+        for (HeaderColumn header : rowHeaders) {
+            slicedHeaders.add(header.slice(fromRow, toRow));
+        }
+        return new ReportResult(sliced, toRow - fromRow, slicedHeaders, columnHeaders);
+    }
+
+    @Override
+    public String toString() {
+        return "ReportResult{rows=" + rowCount + ", columns=" + columns.length + "}";
+    }
+
+    /**
+     * Builds the result row by row, values are stored directly to the column arrays, so the builder can build
+     * only one result
+     */
+    public static class Builder {
+
+        private final List<HeaderColumn> rowHeaders = new ArrayList<>();
+        private final List<HeaderColumn> columnHeaders = new ArrayList<>();
+        private double[][] columns;
+        private int rowCount;
+        private boolean built;
+
+        /**
+         * Appends a row, all rows must have the same number of values
+         *
+         * @param values row values, {@link Double#NaN} for missing ones
+         * @return this builder
+         */
+        public Builder addRow(final double... values) {
+            notNull(values, "values");
+            checkNotBuilt();
+            if (columns == null) {
+                columns = new double[values.length][16];
+            } else if (values.length != columns.length) {
+                throw new IllegalArgumentException("Row " + rowCount + " has " + values.length
+                        + " values, expected " + columns.length);
+            }
+            if (columns.length > 0 && rowCount == columns[0].length) {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = Arrays.copyOf(columns[i], rowCount * 2);
+                }
+            }
+            for (int i = 0; i < values.length; i++) {
+                columns[i][rowCount] = values[i];
+            }
+            rowCount++;
+            return this;
+        }
+
+        /**
+         * Adds next level of row headers
+         *
+         * @param header row header of the size of row count
+         * @return this builder
+         */
+        public Builder addRowHeader(final HeaderColumn header) {
+            rowHeaders.add(notNull(header, "header"));
+            return this;
+        }
+
+        /**
+         * Adds next level of column headers
+         *
+         * @param header column header of the size of column count
+         * @return this builder
+         */
+        public Builder addColumnHeader(final HeaderColumn header) {
+            columnHeaders.add(notNull(header, "header"));
+            return this;
+        }
+
+        /**
+         * Builds the result, the builder can't be used anymore
+         *
+         * @return built result
+         * @throws IllegalStateException when the headers don't match the data or the result was already built
+         */
+        public ReportResult build() {
+            checkNotBuilt();
+            final int columnCount = columns == null ? 0 : columns.length;
+            for (HeaderColumn header : rowHeaders) {
+                if (header.size() != rowCount) {
+                    throw new IllegalStateException("Row header size " + header.size() + " doesn't match row count "
+                            + rowCount);
+                }
+            }
+            for (HeaderColumn header : columnHeaders) {
+                if (header.size() != columnCount) {
+                    throw new IllegalStateException("Column header size " + header.size()
+                            + " doesn't match column count " + columnCount);
+                }
+            }
+            final MetricColumn[] result = new MetricColumn[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                result[i] = new MetricColumn(columns[i], 0, rowCount);
+            }
+            columns = null;
+            built = true;
+            return new ReportResult(result, rowCount, new ArrayList<>(rowHeaders), new ArrayList<>(columnHeaders));
+        }
+
+        private void checkNotBuilt() {
+            if (built) {
+                throw new IllegalStateException("Result was already built, the builder can't be reused");
+            }
+        }
+    }
+}
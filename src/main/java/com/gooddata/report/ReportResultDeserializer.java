@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the data grid of report execution result ({@code xtab_data}) token by token directly into
+ * {@link ReportResult.Builder}, so no tree or boxed values are created for the grid cells. Fields of the grid
+ * may come in any order.
+ */
+class ReportResultDeserializer extends JsonDeserializer<ReportResult> {
+
+    static final String ROOT_NODE = "xtab_data";
+
+    @Override
+    public ReportResult deserialize(final JsonParser jp, final DeserializationContext context) throws IOException {
+        if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(jp, jp.getCurrentToken(), JsonToken.START_OBJECT);
+        ReportResult result = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            jp.nextToken();
+            if (ROOT_NODE.equals(field)) {
+                result = readGrid(jp);
+            } else {
+                jp.skipChildren();
+            }
+        }
+        if (result == null) {
+            throw new JsonParseException("Missing " + ROOT_NODE + " node", jp.getCurrentLocation());
+        }
+        return result;
+    }
+
+    private static ReportResult readGrid(final JsonParser jp) throws IOException {
+        expect(jp, jp.getCurrentToken(), JsonToken.START_OBJECT);
+        final ReportResult.Builder builder = new ReportResult.Builder();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken token = jp.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "data":
+                    readData(jp, builder);
+                    break;
+                case "rows":
+                    for (HeaderColumn header : readHeaders(jp)) {
+                        builder.addRowHeader(header);
+                    }
+                    break;
+                case "columns":
+                    for (HeaderColumn header : readHeaders(jp)) {
+                        builder.addColumnHeader(header);
+                    }
+                    break;
+                default:
+                    jp.skipChildren();
+            }
+        }
+        try {
+            return builder.build();
+        } catch (IllegalStateException e) {
+            throw new JsonParseException(e.getMessage(), jp.getCurrentLocation(), e);
+        }
+    }
+
+    private static void readData(final JsonParser jp, final ReportResult.Builder builder) throws IOException {
+        expect(jp, jp.getCurrentToken(), JsonToken.START_ARRAY);
+        double[] buffer = new double[16];
+        double[] row = null;
+        while (jp.nextToken() != JsonToken.END_ARRAY) {
+            expect(jp, jp.getCurrentToken(), JsonToken.START_ARRAY);
+            int size = 0;
+            JsonToken token;
+            while ((token = jp.nextToken()) != JsonToken.END_ARRAY) {
+                if (size == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, size * 2);
+                }
+                buffer[size++] = readValue(jp, token);
+            }
+            if (row == null || row.length != size) {
+                row = new double[size];
+            }
+            System.arraycopy(buffer, 0, row, 0, size);
+            try {
+                builder.addRow(row);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException(e.getMessage(), jp.getCurrentLocation(), e);
+            }
+        }
+    }
+
+    private static double readValue(final JsonParser jp, final JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return jp.getDoubleValue();
+            case VALUE_NULL:
+                return Double.NaN;
+            case VALUE_STRING:
+                final String text = jp.getText().trim();
+                if (text.isEmpty()) {
+                    return Double.NaN;
+                }
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException("Invalid value " + text, jp.getCurrentLocation(), e);
+                }
+            default:
+                throw new JsonParseException("Unexpected value " + token, jp.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Reads header tree and its lookups (labels of the tree node ids, one map for each level)
+     */
+    private static List<HeaderColumn> readHeaders(final JsonParser jp) throws IOException {
+        expect(jp, jp.getCurrentToken(), JsonToken.START_OBJECT);
+        final List<HeaderColumn.Builder> levels = new ArrayList<>();
+        final List<Map<String, String>> lookups = new ArrayList<>();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken token = jp.nextToken();
+            if ("tree".equals(field) && token == JsonToken.START_OBJECT) {
+                readNode(jp, -1, levels);
+            } else if ("lookups".equals(field) && token == JsonToken.START_ARRAY) {
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    lookups.add(readLookup(jp));
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+
+        final List<HeaderColumn> headers = new ArrayList<>(levels.size());
+        for (int i = 0; i < levels.size(); i++) {
+            if (i < lookups.size()) {
+                for (Map.Entry<String, String> label : lookups.get(i).entrySet()) {
+                    levels.get(i).label(label.getKey(), label.getValue());
+                }
+            }
+            headers.add(levels.get(i).build());
+        }
+        return headers;
+    }
+
+    private static Map<String, String> readLookup(final JsonParser jp) throws IOException {
+        final Map<String, String> lookup = new HashMap<>();
+        if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+            jp.skipChildren();
+            return lookup;
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String id = jp.getCurrentName();
+            jp.nextToken();
+            lookup.put(id, jp.getText());
+        }
+        return lookup;
+    }
+
+    /**
+     * Reads tree node and its subtree, the leaves are the grid rows (or columns). Node id is added to its level once
+     * for every leaf below the node when the whole node is read, so the id may come after the children.
+     *
+     * @return number of leaves of the node
+     */
+    private static int readNode(final JsonParser jp, final int depth, final List<HeaderColumn.Builder> levels)
+            throws IOException {
+        expect(jp, jp.getCurrentToken(), JsonToken.START_OBJECT);
+        String id = null;
+        int leaves = 0;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = jp.getCurrentName();
+            final JsonToken token = jp.nextToken();
+            if ("id".equals(field) && token != JsonToken.VALUE_NULL) {
+                id = jp.getText();
+            } else if ("children".equals(field) && token == JsonToken.START_ARRAY) {
+                while (jp.nextToken() != JsonToken.END_ARRAY) {
+                    leaves += readNode(jp, depth + 1, levels);
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+        if (leaves == 0) {
+            leaves = 1;
+        }
+        if (depth >= 0) {
+            if (id == null) {
+                throw new JsonParseException("Missing id of header node", jp.getCurrentLocation());
+            }
+            while (levels.size() <= depth) {
+                levels.add(new HeaderColumn.Builder());
+            }
+            for (int i = 0; i < leaves; i++) {
+                levels.get(depth).add(id, null);
+            }
+        }
+        return leaves;
+    }
+
+    private static void expect(final JsonParser jp, final JsonToken actual, final JsonToken expected)
+            throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException("Expected " + expected + " but was " + actual, jp.getCurrentLocation());
+        }
+    }
+}
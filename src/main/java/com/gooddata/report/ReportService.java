@@ -4,6 +4,7 @@
 package com.gooddata.report;
 
 import com.gooddata.AbstractService;
+import com.gooddata.BulkExecutor;
 import com.gooddata.FutureResult;
 import com.gooddata.PollResult;
 import com.gooddata.GoodDataException;
@@ -12,30 +13,67 @@ import com.gooddata.SimplePollHandler;
 import com.gooddata.gdc.UriResponse;
 import com.gooddata.md.report.Report;
 import com.gooddata.md.report.ReportDefinition;
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.node.ObjectNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.gooddata.util.Validate.noNullElements;
 import static com.gooddata.util.Validate.notNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
 
 /**
- * Service for report export
+ * Service for report export and reading of report results
  */
 public class ReportService extends AbstractService {
 
     public static final String EXPORTING_URI = "/gdc/exporter/executor";
 
+    private static final String DATA_RESULT_FIELD = "dataResult";
+    private static final byte[] NULL_RESULT = "null".getBytes(UTF_8);
+    private static final byte[] EXPORT_REQUEST_SUFFIX = "}}".getBytes(UTF_8);
+    private static final long MIN_POLL_INTERVAL_MILLIS = 100;
+
+    private final ReportExecutionCache executionCache;
+
     public ReportService(final RestTemplate restTemplate) {
+        this(restTemplate, null);
+    }
+
+    /**
+     * Creates service sharing report execution results of repeated exports through the given cache
+     * @param restTemplate RESTful HTTP Spring template
+     * @param executionCache cache of execution results, null to execute the report for every export
+     */
+    public ReportService(final RestTemplate restTemplate, final ReportExecutionCache executionCache) {
         super(restTemplate);
+        this.executionCache = executionCache;
     }
 
     /**
@@ -51,7 +89,7 @@ public class ReportService extends AbstractService {
                                            final OutputStream output) {
         notNull(reportDefinition, "reportDefinition");
         final ReportRequest request = new ExecuteDefinition(reportDefinition.getUri());
-        return exportReport(request, format, output);
+        return exportReport(request, getCacheKey(reportDefinition), format, output);
     }
 
     /**
@@ -67,30 +105,151 @@ public class ReportService extends AbstractService {
                                            final OutputStream output) {
         notNull(report, "report");
         final ReportRequest request = new ExecuteReport(report.getUri());
-        return exportReport(request, format, output);
+        return exportReport(request, getCacheKey(report), format, output);
     }
 
-    private FutureResult<Void> exportReport(final ReportRequest request, final ReportExportFormat format, final OutputStream output) {
-        notNull(output, "output");
-        notNull(format, "format");
-        final JsonNode execResult = executeReport(request);
-        final String uri = exportReport(execResult, format);
-        return new PollResult<>(this, new SimplePollHandler<Void>(uri, Void.class) {
+    /**
+     * Export many reports or report definitions with at most given number of exports running concurrently.
+     * Exports are started fairly over the projects they belong to. Report executions and downloads of the exported
+     * reports run on a pool of at most {@code maxConcurrent} worker threads, statuses of all the exports are checked
+     * from a single polling thread. Failed exports are retried when the failure is transient (server error or I/O
+     * failure) and nothing was written to their output yet. Outcomes are streamed as the exports finish
+     * (see {@link BulkExecutor#next()}), exports with no data are reported with {@link NoDataReportException}, other
+     * failures with {@link ReportException}, none of them stops the other exports.
+     *
+     * @param exports       exports to run, each should be used only once
+     * @param maxConcurrent maximum number of exports running concurrently
+     * @param maxAttempts   maximum number of attempts per export, 1 for no retries
+     * @return closed executor streaming outcomes of the exports
+     */
+    public BulkExecutor<ReportExport, Void> exportReports(final Collection<ReportExport> exports,
+                                                         final int maxConcurrent, final int maxAttempts) {
+        noNullElements(exports, "exports");
+        final Map<ReportExport, TrackingOutputStream> outputs = new IdentityHashMap<>();
+        for (ReportExport export : exports) {
+            outputs.put(export, new TrackingOutputStream(export.getOutput()));
+        }
+        final BulkExecutor<ReportExport, Void> executor =
+                new BulkExecutor<ReportExport, Void>("report-exports", maxConcurrent, maxAttempts) {
+                    @Override
+                    protected boolean isRetryable(final ReportExport export, final GoodDataException failure) {
+                        return !outputs.get(export).written && super.isRetryable(export, failure);
+                    }
+                };
+        final AtomicInteger threads = new AtomicInteger();
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "report-exports-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // idle workers exit, so the pool needs no shutdown when all the exports finish
+        workers.allowCoreThreadTimeOut(true);
+        for (final ReportExport export : exports) {
+            final OutputStream output = outputs.get(export);
+            executor.submit(export.getProjectId(), export, new Callable<FutureResult<Void>>() {
+                @Override
+                public FutureResult<Void> call() {
+                    return new BulkExport(workers, export, output);
+                }
+            });
+        }
+        executor.close();
+        return executor;
+    }
+
+    /**
+     * Export the given report definition in the given format to the given file. The file is written through
+     * a channel, when the download of the exported report fails midway, it's resumed from the last written byte
+     * and the final size is checked against the size announced by the server.
+     * @param reportDefinition report definition
+     * @param format export format
+     * @param target target file, replaced if exists
+     * @return polling result
+     * @throws NoDataReportException in case report contains no data
+     * @throws ReportException on error
+     */
+    public FutureResult<Void> exportReport(final ReportDefinition reportDefinition, final ReportExportFormat format,
+                                           final Path target) {
+        notNull(reportDefinition, "reportDefinition");
+        final ReportRequest request = new ExecuteDefinition(reportDefinition.getUri());
+        return exportReport(request, getCacheKey(reportDefinition), format, target);
+    }
+
+    /**
+     * Export the given report in the given format to the given file. The file is written through a channel,
+     * when the download of the exported report fails midway, it's resumed from the last written byte and the final
+     * size is checked against the size announced by the server.
+     * @param report report
+     * @param format export format
+     * @param target target file, replaced if exists
+     * @return polling result
+     * @throws NoDataReportException in case report contains no data
+     * @throws ReportException on error
+     */
+    public FutureResult<Void> exportReport(final Report report, final ReportExportFormat format, final Path target) {
+        notNull(report, "report");
+        final ReportRequest request = new ExecuteReport(report.getUri());
+        return exportReport(request, getCacheKey(report), format, target);
+    }
+
+    /**
+     * Execute the given report definition and read its data grid into columnar form
+     * @param reportDefinition report definition
+     * @return polling result
+     * @throws NoDataReportException in case report contains no data
+     * @throws ReportException on error
+     */
+    public FutureResult<ReportResult> getReportResult(final ReportDefinition reportDefinition) {
+        notNull(reportDefinition, "reportDefinition");
+        final ReportRequest request = new ExecuteDefinition(reportDefinition.getUri());
+        return getReportResult(request, getCacheKey(reportDefinition));
+    }
+
+    /**
+     * Execute the given report and read its data grid into columnar form
+     * @param report report
+     * @return polling result
+     * @throws NoDataReportException in case report contains no data
+     * @throws ReportException on error
+     */
+    public FutureResult<ReportResult> getReportResult(final Report report) {
+        notNull(report, "report");
+        final ReportRequest request = new ExecuteReport(report.getUri());
+        return getReportResult(request, getCacheKey(report));
+    }
+
+    private FutureResult<ReportResult> getReportResult(final ReportRequest request, final String cacheKey) {
+        final String uri = getDataResultUri(executeReport(request, cacheKey));
+        return new PollResult<>(this, new SimplePollHandler<ReportResult>(uri, ReportResult.class) {
             @Override
-            public boolean isFinished(ClientHttpResponse response) throws IOException {
+            public boolean isFinished(final ClientHttpResponse response) throws IOException {
                 switch (response.getStatusCode()) {
                     case OK: return true;
                     case ACCEPTED: return false;
                     case NO_CONTENT: throw new NoDataReportException();
-                    default: throw new ReportException("Unable to export report, unknown HTTP response code: " + response.getStatusCode());
+                    default: throw new ReportException("Unable to read report result, unknown HTTP response code: "
+                            + response.getStatusCode());
                 }
             }
 
             @Override
             public void handlePollException(final GoodDataRestException e) {
-                throw new ReportException("Unable to export report", e);
+                throw new ReportException("Unable to read report result", e);
             }
+        });
+    }
 
+    private FutureResult<Void> exportReport(final ReportRequest request, final String cacheKey,
+                                            final ReportExportFormat format, final OutputStream output) {
+        notNull(output, "output");
+        notNull(format, "format");
+        final byte[] execResult = executeReport(request, cacheKey);
+        final String uri = exportReport(execResult, format);
+        return new PollResult<>(this, new ExportPollHandler(uri) {
             @Override
             protected void onFinish() {
                 try {
@@ -102,32 +261,276 @@ public class ReportService extends AbstractService {
         });
     }
 
-    private JsonNode executeReport(final ReportRequest request) {
+    private FutureResult<Void> exportReport(final ReportRequest request, final String cacheKey,
+                                            final ReportExportFormat format, final Path target) {
+        notNull(target, "target");
+        notNull(format, "format");
+        final byte[] execResult = executeReport(request, cacheKey);
+        final String uri = exportReport(execResult, format);
+        return new PollResult<>(this, new ExportPollHandler(uri) {
+            @Override
+            protected void onFinish() {
+                try {
+                    new FileDownload(restTemplate, uri, target).download();
+                } catch (GoodDataException | RestClientException e) {
+                    throw new ReportException("Unable to export report", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes the report or returns its cached execution result
+     */
+    private byte[] executeReport(final ReportRequest request, final String cacheKey) {
+        if (executionCache == null) {
+            return executeReport(request);
+        }
+        return executionCache.get(cacheKey, new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return executeReport(request);
+            }
+        });
+    }
+
+    private String getCacheKey(final Report report) {
+        return executionCache == null ? null : ReportExecutionCache.keyOf(report);
+    }
+
+    private String getCacheKey(final ReportDefinition reportDefinition) {
+        return executionCache == null ? null : ReportExecutionCache.keyOf(reportDefinition);
+    }
+
+    private String getCacheKey(final ReportExport export) {
+        return export.getReport() != null ? getCacheKey(export.getReport())
+                : getCacheKey(export.getReportDefinition());
+    }
+
+    /**
+     * Executes the report and returns the execution result as raw JSON bytes. The result is only tokenized to check
+     * it's well-formed, it's never held as a String or a tree.
+     */
+    private byte[] executeReport(final ReportRequest request) {
+        final byte[] execResult;
         try {
-            final ResponseEntity<String> entity = restTemplate
-                    .exchange(ReportRequest.URI, POST, new HttpEntity<>(request), String.class);
-            return mapper.readTree(entity.getBody());
+            final ResponseEntity<byte[]> entity = restTemplate
+                    .exchange(ReportRequest.URI, POST, new HttpEntity<>(request), byte[].class);
+            execResult = entity.getBody();
         } catch (GoodDataException | RestClientException e) {
             throw new ReportException("Unable to execute report", e);
+        }
+        if (execResult == null || execResult.length == 0) {
+            return NULL_RESULT;
+        }
+        try (JsonParser parser = mapper.getJsonFactory().createJsonParser(execResult)) {
+            while (parser.nextToken() != null) {
+                // just check the result is valid JSON
+            }
         } catch (IOException e) {
             throw new ReportException("Unable to read execution result", e);
         }
+        return execResult;
     }
 
-    private String exportReport(final JsonNode execResult, final ReportExportFormat format) {
+    /**
+     * Finds link to the data grid in the execution result
+     */
+    private String getDataResultUri(final byte[] execResult) {
+        try (JsonParser parser = mapper.getJsonFactory().createJsonParser(execResult)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && DATA_RESULT_FIELD.equals(parser.getCurrentName())
+                        && parser.nextToken() == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+            }
+        } catch (IOException e) {
+            throw new ReportException("Unable to read execution result", e);
+        }
+        throw new ReportException("Execution result doesn't contain link to the data result");
+    }
+
+    /**
+     * Posts the export request with the execution result copied verbatim into it
+     */
+    private String exportReport(final byte[] execResult, final ReportExportFormat format) {
         notNull(execResult, "execResult");
         notNull(format, "format");
-        final ObjectNode root = mapper.createObjectNode();
-        final ObjectNode child = mapper.createObjectNode();
-
-        child.put("result", execResult);
-        child.put("format", format.getValue());
-        root.put("result_req", child);
-
         try {
-            return restTemplate.postForObject(EXPORTING_URI, root, UriResponse.class).getUri();
+            final byte[] prefix = ("{\"result_req\":{\"format\":" + mapper.writeValueAsString(format.getValue())
+                    + ",\"result\":").getBytes(UTF_8);
+            final UriResponse response = restTemplate.execute(EXPORTING_URI, POST, new RequestCallback() {
+                @Override
+                public void doWithRequest(final ClientHttpRequest request) throws IOException {
+                    request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    final OutputStream body = request.getBody();
+                    body.write(prefix);
+                    body.write(execResult);
+                    body.write(EXPORT_REQUEST_SUFFIX);
+                }
+            }, new ResponseExtractor<UriResponse>() {
+                @Override
+                public UriResponse extractData(final ClientHttpResponse response) throws IOException {
+                    return ReportService.this.extractData(response, UriResponse.class);
+                }
+            });
+            if (response == null) {
+                throw new ReportException("Unable to export report, empty response");
+            }
+            return response.getUri();
         } catch (GoodDataException | RestClientException e) {
             throw new ReportException("Unable to export report", e);
+        } catch (IOException e) {
+            throw new ReportException("Unable to serialize export request", e);
+        }
+    }
+
+    /**
+     * Export run by {@link #exportReports}. Execution of the report and the export request are started on a worker,
+     * then the export status is polled by the checks ({@link #isDone()}) and the exported report is downloaded
+     * on a worker again, so the polling thread never blocks on the transfers.
+     */
+    private class BulkExport implements FutureResult<Void> {
+
+        private final ExecutorService workers;
+        private final ReportExport export;
+        private final OutputStream output;
+        private final Future<String> start;
+        private PollResult<Void> status;
+        private Future<?> download;
+
+        private BulkExport(final ExecutorService workers, final ReportExport export, final OutputStream output) {
+            this.workers = workers;
+            this.export = export;
+            this.output = output;
+            this.start = workers.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return exportReport(executeReport(export.getRequest(), getCacheKey(export)), export.getFormat());
+                }
+            });
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            if (status == null) {
+                if (!start.isDone()) {
+                    return false;
+                }
+                status = new PollResult<>(ReportService.this, new ExportPollHandler(getResult(start)));
+            }
+            if (download == null) {
+                if (!status.isDone()) {
+                    return false;
+                }
+                final String uri = status.getPollingUri();
+                download = workers.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            restTemplate.execute(uri, GET, noopRequestCallback,
+                                    new OutputStreamResponseExtractor(output));
+                        } catch (GoodDataException | RestClientException e) {
+                            throw new ReportException("Unable to export report", e);
+                        }
+                    }
+                });
+            }
+            if (!download.isDone()) {
+                return false;
+            }
+            getResult(download);
+            return true;
+        }
+
+        @Override
+        public Void get() {
+            return get(0, null);
+        }
+
+        @Override
+        public synchronized Void get(final long timeout, final TimeUnit unit) {
+            final long start = System.currentTimeMillis();
+            long interval = MIN_POLL_INTERVAL_MILLIS;
+            while (!isDone()) {
+                if (unit != null && start + unit.toMillis(timeout) < System.currentTimeMillis()) {
+                    throw new GoodDataException("timeout");
+                }
+                try {
+                    wait(interval);
+                    interval = Math.min(interval * 2, WAIT_BEFORE_RETRY_IN_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GoodDataException("interrupted");
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public synchronized String getPollingUri() {
+            return status == null ? null : status.getPollingUri();
+        }
+
+        private <T> T getResult(final Future<T> future) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof GoodDataException) {
+                    throw (GoodDataException) e.getCause();
+                }
+                throw new ReportException("Unable to export report", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GoodDataException("interrupted");
+            }
+        }
+    }
+
+    private static class ExportPollHandler extends SimplePollHandler<Void> {
+
+        private ExportPollHandler(final String uri) {
+            super(uri, Void.class);
+        }
+
+        @Override
+        public boolean isFinished(ClientHttpResponse response) throws IOException {
+            switch (response.getStatusCode()) {
+                case OK: return true;
+                case ACCEPTED: return false;
+                case NO_CONTENT: throw new NoDataReportException();
+                default: throw new ReportException("Unable to export report, unknown HTTP response code: " + response.getStatusCode());
+            }
+        }
+
+        @Override
+        public void handlePollException(final GoodDataRestException e) {
+            throw new ReportException("Unable to export report", e);
+        }
+    }
+
+    /**
+     * Remembers whether anything was written to the output, so an export isn't retried into a partially written one.
+     */
+    private static class TrackingOutputStream extends FilterOutputStream {
+
+        private volatile boolean written;
+
+        private TrackingOutputStream(final OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            written = true;
+            out.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            written = true;
+            out.write(b, off, len);
         }
     }
 }
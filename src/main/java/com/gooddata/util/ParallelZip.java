@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Zip writer compressing entries concurrently and writing them in the given order. Entries are deflated into
+ * memory by worker threads shared by all the zips, the total size of entries held in memory is limited. Large
+ * entries are streamed to the output by the writing thread. Zip64 extensions are not supported,
+ * see {@link #isSupported(List)}.
+ */
+class ParallelZip {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_TOTAL_SIZE = Integer.MAX_VALUE;
+    private static final int ENTRIES_IN_FLIGHT_PER_THREAD = 4;
+    private static final long MAX_IN_FLIGHT_BYTES = 32 * 1024 * 1024;
+    private static final long MAX_IN_MEMORY_ENTRY_SIZE = MAX_IN_FLIGHT_BYTES / 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadPoolExecutor WORKERS = createWorkers();
+
+    private final OutputStream output;
+    private final ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Entry> written = new ArrayList<>();
+    private long offset;
+
+    private ParallelZip(final OutputStream output) {
+        this.output = output;
+    }
+
+    private static ThreadPoolExecutor createWorkers() {
+        final AtomicInteger threads = new AtomicInteger();
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "parallel-zip-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        // idle workers exit, so the shared pool needs no shutdown
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /**
+     * @return true if the files can be zipped without zip64 extensions
+     */
+    static boolean isSupported(final List<Path> files) throws IOException {
+        if (files.size() > MAX_ENTRIES) {
+            return false;
+        }
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+            if (total > MAX_TOTAL_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Zips given files into the output, the output is closed. At most parallelism entries (limited also by the
+     * number of processors) are compressed concurrently and at most {@link #MAX_IN_FLIGHT_BYTES} of entries
+     * are held in memory.
+     */
+    static void zip(final Path rootPath, final List<Path> files, final OutputStream output, final int level,
+                    final int parallelism) throws IOException {
+        final Deque<InFlight> inFlight = new ArrayDeque<>();
+        try (OutputStream out = output) {
+            final ParallelZip zip = new ParallelZip(out);
+            final int maxInFlight = Math.min(parallelism, MAX_THREADS) * ENTRIES_IN_FLIGHT_PER_THREAD;
+            long inFlightBytes = 0;
+            int next = 0;
+            while (next < files.size() || !inFlight.isEmpty()) {
+                while (next < files.size() && inFlight.size() < maxInFlight) {
+                    final Path file = files.get(next);
+                    final long size = Files.size(file);
+                    if (size > MAX_IN_MEMORY_ENTRY_SIZE
+                            || (!inFlight.isEmpty() && inFlightBytes + size > MAX_IN_FLIGHT_BYTES)) {
+                        break;
+                    }
+                    inFlight.add(new InFlight(size, WORKERS.submit(new Callable<Entry>() {
+                        @Override
+                        public Entry call() throws IOException {
+                            return compress(rootPath, file, level, size);
+                        }
+                    })));
+                    inFlightBytes += size;
+                    next++;
+                }
+                if (inFlight.isEmpty()) {
+                    // all the previous entries are written, so the large one can go directly to the output
+                    zip.writeStreamed(rootPath, files.get(next++), level);
+                } else {
+                    final InFlight entry = inFlight.poll();
+                    zip.write(await(entry.future));
+                    inFlightBytes -= entry.size;
+                }
+            }
+            zip.finish();
+        } finally {
+            for (InFlight entry : inFlight) {
+                entry.future.cancel(true);
+            }
+        }
+    }
+
+    private static Entry await(final Future<Entry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to compress", e.getCause());
+        }
+    }
+
+    /**
+     * Compresses the file into memory
+     */
+    static Entry compress(final Path rootPath, final Path file, final int level, final long size) throws IOException {
+        final Entry entry = new Entry(rootPath.relativize(file).toString(), Files.getLastModifiedTime(file).toMillis());
+        final int bufferSize = (int) Math.min(BUFFER_SIZE, Math.max(64, size));
+        final ExposedByteArrayOutputStream data = new ExposedByteArrayOutputStream(
+                (int) Math.max(64, level == ZipHelper.STORED ? size : size / 2));
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = level == ZipHelper.STORED ? null : new Deflater(level, true);
+        try (InputStream input = Files.newInputStream(file)) {
+            entry.size = copy(input, data, deflater, crc, bufferSize);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        entry.crc = crc.getValue();
+        entry.method = deflater == null ? METHOD_STORED : METHOD_DEFLATED;
+        entry.data = data.array();
+        entry.dataLength = data.size();
+        return entry;
+    }
+
+    /**
+     * Copies the input to the output, deflating it when the deflater is given
+     *
+     * @return number of bytes read from the input
+     */
+    private static long copy(final InputStream input, final OutputStream output, final Deflater deflater,
+                             final CRC32 crc, final int bufferSize) throws IOException {
+        final byte[] buffer = new byte[bufferSize];
+        final byte[] deflated = deflater == null ? null : new byte[bufferSize];
+        long size = 0;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            size += read;
+            if (deflater == null) {
+                output.write(buffer, 0, read);
+            } else {
+                deflater.setInput(buffer, 0, read);
+                while (!deflater.needsInput()) {
+                    output.write(deflated, 0, deflater.deflate(deflated));
+                }
+            }
+        }
+        if (deflater != null) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                output.write(deflated, 0, deflater.deflate(deflated));
+            }
+        }
+        return size;
+    }
+
+    private void write(final Entry entry) throws IOException {
+        writeLocalHeader(entry);
+        writeBytes(entry.data, 0, entry.dataLength);
+        entry.data = null;
+        written.add(entry);
+    }
+
+    /**
+     * Writes the file directly to the output. Stored entry is read twice, as its checksum must precede the data,
+     * deflated entry is followed by data descriptor with its checksum and sizes.
+     */
+    private void writeStreamed(final Path rootPath, final Path file, final int level) throws IOException {
+        final Entry entry = new Entry(rootPath.relativize(file).toString(), Files.getLastModifiedTime(file).toMillis());
+        final CRC32 crc = new CRC32();
+        final OutputStream entryOutput = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] bytes, final int off, final int len) throws IOException {
+                writeBytes(bytes, off, len);
+            }
+        };
+        if (level == ZipHelper.STORED) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream input = Files.newInputStream(file)) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    entry.size += read;
+                }
+            }
+            entry.crc = crc.getValue();
+            entry.method = METHOD_STORED;
+            entry.dataLength = (int) entry.size;
+            writeLocalHeader(entry);
+            try (InputStream input = Files.newInputStream(file)) {
+                if (copy(input, entryOutput, null, new CRC32(), BUFFER_SIZE) != entry.size) {
+                    throw new IOException("File " + file + " changed while being zipped");
+                }
+            }
+        } else {
+            entry.method = METHOD_DEFLATED;
+            entry.flags |= DATA_DESCRIPTOR_FLAG;
+            writeLocalHeader(entry);
+            final long dataOffset = offset;
+            final Deflater deflater = new Deflater(level, true);
+            try (InputStream input = Files.newInputStream(file)) {
+                entry.size = copy(input, entryOutput, deflater, crc, BUFFER_SIZE);
+            } finally {
+                deflater.end();
+            }
+            entry.crc = crc.getValue();
+            entry.dataLength = (int) (offset - dataOffset);
+            header.clear();
+            header.putInt(DATA_DESCRIPTOR_SIGNATURE)
+                    .putInt((int) entry.crc)
+                    .putInt(entry.dataLength)
+                    .putInt((int) entry.size);
+            writeHeader();
+        }
+        written.add(entry);
+    }
+
+    /**
+     * Writes local header, checksum and sizes of entries with data descriptor are written as zeros
+     */
+    private void writeLocalHeader(final Entry entry) throws IOException {
+        final boolean descriptor = (entry.flags & DATA_DESCRIPTOR_FLAG) != 0;
+        entry.offset = offset;
+        header.clear();
+        header.putInt(LOCAL_HEADER_SIGNATURE)
+                .putShort((short) VERSION)
+                .putShort((short) entry.flags)
+                .putShort((short) entry.method)
+                .putInt(entry.dosTime)
+                .putInt(descriptor ? 0 : (int) entry.crc)
+                .putInt(descriptor ? 0 : entry.dataLength)
+                .putInt(descriptor ? 0 : (int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0);
+        writeHeader();
+        writeBytes(entry.name, 0, entry.name.length);
+    }
+
+    private void finish() throws IOException {
+        final long centralOffset = offset;
+        for (Entry entry : written) {
+            header.clear();
+            header.putInt(CENTRAL_HEADER_SIGNATURE)
+                    .putShort((short) VERSION)
+                    .putShort((short) VERSION)
+                    .putShort((short) entry.flags)
+                    .putShort((short) entry.method)
+                    .putInt(entry.dosTime)
+                    .putInt((int) entry.crc)
+                    .putInt(entry.dataLength)
+                    .putInt((int) entry.size)
+                    .putShort((short) entry.name.length)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt((int) entry.offset);
+            writeHeader();
+            writeBytes(entry.name, 0, entry.name.length);
+        }
+        final long centralSize = offset - centralOffset;
+        header.clear();
+        header.putInt(END_SIGNATURE)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) written.size())
+                .putShort((short) written.size())
+                .putInt((int) centralSize)
+                .putInt((int) centralOffset)
+                .putShort((short) 0);
+        writeHeader();
+        output.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        writeBytes(header.array(), 0, header.position());
+    }
+
+    private void writeBytes(final byte[] bytes, final int off, final int length) throws IOException {
+        output.write(bytes, off, length);
+        offset += length;
+    }
+
+    /**
+     * Converts time to MS-DOS date (high 16 bits) and time (low 16 bits) as stored in zip headers.
+     */
+    static int toDosTime(final long time) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        final int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    static class Entry {
+        private final byte[] name;
+        private final int dosTime;
+        private int flags = UTF8_FLAG;
+        private long crc;
+        private long size;
+        private int method;
+        private byte[] data;
+        private int dataLength;
+        private long offset;
+
+        private Entry(final String name, final long time) {
+            this.name = name.getBytes(UTF_8);
+            this.dosTime = toDosTime(time);
+        }
+    }
+
+    /**
+     * Compression task of an entry together with the size of the entry in memory budget
+     */
+    private static class InFlight {
+        private final long size;
+        private final Future<Entry> future;
+
+        private InFlight(final long size, final Future<Entry> future) {
+            this.size = size;
+            this.future = future;
+        }
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ExposedByteArrayOutputStream(final int size) {
+            super(size);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -7,8 +7,20 @@ import org.springframework.util.StreamUtils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -18,6 +30,14 @@ import java.util.zip.ZipOutputStream;
  */
 public abstract class ZipHelper {
 
+    /**
+     * Compression level storing entries without any compression, useful for already compressed files.
+     * Other supported levels are the {@link Deflater} ones ({@link Deflater#DEFAULT_COMPRESSION}, 0-9).
+     */
+    public static final int STORED = -2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * This method compresses the input file to zip format. If the given file is a directory, it recursively
      * packs the directory into the output. Not including given directory itself.
@@ -41,46 +61,118 @@ public abstract class ZipHelper {
      * @throws IOException if zip creation fails
      */
     public static void zip(File file, OutputStream output, boolean includeRoot) throws IOException {
+        zip(file, output, includeRoot, Deflater.DEFAULT_COMPRESSION, 1);
+    }
+
+    /**
+     * This method compresses the input file to zip format. If the given file is a directory, it recursively
+     * packs the directory into the output. If the given file is already zipped, simply copies it into the output.
+     * <p>
+     * With parallelism greater than one, entries are compressed concurrently and written in the order of their
+     * paths, so the output doesn't depend on the number of threads. Compressed entries wait for their turn
+     * in memory, which is limited to a few tens of megabytes, large files are streamed. The threads are shared
+     * by all the zips and their number is limited by the number of processors. Archives which would need zip64
+     * extensions (more than 2GB or 65535 entries) are always compressed sequentially.
+     *
+     * @param file file to be zipped
+     * @param output stream where the output will be written
+     * @param includeRoot if root dir should be included
+     * @param level compression level, {@link #STORED} or {@link Deflater} level
+     * @param parallelism maximum number of entries compressed concurrently
+     * @throws IOException if zip creation fails
+     */
+    public static void zip(File file, OutputStream output, boolean includeRoot, int level, int parallelism)
+            throws IOException {
         notNull(file, "file");
         notNull(output, "output");
+        if (level < STORED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Unsupported compression level " + level);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
 
         if (isZipped(file)) {
             try (FileInputStream fis = new FileInputStream(file)) {
                 StreamUtils.copy(fis, output);
             }
+            return;
+        }
+
+        final Path rootPath;
+        final List<Path> files;
+        if (file.isDirectory()) {
+            rootPath = includeRoot ? file.getParentFile().toPath() : file.toPath();
+            files = listFiles(file.toPath());
+        } else {
+            rootPath = file.getParentFile().toPath();
+            files = Collections.singletonList(file.toPath());
+        }
+
+        if (parallelism > 1 && files.size() > 1 && ParallelZip.isSupported(files)) {
+            ParallelZip.zip(rootPath, files, output, level, parallelism);
         } else {
             try (ZipOutputStream zos = new ZipOutputStream(output)) {
-                if (file.isDirectory()) {
-                    zipDir(includeRoot ? file.getParentFile().toPath() : file.toPath(), file, zos);
-                } else {
-                    zipFile(file.getParentFile().toPath(), file, zos);
+                if (level != STORED) {
+                    zos.setLevel(level);
+                }
+                for (Path path : files) {
+                    zipFile(rootPath, path, level, zos);
                 }
             }
         }
     }
 
-    private static void zipDir(Path rootPath, File dir, ZipOutputStream zos) throws IOException {
-        for (File file : notNull(dir.listFiles(), "listed files")) {
-            if (file.isDirectory()) {
-                zipDir(rootPath, file, zos);
-            } else {
-                zipFile(rootPath, file, zos);
-            }
-        }
+    /**
+     * Lists regular files of the given directory recursively, sorted by their path.
+     */
+    static List<Path> listFiles(final Path dir) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                        if (!attrs.isDirectory()) {
+                            files.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        Collections.sort(files);
+        return files;
     }
 
-    private static void zipFile(Path rootPath, File file, ZipOutputStream zos) throws IOException {
-        ZipEntry ze = new ZipEntry(rootPath.relativize(file.toPath()).toString());
-        zos.putNextEntry(ze);
-        try (FileInputStream fis = new FileInputStream(file)) {
-            StreamUtils.copy(fis, zos);
+    private static void zipFile(Path rootPath, Path file, int level, ZipOutputStream zos) throws IOException {
+        final ZipEntry ze = new ZipEntry(rootPath.relativize(file).toString());
+        if (level == STORED) {
+            ze.setMethod(ZipEntry.STORED);
+            ze.setSize(Files.size(file));
+            ze.setCompressedSize(ze.getSize());
+            ze.setCrc(crc(file));
         }
+        zos.putNextEntry(ze);
+        Files.copy(file, zos);
         zos.closeEntry();
     }
 
+    private static long crc(Path file) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
     private static boolean isZipped(File file) {
-        try {
-            return new ZipInputStream(new FileInputStream(file)).getNextEntry() != null;
+        if (!file.isFile()) {
+            return false;
+        }
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(file))) {
+            return zis.getNextEntry() != null;
         } catch (IOException e) {
             return false;
         }
@@ -12,10 +12,15 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AbstractServiceTest {
@@ -49,4 +54,22 @@ public class AbstractServiceTest {
         PollHandler<?, ?> handler = mock(PollHandler.class);
         service.poll(handler, 5, TimeUnit.SECONDS);
     }
+
+    @Test
+    public void pollOnceShouldNotWaitForAnotherPollingThread() throws Exception {
+        final PollHandler<?, ?> handler = mock(PollHandler.class);
+        final ReentrantLock pollLock = new ReentrantLock();
+        final Thread poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pollLock.lock();
+            }
+        });
+        poller.start();
+        poller.join();
+
+        assertThat(service.pollOnce(handler, pollLock), is(false));
+        verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class),
+                any(ResponseExtractor.class));
+    }
 }
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class BulkExecutorTest {
+
+    @Test
+    public void shouldProcessAllItemsWithBoundedConcurrency() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final BulkExecutor<Integer, Integer> executor = new BulkExecutor<>("test", 3, 1);
+        for (int i = 0; i < 10; i++) {
+            executor.submit("group" + (i % 2), i, new Starter(i, 2, running, maxRunning));
+        }
+
+        final List<BulkOutcome<Integer, Integer>> outcomes = executor.awaitAll();
+
+        assertThat(outcomes.size(), is(10));
+        final List<Integer> results = new ArrayList<>();
+        for (BulkOutcome<Integer, Integer> outcome : outcomes) {
+            assertThat(outcome.isSuccess(), is(true));
+            results.add(outcome.getResult());
+        }
+        Collections.sort(results);
+        assertThat(results.get(0), is(0));
+        assertThat(results.get(9), is(9));
+        assertThat(maxRunning.get(), is(lessThanOrEqualTo(3)));
+        assertThat(executor.next(), is(nullValue()));
+        assertThat(executor.getUnfinishedCount(), is(0));
+    }
+
+    @Test
+    public void shouldNotStartPollingThreadWithoutItems() throws Exception {
+        final BulkExecutor<Integer, Integer> executor = new BulkExecutor<>("empty", 1, 1);
+
+        assertThat(executor.awaitAll().isEmpty(), is(true));
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertThat(thread.getName(), is(not("bulk-empty")));
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void shouldWakeWaitingNextOnClose() throws Exception {
+        final BulkExecutor<String, String> executor = new BulkExecutor<>("wake", 1, 1);
+        executor.submit("group", "item", new Callable<FutureResult<String>>() {
+            @Override
+            public FutureResult<String> call() {
+                return new Blocker("done");
+            }
+        });
+        assertThat(executor.next().getResult(), is("done"));
+
+        final Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                executor.close();
+            }
+        });
+        closer.start();
+        assertThat(executor.next(), is(nullValue()));
+        assertThat(executor.awaitAll().isEmpty(), is(true));
+    }
+
+    @Test(timeOut = 10000)
+    public void shouldFailRemainingItemsWhenPollerInterrupted() throws Exception {
+        final BulkExecutor<String, String> executor = new BulkExecutor<>("interrupted", 1, 1);
+        executor.submit("group", "blocked", new Callable<FutureResult<String>>() {
+            @Override
+            public FutureResult<String> call() {
+                return new Blocker();
+            }
+        });
+        executor.submit("group", "pending", new Recorder("pending", new ArrayList<String>()));
+        Thread poller = null;
+        while (poller == null) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if ("bulk-interrupted".equals(thread.getName())) {
+                    poller = thread;
+                }
+            }
+        }
+        poller.interrupt();
+
+        final List<BulkOutcome<String, String>> outcomes = executor.awaitAll();
+        assertThat(outcomes.size(), is(2));
+        for (BulkOutcome<String, String> outcome : outcomes) {
+            assertThat(outcome.isSuccess(), is(false));
+        }
+    }
+
+    @Test
+    public void shouldStartGroupsFairly() throws Exception {
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        final BulkExecutor<String, String> executor = new BulkExecutor<>("test", 1, 1);
+        // block the executor by a long running task until all items are submitted
+        final Blocker blocker = new Blocker();
+        executor.submit("blocker", "blocker", new Callable<FutureResult<String>>() {
+            @Override
+            public FutureResult<String> call() {
+                return blocker;
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            executor.submit("big", "big" + i, new Recorder("big" + i, started));
+        }
+        executor.submit("small", "small", new Recorder("small", started));
+        blocker.done = true;
+
+        executor.awaitAll();
+
+        assertThat(started.get(0), is("big0"));
+        assertThat(started.get(1), is("small"));
+    }
+
+    @Test
+    public void shouldRetryRetryableFailures() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final BulkExecutor<String, String> executor = new BulkExecutor<>("test", 1, 3);
+        executor.submit("group", "item", new Callable<FutureResult<String>>() {
+            @Override
+            public FutureResult<String> call() {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new GoodDataRestException(503, "", "unavailable", "", "");
+                }
+                return new Blocker("result");
+            }
+        });
+        executor.submit("group", "failing", new Callable<FutureResult<String>>() {
+            @Override
+            public FutureResult<String> call() {
+                throw new GoodDataRestException(400, "", "bad request", "", "");
+            }
+        });
+
+        final List<BulkOutcome<String, String>> outcomes = executor.awaitAll();
+
+        assertThat(outcomes.size(), is(2));
+        for (BulkOutcome<String, String> outcome : outcomes) {
+            if ("item".equals(outcome.getItem())) {
+                assertThat(outcome.getResult(), is("result"));
+                assertThat(outcome.getAttempts(), is(2));
+            } else {
+                assertThat(outcome.isSuccess(), is(false));
+                assertThat(outcome.getFailure(), is(notNullValue()));
+                assertThat(outcome.getAttempts(), is(1));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldRejectSubmitWhenClosed() throws Exception {
+        final BulkExecutor<String, String> executor = new BulkExecutor<>("test", 1, 1);
+        executor.close();
+        executor.submit("group", "item", new Recorder("item", new ArrayList<String>()));
+    }
+
+    private static class Starter implements Callable<FutureResult<Integer>> {
+        private final int value;
+        private final int polls;
+        private final AtomicInteger running;
+        private final AtomicInteger maxRunning;
+
+        private Starter(int value, int polls, AtomicInteger running, AtomicInteger maxRunning) {
+            this.value = value;
+            this.polls = polls;
+            this.running = running;
+            this.maxRunning = maxRunning;
+        }
+
+        @Override
+        public FutureResult<Integer> call() {
+            final int current = running.incrementAndGet();
+            if (current > maxRunning.get()) {
+                maxRunning.set(current);
+            }
+            return new FutureResult<Integer>() {
+                private int count;
+
+                @Override
+                public boolean isDone() {
+                    if (++count < polls) {
+                        return false;
+                    }
+                    running.decrementAndGet();
+                    return true;
+                }
+
+                @Override
+                public Integer get() {
+                    return value;
+                }
+
+                @Override
+                public Integer get(long timeout, TimeUnit unit) {
+                    return value;
+                }
+
+                @Override
+                public String getPollingUri() {
+                    return "/poll/" + value;
+                }
+            };
+        }
+    }
+
+    private static class Recorder implements Callable<FutureResult<String>> {
+        private final String value;
+        private final List<String> started;
+
+        private Recorder(String value, List<String> started) {
+            this.value = value;
+            this.started = started;
+        }
+
+        @Override
+        public FutureResult<String> call() {
+            started.add(value);
+            return new Blocker(value);
+        }
+    }
+
+    private static class Blocker implements FutureResult<String> {
+        private final String value;
+        private volatile boolean done;
+
+        private Blocker() {
+            this(null);
+        }
+
+        private Blocker(String value) {
+            this.value = value;
+            this.done = value != null;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public String get() {
+            return value;
+        }
+
+        @Override
+        public String get(long timeout, TimeUnit unit) {
+            return value;
+        }
+
+        @Override
+        public String getPollingUri() {
+            return "/poll";
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ChainedResultTest {
+
+    @Test
+    public void shouldStartNextStepWhenFirstIsDone() throws Exception {
+        final CountdownResult<String> first = new CountdownResult<>(2, "first", "/first");
+        final AtomicInteger started = new AtomicInteger();
+        final ChainedResult<String, String> result = new ChainedResult<>(first,
+                new ChainedResult.Step<String, String>() {
+                    @Override
+                    public FutureResult<String> start(final String previous) {
+                        started.incrementAndGet();
+                        return new CountdownResult<>(2, previous + "-second", "/second");
+                    }
+                });
+
+        assertThat(result.isDone(), is(false));
+        assertThat(result.getPollingUri(), is("/first"));
+        assertThat(result.isDone(), is(false));
+        assertThat(result.getPollingUri(), is("/second"));
+        assertThat(result.isDone(), is(true));
+        assertThat(result.get(), is("first-second"));
+        assertThat(started.get(), is(1));
+    }
+
+    @Test
+    public void shouldChainCompletedResult() throws Exception {
+        final ChainedResult<String, Integer> result = new ChainedResult<>(ChainedResult.completed("abc"),
+                new ChainedResult.Step<String, Integer>() {
+                    @Override
+                    public FutureResult<Integer> start(final String previous) {
+                        return ChainedResult.completed(previous.length());
+                    }
+                });
+
+        assertThat(result.isDone(), is(true));
+        assertThat(result.get(), is(3));
+    }
+
+    @Test(expectedExceptions = GoodDataException.class, expectedExceptionsMessageRegExp = "failed")
+    public void shouldPropagateFailureOfNextStep() throws Exception {
+        new ChainedResult<>(ChainedResult.completed("abc"), new ChainedResult.Step<String, String>() {
+            @Override
+            public FutureResult<String> start(final String previous) {
+                throw new GoodDataException("failed");
+            }
+        }).isDone();
+    }
+
+    /**
+     * Result which is done after given number of checks
+     */
+    private static class CountdownResult<T> implements FutureResult<T> {
+        private final T value;
+        private final String uri;
+        private int remaining;
+
+        private CountdownResult(final int checks, final T value, final String uri) {
+            this.remaining = checks;
+            this.value = value;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean isDone() {
+            return --remaining <= 0;
+        }
+
+        @Override
+        public T get() {
+            return value;
+        }
+
+        @Override
+        public T get(final long timeout, final TimeUnit unit) {
+            return value;
+        }
+
+        @Override
+        public String getPollingUri() {
+            return uri;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import com.gooddata.gdc.TaskStatus;
+import com.gooddata.gdc.UriResponse;
+import com.gooddata.project.Project;
+import com.gooddata.project.Projects;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.verifyThatRequest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Hammers a single {@link GoodData} instance from many threads.
+ */
+public class ConcurrentUseIT extends AbstractGoodDataIT {
+
+    private static final int THREADS = 16;
+    private static final int TASKS = 64;
+
+    private static final String PROJECT_URI = "/gdc/projects/PROJECT_ID";
+    private static final String LDM_MANAGE2 = "/gdc/md/PROJECT_ID/ldm/manage2";
+    private static final String STATUS_URI = "/gdc/md/PROJECT_ID/tasks/123/status";
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterMethod
+    public void shutDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldCreateProjectsFromManyThreads() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(Projects.URI)
+            .respond()
+                .withBody(MAPPER.writeValueAsString(new UriResponse(PROJECT_URI)))
+                .withStatus(202);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(PROJECT_URI)
+            .respond()
+                .withBody(readFromResource("/project/project.json"))
+                .withStatus(200);
+
+        final AtomicInteger created = new AtomicInteger();
+        runConcurrently(TASKS, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                final Project project = gd.getProjectService().createProject(new Project("TITLE", "AUTH_TOKEN")).get();
+                assertThat(project.getId(), is("PROJECT_ID"));
+                created.incrementAndGet();
+                return null;
+            }
+        });
+
+        assertThat(created.get(), is(TASKS));
+        verifyThatRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(Projects.URI)
+                .receivedTimes(TASKS);
+    }
+
+    @Test
+    public void shouldPollSharedResultOnceAtTime() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(PROJECT_URI)
+            .respond()
+                .withBody(readFromResource("/project/project.json"))
+                .withStatus(200);
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+
+        final Project project = gd.getProjectService().getProjectById("PROJECT_ID");
+        final FutureResult<Void> update = gd.getModelService().updateProjectModel(project,
+                "synchronize {dataset.chunk1} preserve data", "synchronize {dataset.chunk2} preserve data");
+
+        runConcurrently(THREADS, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                while (!update.isDone()) {
+                    Thread.sleep(10);
+                }
+                return null;
+            }
+        });
+
+        verifyThatRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+                .receivedTimes(2);
+        verifyThatRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+                .receivedTimes(2);
+    }
+
+    @Test
+    public void shouldUploadFromManyThreads() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc")
+            .respond()
+                .withBody(readFromResource("/gdc/gdc.json"))
+                .withStatus(200);
+        onRequest()
+                .havingMethodEqualTo("PUT")
+                .havingPathEqualTo("/uploads/test")
+            .respond()
+                .withStatus(201);
+
+        runConcurrently(TASKS, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                gd.getDataStoreService().upload("/test", new ByteArrayInputStream("test".getBytes()));
+                return null;
+            }
+        });
+
+        verifyThatRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc")
+                .receivedOnce();
+        verifyThatRequest()
+                .havingMethodEqualTo("PUT")
+                .havingPathEqualTo("/uploads/test")
+                .receivedTimes(TASKS);
+    }
+
+    /**
+     * Runs the task given number of times, all the runs are released at once, failure of any run fails the test
+     */
+    private void runConcurrently(final int count, final Callable<Void> task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Void>> runs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            runs.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    return task.call();
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Void> run : runs) {
+            run.get();
+        }
+    }
+}
@@ -21,6 +21,9 @@ public class GoodDataSettingsTest {
         assertTrue(settings.getConnectionTimeout() >= 0);
         assertTrue(settings.getConnectionRequestTimeout() >= 0);
         assertTrue(settings.getSocketTimeout() >= 0);
+        assertEquals(0, settings.getReportExecutionCacheTtlSeconds());
+        assertTrue(settings.getReportExecutionCacheMaxBytes() > 0);
+        assertEquals(0, settings.getModelDiffCacheSize());
     }
 
     @Test
@@ -53,4 +56,19 @@ public class GoodDataSettingsTest {
     public void setZeroMaxConnectionsFails() throws Exception {
         settings.setMaxConnections(0);
     }
-}
\ No newline at end of file
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void setNegativeReportExecutionCacheTtlFails() throws Exception {
+        settings.setReportExecutionCacheTtlSeconds(-1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void setZeroReportExecutionCacheMaxBytesFails() throws Exception {
+        settings.setReportExecutionCacheMaxBytes(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void setNegativeModelDiffCacheSizeFails() throws Exception {
+        settings.setModelDiffCacheSize(-1);
+    }
+}
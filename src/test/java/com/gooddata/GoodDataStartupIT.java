@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.port;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Startup benchmark, measures time from the construction of {@link GoodData} to the end of the first request.
+ * The JVM is already warmed up by the other tests (classes are loaded, {@link AbstractGoodDataIT} created its own
+ * instance), so it's the cost of a new instance in a running application, not a cold start. The times are only
+ * reported, they depend too much on the machine to be asserted.
+ */
+public class GoodDataStartupIT extends AbstractGoodDataIT {
+
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void shouldCreateServicesOnce() throws Exception {
+        assertThat(gd.getProjectService(), is(sameInstance(gd.getProjectService())));
+        assertThat(gd.getDataStoreService(), is(sameInstance(gd.getDataStoreService())));
+        assertThat(gd.getModelService(), is(sameInstance(gd.getModelService())));
+    }
+
+    @Test
+    public void measureWarmTimeToFirstRequest() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc")
+            .respond()
+                .withBody(readFromResource("/gdc/gdc.json"))
+                .withStatus(200);
+
+        final long[] times = new long[ITERATIONS];
+        final List<CloseableHttpClient> clients = new ArrayList<>(ITERATIONS);
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final long start = System.nanoTime();
+                final GoodData goodData = createGoodData(clients);
+                goodData.getGdcService().getGdc();
+                times[i] = System.nanoTime() - start;
+            }
+        } finally {
+            for (CloseableHttpClient client : clients) {
+                client.close();
+            }
+        }
+
+        Arrays.sort(times);
+        final long median = TimeUnit.NANOSECONDS.toMicros(times[ITERATIONS / 2]);
+        final long max = TimeUnit.NANOSECONDS.toMicros(times[ITERATIONS - 1]);
+        Reporter.log("Warm time to first request: median of " + ITERATIONS + " " + median + " us, max " + max + " us",
+                true);
+    }
+
+    /**
+     * Creates instance without the login, built HTTP clients are added to the given list to be closed
+     */
+    private static GoodData createGoodData(final List<CloseableHttpClient> clients) {
+        return new GoodData("localhost", "sdk@gooddata.com", "sdk", port(), "http", new GoodDataSettings()) {
+            @Override
+            protected HttpClient createHttpClient(final String login, final String password, final String hostname,
+                                                  final int port, final String protocol,
+                                                  final HttpClientBuilder builder) {
+                final CloseableHttpClient client = builder.build();
+                clients.add(client);
+                return client;
+            }
+        };
+    }
+}
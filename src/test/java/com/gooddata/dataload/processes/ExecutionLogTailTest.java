@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.FutureResult;
+import com.gooddata.GoodDataException;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+public class ExecutionLogTailTest {
+
+    private static final String DETAIL_LINK = "/gdc/projects/PROJECT/dataload/processes/PROCESS/executions/EXEC/detail";
+    private static final String LOG_LINK = "/gdc/projects/PROJECT/dataload/processes/PROCESS/executions/EXEC/log";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private FutureResult<ProcessExecutionDetail> execution;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        final ProcessExecutionDetail detail = mock(ProcessExecutionDetail.class);
+        when(detail.getLogLink()).thenReturn(LOG_LINK);
+        when(restTemplate.getForObject(DETAIL_LINK, ProcessExecutionDetail.class)).thenReturn(detail);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldIgnoreLogFailureWhenExecutionFinished() throws Exception {
+        when(restTemplate.execute(eq(LOG_LINK), eq(HttpMethod.GET), any(RequestCallback.class),
+                any(ResponseExtractor.class))).thenThrow(new RestClientException("log unavailable"));
+        when(execution.isDone()).thenReturn(true);
+
+        final ExecutionLogTail tail = new ExecutionLogTail(restTemplate, execution, DETAIL_LINK,
+                new ByteArrayOutputStream());
+
+        assertThat(tail.isDone(), is(true));
+        assertThat(tail.getOffset(), is(0L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldFailWhenLogCannotBeWrittenAfterExecutionFinished() throws Exception {
+        when(restTemplate.execute(eq(LOG_LINK), eq(HttpMethod.GET), any(RequestCallback.class),
+                any(ResponseExtractor.class))).thenReturn(null, "log".getBytes());
+        when(execution.isDone()).thenReturn(true);
+
+        final ExecutionLogTail tail = new ExecutionLogTail(restTemplate, execution, DETAIL_LINK, new FailingStream());
+
+        try {
+            tail.isDone();
+            fail("log write failure expected");
+        } catch (GoodDataException e) {
+            assertThat(e.getMessage(), is("Unable to write process execution log"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldKeepExecutionFailureWhenLogCannotBeWritten() throws Exception {
+        when(restTemplate.execute(eq(LOG_LINK), eq(HttpMethod.GET), any(RequestCallback.class),
+                any(ResponseExtractor.class))).thenReturn(null, "log".getBytes());
+        final GoodDataException failure = new GoodDataException("execution failed");
+        when(execution.isDone()).thenThrow(failure);
+
+        final ExecutionLogTail tail = new ExecutionLogTail(restTemplate, execution, DETAIL_LINK, new FailingStream());
+
+        try {
+            tail.isDone();
+            fail("execution failure expected");
+        } catch (GoodDataException e) {
+            assertThat(e, is(failure));
+            assertThat(e.getSuppressed().length, is(1));
+        }
+    }
+
+    private static class FailingStream extends OutputStream {
+        @Override
+        public void write(final int b) throws IOException {
+            throw new IOException("disk full");
+        }
+    }
+}
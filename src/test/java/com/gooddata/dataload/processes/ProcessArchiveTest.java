@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.util.ZipHelper;
+import org.springframework.util.StreamUtils;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ProcessArchiveTest {
+
+    @Test
+    public void shouldZipProcessData() throws Exception {
+        final File file = File.createTempFile("process", ".groovy");
+        file.deleteOnExit();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("println 'hello'".getBytes(UTF_8));
+        }
+
+        final ProcessArchive archive = ProcessArchive.zip(file);
+
+        final byte[] data = StreamUtils.copyToByteArray(archive.openStream());
+        assertThat((long) data.length, is(archive.getSize()));
+        assertThat(StreamUtils.copyToByteArray(archive.openStream()), is(data));
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(data))) {
+            final ZipEntry entry = zip.getNextEntry();
+            assertThat(entry, is(notNullValue()));
+            assertThat(entry.getName(), is(file.getName()));
+        }
+    }
+
+    @Test
+    public void shouldComputeHash() throws Exception {
+        final ProcessArchive archive = new ProcessArchive("abc".getBytes(UTF_8), 3);
+
+        assertThat(archive.getHash(), is("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad"));
+        assertThat(archive.getSize(), is(3L));
+    }
+
+    @Test
+    public void shouldComputeContentHashIndependentOfZipping() throws Exception {
+        final File dir = Files.createTempDirectory("process").toFile();
+        final File file = new File(dir, "process.groovy");
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("println 'hello'".getBytes(UTF_8));
+        }
+
+        final ProcessArchive archive = ProcessArchive.zip(dir);
+        file.setLastModified(file.lastModified() - 60000);
+        final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        ZipHelper.zip(dir, stored, false, ZipHelper.STORED, 1);
+        final ProcessArchive storedArchive = new ProcessArchive(stored.toByteArray(), stored.size());
+
+        assertThat(storedArchive.getHash(), is(not(archive.getHash())));
+        assertThat(storedArchive.getContentHash(), is(archive.getContentHash()));
+
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("println 'changed'".getBytes(UTF_8));
+        }
+        assertThat(ProcessArchive.zip(dir).getContentHash(), is(not(archive.getContentHash())));
+    }
+}
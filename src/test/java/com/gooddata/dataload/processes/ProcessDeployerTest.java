@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.project.Project;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProcessDeployerTest {
+
+    private static final String PROCESS_URI = "/gdc/projects/PROJECT_ID/dataload/processes/PROCESS_ID";
+    private static final String STAGED_PATH = "/uploads/process.zip";
+
+    @Mock
+    private ProcessService processService;
+    @Mock
+    private Project project;
+    @Mock
+    private Project project2;
+
+    private ProcessDeploymentIndex index;
+    private ProcessDeployer deployer;
+    private DataloadProcess deployed;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn("PROJECT_ID");
+        when(project2.getId()).thenReturn("PROJECT_ID2");
+        index = new ProcessDeploymentIndex();
+        deployer = new ProcessDeployer(processService, index);
+        deployed = mock(DataloadProcess.class);
+        when(deployed.getUri()).thenReturn(PROCESS_URI);
+    }
+
+    @Test
+    public void shouldSkipUnchangedDeployment() throws Exception {
+        final ProcessArchive archive = archive(10);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        when(processService.createProcessFromArchive(project, process, archive)).thenReturn(deployed);
+        when(processService.getProcessByUri(PROCESS_URI)).thenReturn(deployed);
+
+        assertThat(deployer.deploy(project, process, archive), is(deployed));
+        assertThat(deployer.deploy(project, process, archive), is(deployed));
+
+        verify(processService, times(1)).createProcessFromArchive(project, process, archive);
+        verify(processService).getProcessByUri(PROCESS_URI);
+    }
+
+    @Test
+    public void shouldDeployAgainWhenProcessWasRemoved() throws Exception {
+        final ProcessArchive archive = archive(10);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        when(processService.createProcessFromArchive(project, process, archive)).thenReturn(deployed);
+        when(processService.getProcessByUri(PROCESS_URI)).thenThrow(new ProcessNotFoundException(PROCESS_URI, null));
+
+        deployer.deploy(project, process, archive);
+        deployer.deploy(project, process, archive);
+
+        verify(processService, times(2)).createProcessFromArchive(project, process, archive);
+    }
+
+    @Test
+    public void shouldDeployChangedName() throws Exception {
+        final ProcessArchive archive = archive(10);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        final DataloadProcess renamed = new DataloadProcess("renamed", ProcessType.GRAPH);
+        when(processService.createProcessFromArchive(eq(project), any(DataloadProcess.class), eq(archive)))
+                .thenReturn(deployed);
+
+        deployer.deploy(project, process, archive);
+        deployer.deploy(project, renamed, archive);
+
+        verify(processService).createProcessFromArchive(project, renamed, archive);
+        verify(processService, never()).getProcessByUri(PROCESS_URI);
+    }
+
+    @Test
+    public void shouldUploadLargeArchiveOnce() throws Exception {
+        final ProcessArchive archive = archive(2 * 1024 * 1024);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        when(processService.uploadProcessArchive(archive)).thenReturn(STAGED_PATH);
+        when(processService.deployStagedProcess(any(Project.class), eq(process), eq(STAGED_PATH)))
+                .thenReturn(deployed);
+
+        deployer.deploy(project, process, archive);
+        deployer.deploy(project2, process, archive);
+
+        verify(processService, times(1)).uploadProcessArchive(archive);
+        verify(processService).deployStagedProcess(project, process, STAGED_PATH);
+        verify(processService).deployStagedProcess(project2, process, STAGED_PATH);
+    }
+
+    @Test
+    public void shouldUploadAgainWhenStagedArchiveFails() throws Exception {
+        final ProcessArchive archive = archive(2 * 1024 * 1024);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        when(processService.uploadProcessArchive(archive)).thenReturn(STAGED_PATH);
+        when(processService.deployStagedProcess(project, process, STAGED_PATH)).thenReturn(deployed);
+        when(processService.deployStagedProcess(project2, process, STAGED_PATH))
+                .thenThrow(new GoodDataException("missing"))
+                .thenReturn(deployed);
+
+        deployer.deploy(project, process, archive);
+        deployer.deploy(project2, process, archive);
+
+        verify(processService, times(2)).uploadProcessArchive(archive);
+        verify(processService, times(2)).deployStagedProcess(project2, process, STAGED_PATH);
+    }
+
+    @Test
+    public void shouldDeleteStagedArchiveOnClose() throws Exception {
+        final ProcessArchive archive = archive(2 * 1024 * 1024);
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        when(processService.uploadProcessArchive(archive)).thenReturn(STAGED_PATH);
+        when(processService.deployStagedProcess(any(Project.class), eq(process), eq(STAGED_PATH)))
+                .thenReturn(deployed);
+
+        deployer.deploy(project, process, archive);
+        deployer.close();
+        deployer.close();
+
+        verify(processService, times(1)).deleteProcessArchive(archive.getHash());
+    }
+
+    private static ProcessArchive archive(final int size) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(output)) {
+            zip.setLevel(0);
+            zip.putNextEntry(new ZipEntry("data.bin"));
+            final byte[] data = new byte[size];
+            new Random(size).nextBytes(data);
+            zip.write(data);
+            zip.closeEntry();
+        }
+        return new ProcessArchive(output.toByteArray(), output.size());
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ProcessDeploymentIndexTest {
+
+    @Test
+    public void shouldReplacePreviousDeploymentOfProcess() throws Exception {
+        final ProcessDeploymentIndex index = new ProcessDeploymentIndex();
+        index.put("project1", "key1", "/process1");
+        index.put("project1", "key2", "/process1");
+        index.put("project2", "key1", "/process2");
+
+        assertThat(index.getProcessUri("project1", "key1"), is(nullValue()));
+        assertThat(index.getProcessUri("project1", "key2"), is("/process1"));
+        assertThat(index.getProcessUri("project2", "key1"), is("/process2"));
+    }
+
+    @Test
+    public void shouldSaveAndLoad() throws Exception {
+        final Path file = Files.createTempFile("deployments", ".idx");
+        file.toFile().deleteOnExit();
+        final ProcessDeploymentIndex index = new ProcessDeploymentIndex();
+        index.put("project1", "key1", "/process1");
+        index.put("project2", "key2", "/process2");
+        index.save(file);
+
+        final ProcessDeploymentIndex loaded = ProcessDeploymentIndex.load(file);
+        assertThat(loaded.getProcessUri("project1", "key1"), is("/process1"));
+        assertThat(loaded.getProcessUri("project2", "key2"), is("/process2"));
+        assertThat(loaded.getProcessUri("project1", "key2"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldLoadMissingFileAsEmpty() throws Exception {
+        final Path file = Files.createTempFile("deployments", ".idx");
+        Files.delete(file);
+
+        assertThat(ProcessDeploymentIndex.load(file).getProcessUri("project", "key"), is(nullValue()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.gooddata.dataload.processes;
 
 import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.BulkOutcome;
 import com.gooddata.FutureResult;
 import com.gooddata.collections.PageableList;
 import com.gooddata.project.Project;
@@ -12,8 +13,10 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
 
 import static com.gooddata.util.ResourceUtils.readFromResource;
+import static java.util.Arrays.asList;
 import static net.jadler.Jadler.onRequest;
 import static net.javacrumbs.jsonunit.JsonAssert.assertJsonEquals;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -196,6 +199,92 @@ public class ProcessServiceIT extends AbstractGoodDataIT {
         assertJsonEquals(MAPPER.readValue(readFromResource("/dataload/processes/executionDetail-success.json"), ProcessExecutionDetail.class), executionDetail);
     }
 
+    @Test
+    public void shouldExecuteProcessAndFollowLog() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(EXECUTIONS_PATH)
+            .respond()
+                .withBody(readFromResource("/dataload/processes/executionTask.json"))
+                .withHeader("Location", EXECUTION_PATH)
+                .withStatus(201);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_PATH)
+            .respond()
+                .withStatus(202)
+            .thenRespond()
+                .withStatus(204);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_DETAIL_PATH)
+            .respond()
+                .withBody(readFromResource("/dataload/processes/executionDetail-success.json"))
+                .withStatus(200);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_PATH + "/log")
+                .havingHeaderEqualTo("Range", "bytes=0-")
+            .respond()
+                .withBody("first\n")
+                .withStatus(206);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_PATH + "/log")
+                .havingHeaderEqualTo("Range", "bytes=6-")
+            .respond()
+                .withBody("second\n")
+                .withStatus(206);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_PATH + "/log")
+                .havingHeaderEqualTo("Range", "bytes=13-")
+            .respond()
+                .withStatus(416);
+
+        final ByteArrayOutputStream log = new ByteArrayOutputStream();
+        final FutureResult<ProcessExecutionDetail> result = gd.getProcessService()
+                .executeProcess(new ProcessExecution(process, EXECUTABLE), log);
+        final ProcessExecutionDetail executionDetail = result.get();
+
+        assertThat(executionDetail.isSuccess(), is(true));
+        assertThat(log.toString(), is("first\nsecond\n"));
+    }
+
+    @Test
+    public void shouldExecuteProcesses() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(EXECUTIONS_PATH)
+            .respond()
+                .withBody(readFromResource("/dataload/processes/executionTask.json"))
+                .withHeader("Location", EXECUTION_PATH)
+                .withStatus(201);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_PATH)
+            .respond()
+                .withStatus(204);
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(EXECUTION_DETAIL_PATH)
+            .respond()
+                .withBody(readFromResource("/dataload/processes/executionDetail-success.json"))
+                .withStatus(200);
+
+        final List<BulkOutcome<ProcessExecution, ProcessExecutionDetail>> outcomes = gd.getProcessService()
+                .executeProcesses(asList(new ProcessExecution(process, "test.groovy"),
+                        new ProcessExecution(process, "test.groovy")), 1)
+                .awaitAll();
+
+        assertThat(outcomes, hasSize(2));
+        for (BulkOutcome<ProcessExecution, ProcessExecutionDetail> outcome : outcomes) {
+            assertThat(outcome.getGroup(), is(PROJECT_ID));
+            assertThat(outcome.isSuccess(), is(true));
+            assertThat(outcome.getResult().isSuccess(), is(true));
+        }
+    }
+
     @Test(expectedExceptions = ProcessExecutionException.class)
     public void shouldThrowOnExecuteProcessError() throws Exception {
         onRequest()
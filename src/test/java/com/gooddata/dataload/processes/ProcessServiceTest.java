@@ -12,19 +12,25 @@ import com.gooddata.project.Project;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Collections;
@@ -41,11 +47,13 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.notNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class ProcessServiceTest {
 
@@ -113,6 +121,101 @@ public class ProcessServiceTest {
         verify(dataStoreService).upload(anyString(), notNull(InputStream.class));
     }
 
+    @Test
+    public void testCreateProcessLargerThan1MBStreamsWholeArchive() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        final File processData = createProcessOfSize(2048);
+        final ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+
+        when(dataStoreService.getUri(anyString())).thenReturn(create("URI"));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                StreamUtils.copy((InputStream) invocation.getArguments()[1], uploaded);
+                return null;
+            }
+        }).when(dataStoreService).upload(anyString(), any(InputStream.class));
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.POST), eq(new HttpEntity<>(process)), eq(DataloadProcess.class)))
+            .thenReturn(new ResponseEntity<>(process, HttpStatus.CREATED));
+
+        processService.createProcess(project, process, processData);
+
+        assertThat((long) uploaded.size(), is(ProcessArchive.zip(processData).getSize()));
+    }
+
+    @Test
+    public void testZipPipeFailsReaderWhenZippingFails() throws Exception {
+        final ProcessService.ZipPipe pipe = new ProcessService.ZipPipe(null) {
+            @Override
+            void zip(final OutputStream output) throws IOException {
+                output.write(new byte[2 * 1024 * 1024]);
+                throw new IOException("unreadable process data");
+            }
+        }.start();
+        try {
+            StreamUtils.copy(pipe.getInput(), new ByteArrayOutputStream());
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertThat(e.getCause().getMessage(), is("unreadable process data"));
+        } finally {
+            pipe.close();
+        }
+    }
+
+    @Test
+    public void testCreateProcessLargerThan1MBDeletesUploadedDataWhenDeployFails() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        final ArgumentCaptor<String> fileName = ArgumentCaptor.forClass(String.class);
+
+        when(dataStoreService.getUri(anyString())).thenReturn(create("URI"));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                StreamUtils.copy((InputStream) invocation.getArguments()[1], new ByteArrayOutputStream());
+                return null;
+            }
+        }).when(dataStoreService).upload(fileName.capture(), any(InputStream.class));
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.POST), eq(new HttpEntity<>(process)),
+                eq(DataloadProcess.class))).thenThrow(new RestClientException("deploy failed"));
+
+        try {
+            processService.createProcess(project, process, createProcessOfSize(2048));
+            fail("GoodDataException expected");
+        } catch (GoodDataException expected) {
+            verify(dataStoreService).delete(fileName.getValue());
+        }
+    }
+
+    @Test
+    public void testCreateProcessFromArchive() throws Exception {
+        final DataloadProcess process = new DataloadProcess("test", ProcessType.GRAPH);
+        final ProcessArchive archive = ProcessArchive.zip(createProcessOfSize(1));
+
+        final ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        when(restTemplate.exchange(any(URI.class), eq(HttpMethod.POST), entityCaptor.capture(), eq(DataloadProcess.class)))
+                .thenReturn(new ResponseEntity<>(process, HttpStatus.CREATED));
+
+        processService.createProcessFromArchive(project, process, archive);
+        processService.createProcessFromArchive(project, process, archive);
+
+        assertTrue(entityCaptor.getValue().getBody() instanceof MultiValueMap);
+        verifyZeroInteractions(dataStoreService);
+    }
+
+    @Test
+    public void testUpdateProcessFromArchiveLargerThan1MB() throws Exception {
+        final ProcessArchive archive = ProcessArchive.zip(createProcessOfSize(2048));
+
+        when(dataStoreService.getUri(anyString())).thenReturn(create("URI"));
+        when(restTemplate.exchange(eq(create(PROCESS_URI)), eq(HttpMethod.PUT), any(HttpEntity.class),
+                eq(DataloadProcess.class))).thenReturn(new ResponseEntity<>(process, HttpStatus.OK));
+
+        final DataloadProcess result = processService.updateProcessFromArchive(project, process, archive);
+
+        assertThat(result, is(process));
+        verify(dataStoreService).upload(anyString(), notNull(InputStream.class));
+    }
+
 
 
     private static File createProcessOfSize(int size) throws Exception {
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataload.processes;
+
+import com.gooddata.GoodDataException;
+import com.gooddata.collections.Page;
+import com.gooddata.collections.PageableList;
+import com.gooddata.collections.Paging;
+import com.gooddata.project.Project;
+import org.joda.time.DateTime;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ScheduleInventoryTest {
+
+    private static final DateTime NOW = new DateTime(2015, 6, 1, 12, 0);
+
+    @Mock
+    private ProcessService processService;
+    @Mock
+    private Project project;
+    @Mock
+    private Project project2;
+
+    private ScheduleInventory inventory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn("PROJECT_ID");
+        when(project2.getId()).thenReturn("PROJECT_ID2");
+        inventory = new ScheduleInventory(processService, 2);
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        inventory.close();
+    }
+
+    @Test
+    public void shouldIndexAllPagesOfAllProjects() throws Exception {
+        final Schedule failing = schedule("s1", "ENABLED", NOW.plusHours(1), 3);
+        final Schedule disabled = schedule("s2", "DISABLED", null, 0);
+        final Schedule due = schedule("s3", "ENABLED", NOW.minusMinutes(1), 1);
+        when(processService.listSchedules(project))
+                .thenReturn(new PageableList<>(singletonList(failing), new Paging("/next")));
+        when(processService.listSchedules(eq(project), any(Page.class)))
+                .thenReturn(new PageableList<>(singletonList(disabled), null));
+        when(processService.listSchedules(project2)).thenReturn(new PageableList<>(singletonList(due), null));
+
+        final Map<String, GoodDataException> failures = inventory.refresh(asList(project, project2));
+
+        assertThat(failures.isEmpty(), is(true));
+        assertThat(inventory.size(), is(3));
+        assertThat(inventory.getSchedules(project), contains(failing, disabled));
+        assertThat(inventory.getSchedulesByState(ScheduleState.ENABLED), containsInAnyOrder(failing, due));
+        assertThat(inventory.getSchedulesByState(ScheduleState.DISABLED), contains(disabled));
+        assertThat(inventory.getSchedulesDueBefore(NOW), contains(due));
+        assertThat(inventory.getSchedulesDueBefore(NOW.plusDays(1)), contains(due, failing));
+        assertThat(inventory.getFailingSchedules(1), contains(failing, due));
+        assertThat(inventory.getFailingSchedules(2), contains(failing));
+    }
+
+    @Test
+    public void shouldReplaceSchedulesOfRefreshedProject() throws Exception {
+        final Schedule failing = schedule("s1", "ENABLED", NOW, 3);
+        final Schedule removed = schedule("s2", "ENABLED", NOW, 0);
+        final Schedule other = schedule("s3", "ENABLED", NOW, 1);
+        when(processService.listSchedules(project)).thenReturn(new PageableList<>(asList(failing, removed), null));
+        when(processService.listSchedules(project2)).thenReturn(new PageableList<>(singletonList(other), null));
+        inventory.refresh(asList(project, project2));
+
+        final Schedule recovered = schedule("s1", "ENABLED", NOW.plusDays(1), 0);
+        when(processService.listSchedules(project)).thenReturn(new PageableList<>(singletonList(recovered), null));
+        inventory.refresh(singletonList(project));
+
+        assertThat(inventory.size(), is(2));
+        assertThat(inventory.getSchedules(project), contains(recovered));
+        assertThat(inventory.getFailingSchedules(1), contains(other));
+        assertThat(inventory.getSchedulesDueBefore(NOW), contains(other));
+        assertThat(inventory.getSchedulesByState(ScheduleState.ENABLED), containsInAnyOrder(recovered, other));
+    }
+
+    @Test
+    public void shouldKeepSchedulesOfFailedProject() throws Exception {
+        final Schedule schedule = schedule("s1", "ENABLED", NOW, 2);
+        when(processService.listSchedules(project)).thenReturn(new PageableList<>(singletonList(schedule), null));
+        inventory.refresh(singletonList(project));
+
+        when(processService.listSchedules(project)).thenThrow(new GoodDataException("Unable to list schedules"));
+        final Map<String, GoodDataException> failures = inventory.refresh(singletonList(project));
+
+        assertThat(failures, hasKey("PROJECT_ID"));
+        assertThat(inventory.getFailingSchedules(1), contains(schedule));
+    }
+
+    @Test
+    public void shouldRemoveProject() throws Exception {
+        final Schedule schedule = schedule("s1", "ENABLED", NOW, 2);
+        when(processService.listSchedules(project)).thenReturn(new PageableList<>(singletonList(schedule), null));
+        inventory.refresh(singletonList(project));
+
+        inventory.remove(project);
+
+        assertThat(inventory.size(), is(0));
+        assertThat(inventory.getSchedules(project), is(empty()));
+        assertThat(inventory.getFailingSchedules(1), is(empty()));
+        assertThat(inventory.getSchedulesByState(ScheduleState.ENABLED), is(empty()));
+    }
+
+    private static Schedule schedule(final String id, final String state, final DateTime nextExecution,
+                                     final int failures) {
+        final Schedule schedule = mock(Schedule.class);
+        when(schedule.getUri()).thenReturn("/gdc/projects/PROJECT_ID/schedules/" + id);
+        when(schedule.getState()).thenReturn(state);
+        when(schedule.getNextExecutionTime()).thenReturn(nextExecution);
+        when(schedule.getConsecutiveFailedExecutionCount()).thenReturn(failures);
+        return schedule;
+    }
+}
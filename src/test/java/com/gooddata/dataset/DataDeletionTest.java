@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class DataDeletionTest {
+
+    private static final String ELEMENT = "/gdc/md/PROJECT_ID/obj/123/elements?id=";
+
+    @Test
+    public void shouldBuildMaql() throws Exception {
+        final DataDeletion deletion = new DataDeletion("attr.person.id")
+                .element(ELEMENT + 1)
+                .elements(asList(ELEMENT + 2));
+
+        assertThat(deletion.toMaql(), is("DELETE FROM {attr.person.id} WHERE {attr.person.id} IN "
+                + "([/gdc/md/PROJECT_ID/obj/123/elements?id=1], [/gdc/md/PROJECT_ID/obj/123/elements?id=2]);"));
+    }
+
+    @Test
+    public void shouldBuildMaqlWithOtherWhereAttribute() throws Exception {
+        final DataDeletion deletion = new DataDeletion("attr.person.id", "attr.person.department")
+                .element(ELEMENT + 1);
+
+        assertThat(deletion.toMaql(), is("DELETE FROM {attr.person.id} WHERE {attr.person.department} IN "
+                + "([/gdc/md/PROJECT_ID/obj/123/elements?id=1]);"));
+    }
+
+    @Test
+    public void shouldSplitUnderSizeLimit() throws Exception {
+        final DataDeletion deletion = new DataDeletion("attr.person.id");
+        for (int i = 0; i < 100; i++) {
+            deletion.element(ELEMENT + i);
+        }
+
+        final List<DataDeletion> chunks = deletion.split(500);
+
+        int elements = 0;
+        for (DataDeletion chunk : chunks) {
+            assertThat(chunk.toMaql().length(), is(lessThanOrEqualTo(500)));
+            elements += chunk.getElements().size();
+        }
+        assertThat(elements, is(100));
+        assertThat(chunks.get(0).getElements().get(0), is(ELEMENT + 0));
+    }
+
+    @Test
+    public void shouldNotSplitSingleElement() throws Exception {
+        final DataDeletion deletion = new DataDeletion("attr.person.id").element(ELEMENT + 1);
+
+        assertThat(deletion.split(10).get(0).getElements(), contains(ELEMENT + 1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidElement() throws Exception {
+        new DataDeletion("attr.person.id").element("uri]");
+    }
+}
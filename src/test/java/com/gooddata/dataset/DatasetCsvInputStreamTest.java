@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import org.springframework.util.FileCopyUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.gooddata.dataset.DatasetCsvWriterTest.mockResultSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+public class DatasetCsvInputStreamTest {
+
+    private static final int ROWS = 100000;
+
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "f_person.id", asList("label.person.id"), true, null),
+                new DatasetManifest.Part("FULL", "f_person.name", asList("label.person.name"), false, null)
+        ));
+    }
+
+    @Test
+    public void shouldStreamArrays() throws Exception {
+        final InputStream stream = DatasetCsvInputStream.fromArrays(manifest,
+                asList(new Object[]{1, "Jan"}, new Object[]{2, "Petr"}).iterator());
+        assertThat(read(stream), is("f_person.id,f_person.name\n1,Jan\n2,Petr\n"));
+    }
+
+    @Test
+    public void shouldStreamMaps() throws Exception {
+        final Map<String, String> row = Collections.singletonMap("f_person.id", "1");
+        final InputStream stream = DatasetCsvInputStream.fromMaps(manifest, asList(row).iterator());
+        assertThat(read(stream), is("f_person.id,f_person.name\n1,\n"));
+    }
+
+    @Test
+    public void shouldStreamResultSet() throws Exception {
+        final ResultSet resultSet = mockResultSet(2);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getString(1)).thenReturn("1");
+        when(resultSet.getString(2)).thenReturn("Jan");
+
+        final InputStream stream = DatasetCsvInputStream.fromResultSet(manifest, resultSet);
+        assertThat(read(stream), is("f_person.id,f_person.name\n1,Jan\n"));
+    }
+
+    @Test
+    public void shouldStreamHeaderOnlyWhenNoRows() throws Exception {
+        final InputStream stream = DatasetCsvInputStream.fromArrays(manifest, Collections.<Object[]>emptyIterator());
+        assertThat(read(stream), is("f_person.id,f_person.name\n"));
+        assertThat(stream.read(), is(-1));
+    }
+
+    @Test
+    public void shouldStreamManyRows() throws Exception {
+        final InputStream stream = DatasetCsvInputStream.fromArrays(manifest, new Iterator<Object[]>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < ROWS;
+            }
+
+            @Override
+            public Object[] next() {
+                i++;
+                return new Object[]{i, "name"};
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+
+        int lines = 0;
+        int b;
+        while ((b = stream.read()) != -1) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        assertThat(lines, is(ROWS + 1));
+    }
+
+    private static String read(final InputStream stream) throws Exception {
+        return new String(FileCopyUtils.copyToByteArray(stream), UTF_8);
+    }
+}
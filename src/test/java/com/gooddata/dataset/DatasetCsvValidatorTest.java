@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DatasetCsvValidatorTest {
+
+    private static final String HEADER = "f_person.id,f_person.name,f_person.born\n";
+
+    private Path dir;
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("csvValidator");
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "f_person.id", asList("label.person.id"), true, null),
+                new DatasetManifest.Part("FULL", "f_person.name", asList("label.person.name"), false, null),
+                new DatasetManifest.Part("FULL", "f_person.born", asList("person.born"), false,
+                        singletonMap("date", "yyyy-MM-dd"))
+        ));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(dir.toFile());
+    }
+
+    @Test
+    public void shouldAcceptValidFile() throws Exception {
+        final Path file = write(HEADER + "1,Jan,2015-01-31\n2,\"Novak, \"\"Petr\"\"\",\n3,\"multi\nline\",2015-02-01\n");
+        assertThat(new DatasetCsvValidator(manifest).validate(file), is(empty()));
+    }
+
+    @Test
+    public void shouldReportHeaderErrors() throws Exception {
+        final Path file = write("f_person.id,f_person.nick\n");
+        final List<DatasetCsvValidationError> errors = new DatasetCsvValidator(manifest).validate(file);
+
+        assertThat(errors, hasSize(3));
+        assertThat(errors.get(0).getRow(), is(0L));
+        assertThat(errors.get(0).getColumn(), is("f_person.name"));
+        assertThat(errors.get(1).getColumn(), is("f_person.born"));
+        assertThat(errors.get(2).getColumn(), is("f_person.nick"));
+    }
+
+    @Test
+    public void shouldReportRowErrors() throws Exception {
+        final Path file = write(HEADER + "1,Jan,2015-01-31\n,Petr,2015-01-31\n3,Josef\n4,Karel,31.1.2015\n");
+        final List<DatasetCsvValidationError> errors = new DatasetCsvValidator(manifest).validate(file);
+
+        assertThat(errors, hasSize(3));
+        assertThat(errors.get(0).toString(), is("row 2, column f_person.id: reference key value is empty"));
+        assertThat(errors.get(1).getRow(), is(3L));
+        assertThat(errors.get(1).getColumn(), is(nullValue()));
+        assertThat(errors.get(1).getMessage(), is("expected 3 columns, but found 2"));
+        assertThat(errors.get(2).toString(),
+                is("row 4, column f_person.born: value '31.1.2015' doesn't match date format yyyy-MM-dd"));
+    }
+
+    @Test
+    public void shouldValidateLargeFileInParallel() throws Exception {
+        final Path file = dir.resolve("large.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+            writer.write(HEADER);
+            for (int i = 1; i <= 100000; i++) {
+                if (i == 77777) {
+                    writer.write(i + ",\"broken\nname\"\n");
+                } else {
+                    writer.write(i + ",\"name\n" + i + "\",2015-01-31\n");
+                }
+            }
+        }
+        final List<DatasetCsvValidationError> errors = new DatasetCsvValidator(manifest, 4).validate(file);
+
+        assertThat(errors, hasSize(1));
+        assertThat(errors.get(0).getRow(), is(77777L));
+    }
+
+    @Test
+    public void shouldLimitNumberOfErrors() throws Exception {
+        final Path file = write(HEADER + "1\n2\n3\n");
+        final DatasetCsvValidator validator = new DatasetCsvValidator(manifest);
+        validator.setMaxErrors(2);
+
+        assertThat(validator.validate(file), hasSize(2));
+    }
+
+    private Path write(final String content) throws Exception {
+        final Path file = Files.createTempFile(dir, "dataset", ".csv");
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+}
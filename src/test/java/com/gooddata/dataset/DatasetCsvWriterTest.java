@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatasetCsvWriterTest {
+
+    private DatasetManifest manifest;
+    private ByteArrayOutputStream output;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "f_person.id", asList("label.person.id"), true, null),
+                new DatasetManifest.Part("FULL", "f_person.name", asList("label.person.name"), false, null)
+        ));
+        output = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void shouldUseManifestColumns() throws Exception {
+        final DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output);
+        assertThat(writer.getColumns(), contains("f_person.id", "f_person.name"));
+    }
+
+    @Test
+    public void shouldWriteHeaderOnly() throws Exception {
+        new DatasetCsvWriter(manifest, output).close();
+        assertThat(output.toString(UTF_8.name()), is("f_person.id,f_person.name\n"));
+    }
+
+    @Test
+    public void shouldWriteArrayRows() throws Exception {
+        try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+            writer.writeRow(1, "Jan");
+            writer.writeRow(2, null);
+        }
+        assertThat(output.toString(UTF_8.name()), is("f_person.id,f_person.name\n1,Jan\n2,\n"));
+    }
+
+    @Test
+    public void shouldQuoteValues() throws Exception {
+        try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+            writer.writeRow("1", "Novak, \"Jan\"");
+            writer.writeRow("2", "multi\nline");
+        }
+        assertThat(output.toString(UTF_8.name()),
+                is("f_person.id,f_person.name\n1,\"Novak, \"\"Jan\"\"\"\n2,\"multi\nline\"\n"));
+    }
+
+    @Test
+    public void shouldWriteMapRows() throws Exception {
+        final Map<String, Object> row = new HashMap<>();
+        row.put("f_person.name", "Jan");
+        try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+            writer.writeRow(row);
+        }
+        assertThat(output.toString(UTF_8.name()), is("f_person.id,f_person.name\n,Jan\n"));
+    }
+
+    @Test
+    public void shouldWriteResultSetRows() throws Exception {
+        final ResultSet resultSet = mockResultSet(2);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("1", "2");
+        when(resultSet.getString(2)).thenReturn("Jan", "Petr");
+
+        final long count;
+        try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+            count = writer.writeRows(resultSet);
+        }
+        assertThat(count, is(2L));
+        assertThat(output.toString(UTF_8.name()), is("f_person.id,f_person.name\n1,Jan\n2,Petr\n"));
+    }
+
+    @Test
+    public void shouldWriteRowsLargerThanBuffer() throws Exception {
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            value.append('x');
+        }
+        try (DatasetCsvWriter writer = new DatasetCsvWriter(manifest, output)) {
+            writer.writeRow(1, value);
+        }
+        assertThat(output.toString(UTF_8.name()), is("f_person.id,f_person.name\n1," + value + "\n"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldFailOnWrongNumberOfValues() throws Exception {
+        new DatasetCsvWriter(manifest, output).writeRow("1");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldFailOnResultSetWithLessColumns() throws Exception {
+        new DatasetCsvWriter(manifest, output).writeRows(mockResultSet(1));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldFailOnManifestWithoutParts() throws Exception {
+        new DatasetCsvWriter(new DatasetManifest("dataset.person"), output);
+    }
+
+    static ResultSet mockResultSet(final int columnCount) throws Exception {
+        final ResultSet resultSet = mock(ResultSet.class);
+        final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(columnCount);
+        return resultSet;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import com.gooddata.FutureResult;
+import com.gooddata.project.Project;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.fail;
+
+public class DatasetLoadPipelineTest {
+
+    private static final Path DIR1 = Paths.get("/dir1");
+    private static final Path DIR2 = Paths.get("/dir2");
+
+    @Mock
+    private DatasetService service;
+    @Mock
+    private Project project;
+    @Mock
+    private FutureResult<Void> result1;
+    @Mock
+    private FutureResult<Void> result2;
+
+    private DatasetManifest manifest1;
+    private DatasetManifest manifest2;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(project.getId()).thenReturn("PROJECT_ID");
+        manifest1 = manifest("dataset.one");
+        manifest2 = manifest("dataset.two");
+        doReturn(DIR1).when(service).stageDatasets(eq(project), eq(asList(manifest1)), anyCollectionOf(String.class));
+        doReturn(DIR2).when(service).stageDatasets(eq(project), eq(asList(manifest2)), anyCollectionOf(String.class));
+        doReturn(result1).when(service).startPull(eq(project), eq(DIR1), anyCollectionOf(String.class));
+        doReturn(result2).when(service).startPull(eq(project), eq(DIR2), anyCollectionOf(String.class));
+        when(result1.getPollingUri()).thenReturn("/poll1");
+    }
+
+    @Test
+    public void shouldLoadBatchesInOrder() throws Exception {
+        final FutureResult<Void> load1;
+        final FutureResult<Void> load2;
+        try (DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 2)) {
+            load1 = pipeline.submit(manifest1);
+            load2 = pipeline.submit(manifest2);
+        }
+
+        assertThat(load1.isDone(), is(true));
+        assertThat(load2.isDone(), is(true));
+        assertThat(load1.getPollingUri(), is("/poll1"));
+
+        final InOrder inOrder = inOrder(service, result1, result2);
+        inOrder.verify(service).startPull(eq(project), eq(DIR1), eq(asList("dataset.one")));
+        inOrder.verify(result1).get();
+        inOrder.verify(service).startPull(eq(project), eq(DIR2), eq(asList("dataset.two")));
+        inOrder.verify(result2).get();
+    }
+
+    @Test
+    public void shouldFailFollowingBatchesAfterFailure() throws Exception {
+        final DatasetException failure = new DatasetException("failed", "dataset.one");
+        final CountDownLatch submitted = new CountDownLatch(1);
+        when(result1.get()).thenAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                submitted.await();
+                throw failure;
+            }
+        });
+
+        final DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 2);
+        final FutureResult<Void> load1 = pipeline.submit(manifest1);
+        final FutureResult<Void> load2 = pipeline.submit(manifest2);
+        submitted.countDown();
+        pipeline.close();
+
+        try {
+            load1.get();
+            fail("Exception expected");
+        } catch (DatasetException e) {
+            assertThat(e, is(failure));
+        }
+        try {
+            load2.get();
+            fail("Exception expected");
+        } catch (DatasetException e) {
+            assertThat(e.getMessage(), containsString("Previous batch failed"));
+            assertThat(e.getDatasets(), is((Collection<String>) asList("dataset.two")));
+        }
+        verify(service).deleteStagingDir(DIR2);
+        verify(service, never()).startPull(any(Project.class), eq(DIR2), anyCollectionOf(String.class));
+    }
+
+    @Test(expectedExceptions = DatasetException.class, expectedExceptionsMessageRegExp = ".*Previous batch failed.*")
+    public void shouldRejectSubmitAfterStagingFailure() throws Exception {
+        doThrow(new DatasetException("Unable to load", "dataset.one"))
+                .when(service).stageDatasets(eq(project), eq(asList(manifest1)), anyCollectionOf(String.class));
+
+        try (DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 1)) {
+            try {
+                pipeline.submit(manifest1);
+                fail("Exception expected");
+            } catch (DatasetException ignored) {
+            }
+            pipeline.submit(manifest2);
+        }
+    }
+
+    @Test(timeOut = 10000, expectedExceptions = DatasetException.class,
+            expectedExceptionsMessageRegExp = ".*Previous batch failed.*")
+    public void shouldRejectSubmitAfterUnexpectedStagingFailure() throws Exception {
+        doThrow(new IllegalStateException("unexpected"))
+                .when(service).stageDatasets(eq(project), eq(asList(manifest1)), anyCollectionOf(String.class));
+
+        try (DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 1)) {
+            try {
+                pipeline.submit(manifest1);
+                fail("Exception expected");
+            } catch (IllegalStateException ignored) {
+            }
+            pipeline.submit(manifest2);
+        }
+    }
+
+    @Test
+    public void shouldFailFollowingBatchesAfterUnexpectedFailure() throws Exception {
+        final CountDownLatch submitted = new CountDownLatch(1);
+        when(result1.get()).thenAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable {
+                submitted.await();
+                throw new IllegalStateException("unexpected");
+            }
+        });
+
+        final DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 2);
+        pipeline.submit(manifest1);
+        final FutureResult<Void> load2 = pipeline.submit(manifest2);
+        submitted.countDown();
+        pipeline.close();
+
+        try {
+            load2.get();
+            fail("Exception expected");
+        } catch (DatasetException e) {
+            assertThat(e.getMessage(), containsString("Previous batch failed"));
+        }
+        verify(service, never()).startPull(any(Project.class), eq(DIR2), anyCollectionOf(String.class));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldRejectSubmitAfterClose() throws Exception {
+        final DatasetLoadPipeline pipeline = new DatasetLoadPipeline(service, project, 1);
+        pipeline.close();
+        pipeline.submit(manifest1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveBatchesInFlight() throws Exception {
+        new DatasetLoadPipeline(service, project, 0);
+    }
+
+    private static DatasetManifest manifest(final String dataset) {
+        final DatasetManifest manifest = mock(DatasetManifest.class);
+        when(manifest.getDataSet()).thenReturn(dataset);
+        when(manifest.getFile()).thenReturn(dataset + ".csv");
+        when(manifest.getSource()).thenReturn(mock(InputStream.class));
+        return manifest;
+    }
+}
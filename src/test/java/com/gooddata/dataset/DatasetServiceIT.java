@@ -1,9 +1,13 @@
 package com.gooddata.dataset;
 
 import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.BulkExecutor;
+import com.gooddata.BulkOutcome;
 import com.gooddata.GoodDataException;
 import com.gooddata.gdc.TaskStatus;
+import com.gooddata.gdc.TaskStatusException;
 import com.gooddata.project.Project;
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -11,12 +15,21 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static com.gooddata.util.ResourceUtils.readFromResource;
+import static com.gooddata.util.ResourceUtils.readStringFromResource;
+import static java.util.Arrays.asList;
 import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.verifyThatRequest;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
@@ -90,6 +103,46 @@ public class DatasetServiceIT extends AbstractGoodDataIT {
 
     }
 
+    @Test
+    public void shouldLoadDatasetDelta() throws Exception {
+        onRequest()
+                .havingPathEqualTo("/gdc/md/PROJECT/etl/task/ID")
+            .respond()
+                .withStatus(200)
+                .withBody(readFromResource("/dataset/pullTaskStatusOk.json"));
+
+        final Path indexDir = Files.createTempDirectory("delta");
+        try {
+            final DatasetManifest manifest = MAPPER.readValue(readFromResource("/dataset/datasetManifest.json"), DatasetManifest.class);
+            final RowHashIndex index = new RowHashIndex(indexDir.resolve("dataset.person.idx"), manifest);
+
+            gd.getDatasetService().loadDatasetDelta(project, manifest, asList(
+                    new Object[]{"42", "2015-01-01T00:00:00+0000", "sales"},
+                    new Object[]{"43", "2015-01-01T00:00:00+0000", "hr"}).iterator(), index).get();
+            gd.getDatasetService().loadDatasetDelta(project, manifest, asList(
+                    new Object[]{"42", "2015-01-01T00:00:00+0000", "sales"},
+                    new Object[]{"44", "2015-01-01T00:00:00+0000", "hr"}).iterator(), index).get();
+            gd.getDatasetService().loadDatasetDelta(project, manifest, asList(
+                    new Object[]{"42", "2015-01-01T00:00:00+0000", "sales"},
+                    new Object[]{"44", "2015-01-01T00:00:00+0000", "hr"}).iterator(), index).get();
+
+            assertThat(manifest.getParts().get(0).getUploadMode(), is("INCREMENTAL"));
+            assertThat(index.size(), is(2));
+            verifyThatRequest()
+                    .havingMethodEqualTo("PUT")
+                    .havingPath(endsWith("dataset.person.csv"))
+                    .havingBodyEqualTo("f_person.f_shoesize,date,d_person_department.nm_xdepartment\n"
+                            + "44,2015-01-01T00:00:00+0000,hr\n")
+                    .receivedOnce();
+            verifyThatRequest()
+                    .havingMethodEqualTo("POST")
+                    .havingPathEqualTo("/gdc/md/PROJECT_ID/etl/pull")
+                    .receivedTimes(2);
+        } finally {
+            FileUtils.deleteQuietly(indexDir.toFile());
+        }
+    }
+
     @Test(expectedExceptions = DatasetException.class, expectedExceptionsMessageRegExp = ".*dataset.person.*Unable to load.*")
     public void shouldFailPolling() throws Exception {
         onRequest()
@@ -214,6 +267,49 @@ public class DatasetServiceIT extends AbstractGoodDataIT {
         gd.getDatasetService().optimizeSliHash(project).get();
     }
 
+    @Test
+    public void shouldOptimizeSliHashInProjects() throws Exception {
+        final Project failing = MAPPER.readValue(
+                readStringFromResource("/project/project.json").replace("PROJECT_ID", "PROJECT_2"), Project.class);
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo("/gdc/md/PROJECT_ID/etl/mode")
+                .respond()
+                .withStatus(202)
+                .withBody("{\"uri\" : \"" + STATUS_URI + "\"}");
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+                .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo("/gdc/md/PROJECT_2/etl/mode")
+                .respond()
+                .withStatus(202)
+                .withBody("{\"uri\" : \"/gdc/md/PROJECT_2/tasks/1/status\"}");
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc/md/PROJECT_2/tasks/1/status")
+                .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("ERROR", "/gdc/md/PROJECT_2/tasks/1/status")));
+
+        final Map<String, TaskStatus> failures = new HashMap<>();
+        final BulkExecutor<Project, Void> executor =
+                gd.getDatasetService().optimizeSliHash(asList(project, failing), 2, 1);
+        BulkOutcome<Project, Void> outcome;
+        while ((outcome = executor.next()) != null) {
+            if (!outcome.isSuccess()) {
+                failures.put(outcome.getGroup(), ((TaskStatusException) outcome.getFailure()).getTaskStatus());
+            }
+        }
+
+        assertThat(failures.size(), is(1));
+        assertThat(failures.get("PROJECT_2").getStatus(), is("ERROR"));
+    }
+
     @Test
     public void shouldUpdateProjectData() throws IOException {
         onRequest()
@@ -236,6 +332,41 @@ public class DatasetServiceIT extends AbstractGoodDataIT {
         gd.getDatasetService().updateProjectData(project, DML_MAQL).get();
     }
 
+    @Test
+    public void shouldDeleteProjectData() throws IOException {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo("/gdc/md/PROJECT_ID/dml/manage")
+                .respond()
+                .withStatus(202)
+                .withBody("{\"uri\" : \"" + STATUS_URI + "\"}");
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+                .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskState("OK", STATUS_URI)));
+
+        final DataDeletion deletion = new DataDeletion("attr.person.id");
+        for (int i = 0; i < 10; i++) {
+            deletion.element("/gdc/md/PROJECT_ID/obj/123/elements?id=" + i);
+        }
+        final List<BulkOutcome<DataDeletion, Void>> outcomes = gd.getDatasetService()
+                .deleteProjectData(project, asList(deletion), 200, 2, 1).awaitAll();
+
+        int deleted = 0;
+        for (BulkOutcome<DataDeletion, Void> outcome : outcomes) {
+            assertThat(outcome.isSuccess(), is(true));
+            deleted += outcome.getItem().getElements().size();
+        }
+        assertThat(outcomes.size() > 1, is(true));
+        assertThat(deleted, is(10));
+        verifyThatRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo("/gdc/md/PROJECT_ID/dml/manage")
+                .receivedTimes(outcomes.size());
+    }
+
     @Test(expectedExceptions = GoodDataException.class)
     public void shouldFailUpdateProjectDataServerError() throws IOException {
         onRequest()
@@ -10,23 +10,33 @@ import com.gooddata.gdc.DataStoreService;
 import com.gooddata.project.Project;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.testng.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DatasetServiceTest {
@@ -61,6 +71,49 @@ public class DatasetServiceTest {
         service.getDatasetManifest(null, DATASET_ID);
     }
 
+    @Test
+    public void testGetCachedDatasetManifest() throws Exception {
+        final DatasetManifest fetched =
+                new DatasetManifest(DATASET_ID, "file.csv", new ArrayList<DatasetManifest.Part>());
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenReturn(fetched);
+
+        final DatasetManifest first = service.getCachedDatasetManifest(project, DATASET_ID);
+        final DatasetManifest second = service.getCachedDatasetManifest(project, DATASET_ID);
+        assertThat(first.getDataSet(), is(DATASET_ID));
+        assertThat(second.getDataSet(), is(DATASET_ID));
+        assertThat(first, is(not(sameInstance(fetched))));
+        assertThat(first, is(not(sameInstance(second))));
+        verify(restTemplate, times(1)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
+    @Test
+    public void testInvalidateManifestCache() throws Exception {
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenReturn(new DatasetManifest(DATASET_ID, "file.csv", new ArrayList<DatasetManifest.Part>()));
+
+        service.getCachedDatasetManifest(project, DATASET_ID);
+        service.invalidateManifestCache(project);
+        service.getCachedDatasetManifest(project, DATASET_ID);
+        verify(restTemplate, times(2)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
+    @Test
+    public void testInvalidateManifestCacheDuringFetch() throws Exception {
+        when(restTemplate.getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID))
+                .thenAnswer(new Answer<DatasetManifest>() {
+                    @Override
+                    public DatasetManifest answer(final InvocationOnMock invocation) throws Throwable {
+                        service.projectModelChanged(project);
+                        return new DatasetManifest(DATASET_ID, "file.csv", new ArrayList<DatasetManifest.Part>());
+                    }
+                });
+
+        service.getCachedDatasetManifest(project, DATASET_ID);
+        service.getCachedDatasetManifest(project, DATASET_ID);
+        verify(restTemplate, times(2)).getForObject(DatasetManifest.URI, DatasetManifest.class, PROJECT_ID, DATASET_ID);
+    }
+
     @Test(expectedExceptions = IllegalArgumentException.class)
     public void testGetDatasetManifestWithNullId() throws Exception {
         service.getDatasetManifest(project, null);
@@ -172,4 +225,16 @@ public class DatasetServiceTest {
         assertThat(result, hasSize(1));
         assertThat(result, contains(dataset));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStartPullDeletesStagingDirWhenPullFails() throws Exception {
+        when(restTemplate.postForObject(eq(Pull.URI), any(Pull.class), eq(PullTask.class), eq(PROJECT_ID)))
+                .thenThrow(new RestClientException(""));
+        try {
+            service.startPull(project, Paths.get("/dir"), asList(DATASET_ID));
+            fail("DatasetException expected");
+        } catch (DatasetException expected) {
+            verify(dataStoreService).delete("/dir/");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.dataset;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class RowHashIndexTest {
+
+    private Path dir;
+    private Path file;
+    private DatasetManifest manifest;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("rowHashIndex");
+        file = dir.resolve("dataset.person.idx");
+        manifest = new DatasetManifest("dataset.person", "dataset.person.csv", asList(
+                new DatasetManifest.Part("FULL", "f_person.id", asList("label.person.id"), true, null),
+                new DatasetManifest.Part("FULL", "f_person.name", asList("label.person.name"), false, null)
+        ));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(dir.toFile());
+    }
+
+    @Test
+    public void shouldStageNewAndChangedRowsOnly() throws Exception {
+        final RowHashIndex index = new RowHashIndex(file, manifest);
+        assertThat(index.stage(new Object[]{"1", "Jan"}), is(true));
+        assertThat(index.stage(new Object[]{"1", "Jan"}), is(false));
+        index.commit();
+
+        assertThat(index.stage(new Object[]{"1", "Jan"}), is(false));
+        assertThat(index.stage(new Object[]{"1", "Petr"}), is(true));
+        assertThat(index.stage(new Object[]{"2", "Jan"}), is(true));
+        assertThat(index.getPendingCount(), is(2));
+    }
+
+    @Test
+    public void shouldPersistCommittedRows() throws Exception {
+        final RowHashIndex index = new RowHashIndex(file, manifest);
+        for (int i = 0; i < 5000; i++) {
+            index.stage(new Object[]{i, "name" + i});
+        }
+        index.commit();
+        assertThat(Files.exists(file), is(true));
+
+        final RowHashIndex reopened = new RowHashIndex(file, manifest);
+        assertThat(reopened.size(), is(5000));
+        assertThat(reopened.stage(new Object[]{"42", "name42"}), is(false));
+        assertThat(reopened.stage(new Object[]{"42", "changed"}), is(true));
+    }
+
+    @Test
+    public void shouldForgetRolledBackRows() throws Exception {
+        final RowHashIndex index = new RowHashIndex(file, manifest);
+        index.stage(new Object[]{"1", "Jan"});
+        index.rollback();
+
+        assertThat(index.getPendingCount(), is(0));
+        assertThat(index.stage(new Object[]{"1", "Jan"}), is(true));
+    }
+
+    @Test
+    public void shouldFilterRows() throws Exception {
+        final RowHashIndex index = new RowHashIndex(file, manifest);
+        index.stage(new Object[]{"1", "Jan"});
+        index.commit();
+
+        final Iterator<Object[]> filtered = index.filterArrays(asList(
+                new Object[]{"1", "Jan"}, new Object[]{"2", "Petr"}, new Object[]{"1", "Jan"}).iterator());
+        final List<Object[]> result = new ArrayList<>();
+        while (filtered.hasNext()) {
+            result.add(filtered.next());
+        }
+        assertThat(result, hasSize(1));
+        assertThat(result.get(0)[0], is((Object) "2"));
+    }
+
+    @Test
+    public void shouldStageMapRows() throws Exception {
+        final RowHashIndex index = new RowHashIndex(file, manifest);
+        index.stage(new Object[]{"1", null});
+        assertThat(index.stage(Collections.singletonMap("f_person.id", "1")), is(false));
+    }
+
+    @Test
+    public void shouldHashStringsAndCharSequencesEqually() throws Exception {
+        assertThat(RowHashIndex.hash(new Object[]{"ab", "c"}, null),
+                is(RowHashIndex.hash(new Object[]{new StringBuilder("ab"), "c"}, null)));
+        assertThat(RowHashIndex.hash(new Object[]{"ab", "c"}, null) == RowHashIndex.hash(new Object[]{"a", "bc"}, null),
+                is(false));
+    }
+}
@@ -8,10 +8,20 @@ import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.gooddata.util.ResourceUtils.readFromResource;
 import static net.jadler.Jadler.onRequest;
 import static net.jadler.Jadler.port;
+import static net.jadler.Jadler.verifyThatRequest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 
 public class DataStoreServiceIT extends AbstractGoodDataIT {
 
@@ -57,4 +67,53 @@ public class DataStoreServiceIT extends AbstractGoodDataIT {
         gd.getDataStoreService().upload("/test", content);
     }
 
+    @Test
+    public void shouldDiscoverStagingUriOnceForConcurrentUploads() throws Exception {
+        final DataStoreService service = gd.getDataStoreService();
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> uploads = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                uploads.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        service.upload("/test", new ByteArrayInputStream("test".getBytes()));
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verifyThatRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc")
+                .receivedOnce();
+        verifyThatRequest()
+                .havingMethodEqualTo("PUT")
+                .havingPathEqualTo("/uploads/test")
+                .receivedTimes(threads);
+    }
+
+    @Test
+    public void shouldWarmUpStagingUri() throws Exception {
+        final DataStoreService service = gd.getDataStoreService();
+
+        assertThat(service.getUserStagingUri().getPath(), is("/uploads"));
+        service.upload("/test", content);
+
+        verifyThatRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc")
+                .receivedOnce();
+    }
+
 }
\ No newline at end of file
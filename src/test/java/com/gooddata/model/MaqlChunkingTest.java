@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import org.testng.annotations.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class MaqlChunkingTest {
+
+    @Test
+    public void shouldSplitStatements() throws Exception {
+        assertThat(MaqlChunking.split("CREATE FOLDER {f} VISUAL(TITLE \"a;b\\\"c\");\n SYNCHRONIZE {d}; "),
+                contains("CREATE FOLDER {f} VISUAL(TITLE \"a;b\\\"c\");", "SYNCHRONIZE {d};"));
+    }
+
+    @Test
+    public void shouldMergeStatementsUpToStatementBudget() throws Exception {
+        final MaqlChunking chunking = new MaqlChunking(2, 1024);
+
+        assertThat(chunking.chunk(asList("A; B; C", "D;")), contains("A;\nB;", "C;\nD;"));
+    }
+
+    @Test
+    public void shouldMergeStatementsUpToByteBudget() throws Exception {
+        final MaqlChunking chunking = new MaqlChunking(100, 11);
+
+        assertThat(chunking.chunk(asList("AAAA; BBBB; CCCCCCCCCCCC; D")),
+                contains("AAAA;\nBBBB;", "CCCCCCCCCCCC;", "D;"));
+    }
+
+    @Test
+    public void shouldSplitStatementsOverByteBudget() throws Exception {
+        final MaqlChunking chunking = new MaqlChunking(100, 10);
+
+        assertThat(chunking.chunk(asList("AAAA; BBBB;")), contains("AAAA;", "BBBB;"));
+    }
+
+    @Test
+    public void shouldIgnoreEmptyStatements() throws Exception {
+        assertThat(MaqlChunking.DEFAULT.chunk(asList(" ; ;", "")), is(empty()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidBudget() throws Exception {
+        new MaqlChunking(0, 10);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.model;
+
+import com.gooddata.project.Project;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.gooddata.model.ModelDiff.UpdateScript;
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class ModelDiffCacheTest {
+
+    private static final String MODEL = "{\"projectModel\":{\"datasets\":[],\"dateDimensions\":[]}}";
+    private static final String TARGET = "{\"projectModel\":{\"datasets\":[{\"dataset\":{\"identifier\":\"a\"}}]}}";
+
+    private Project project;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        project = new ObjectMapper().readValue(readFromResource("/project/project.json"), Project.class);
+    }
+
+    @Test
+    public void shouldHashCanonicalModel() throws Exception {
+        final String reformatted = "{ \"projectModel\" : { \"dateDimensions\" : [ ], \"datasets\" : [ ] } }";
+
+        assertThat(ModelDiffCache.hash(reformatted), is(ModelDiffCache.hash(MODEL)));
+        assertThat(ModelDiffCache.hash(TARGET), is(not(ModelDiffCache.hash(MODEL))));
+    }
+
+    @Test(expectedExceptions = ModelException.class)
+    public void shouldFailToHashInvalidModel() throws Exception {
+        ModelDiffCache.hash("{");
+    }
+
+    @Test
+    public void shouldCacheDiff() throws Exception {
+        final ModelDiffCache cache = new ModelDiffCache(10);
+        final ModelDiff diff = new ModelDiff(new UpdateScript(true, false, "maql1"));
+        cache.setProjectModel(project, MODEL);
+        final String fingerprint = cache.getFingerprint(project);
+
+        assertThat(cache.get(fingerprint, ModelDiffCache.hash(TARGET)), is(nullValue()));
+        cache.put(fingerprint, ModelDiffCache.hash(TARGET), diff);
+
+        assertThat(cache.get(fingerprint, ModelDiffCache.hash(TARGET)), is(sameInstance(diff)));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        final ModelDiffCache cache = new ModelDiffCache(2);
+        final ModelDiff diff = new ModelDiff(new UpdateScript(true, false, "maql1"));
+        cache.put("a", "target", diff);
+        cache.put("b", "target", diff);
+        cache.get("a", "target");
+        cache.put("c", "target", diff);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("a", "target"), is(sameInstance(diff)));
+        assertThat(cache.get("b", "target"), is(nullValue()));
+    }
+
+    @Test
+    public void shouldTrackProjectModelAfterUpdate() throws Exception {
+        final ModelDiffCache cache = new ModelDiffCache(10);
+        final ModelDiff diff = new ModelDiff(new UpdateScript(true, false, "maql1"));
+        cache.put("source", ModelDiffCache.hash(TARGET), diff);
+
+        cache.updated(project, diff);
+        assertThat(cache.getFingerprint(project), is(ModelDiffCache.hash(TARGET)));
+
+        cache.invalidate(project);
+        assertThat(cache.getFingerprint(project), is(nullValue()));
+    }
+
+    @Test
+    public void shouldKeepDiffInDirectory() throws Exception {
+        final Path directory = Files.createTempDirectory("model-diff-cache");
+        final ModelDiff diff = new ModelDiff(
+                new UpdateScript(false, false, "maql1"),
+                new UpdateScript(true, false, "maql2", "maql3"));
+        new ModelDiffCache(10, directory).put("source", "target", diff);
+
+        final ModelDiff read = new ModelDiffCache(10, directory).get("source", "target");
+
+        assertThat(read.getUpdateMaql(), contains("maql2", "maql3"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.gooddata.model;
 
 import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.BulkOutcome;
 import com.gooddata.gdc.AsyncTask;
 import com.gooddata.gdc.TaskStatus;
 import com.gooddata.project.Project;
@@ -8,12 +9,18 @@ import com.gooddata.util.ResourceUtils;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.gooddata.model.ModelDiff.UpdateScript;
 import static com.gooddata.util.ResourceUtils.readFromResource;
+import static com.gooddata.util.ResourceUtils.readStringFromResource;
+import static java.util.Arrays.asList;
 import static net.jadler.Jadler.onRequest;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.testng.Assert.fail;
 
 public class ModelServiceIT extends AbstractGoodDataIT {
 
@@ -119,4 +126,157 @@ public class ModelServiceIT extends AbstractGoodDataIT {
         ));
         gd.getModelService().updateProjectModel(project, diff).get();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldUpdateProjectModels() throws Exception {
+        final Project upToDate = MAPPER.readValue(
+                readStringFromResource("/project/project.json").replace("PROJECT_ID", "PROJECT_2"), Project.class);
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(DIFF_URI)
+            .respond()
+                .withStatus(202)
+                .withBody(MAPPER.writeValueAsString(new AsyncTask(DIFF_POLL_URI)));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(DIFF_POLL_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(readFromResource("/model/modelDiff.json"));
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo("/gdc/projects/PROJECT_2/model/diff")
+            .respond()
+                .withStatus(202)
+                .withBody(MAPPER.writeValueAsString(new AsyncTask("/gdc/projects/PROJECT_2/model/diff/123")));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo("/gdc/projects/PROJECT_2/model/diff/123")
+            .respond()
+                .withStatus(200)
+                .withBody("{\"projectModelDiff\":{\"updateScripts\":[]}}");
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+
+        final List<BulkOutcome<Project, ModelUpdate>> outcomes = gd.getModelService()
+                .updateProjectModels(asList(project, upToDate), "xxx", 2, 1).awaitAll();
+
+        assertThat(outcomes.size(), is(2));
+        for (BulkOutcome<Project, ModelUpdate> outcome : outcomes) {
+            assertThat(outcome.isSuccess(), is(true));
+            assertThat(outcome.getResult().isEmpty(), is(outcome.getItem() == upToDate));
+        }
+    }
+
+    @Test
+    public void shouldExecuteMaqlDdlInChunks() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(202)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("RUNNING", STATUS_URI)))
+            .thenRespond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+
+        final List<Integer> executed = new ArrayList<>();
+        final MaqlDdlExecution execution = gd.getModelService().executeMaqlDdl(project,
+                asList("synchronize {dataset.chunk1}; synchronize {dataset.chunk2}", "synchronize {dataset.chunk3}"),
+                new MaqlChunking(2, 1024), new MaqlDdlListener() {
+                    @Override
+                    public void chunkExecuted(final MaqlDdlExecution execution, final int chunk,
+                                              final long durationMillis) {
+                        executed.add(chunk);
+                    }
+                });
+        execution.get();
+
+        assertThat(execution.getChunks().size(), is(2));
+        assertThat(execution.getExecutedChunks(), is(2));
+        assertThat(executed, is(asList(0, 1)));
+    }
+
+    @Test
+    public void shouldResumeFailedMaqlDdl() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)))
+            .thenRespond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("ERROR", STATUS_URI)))
+            .thenRespond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+
+        final MaqlDdlExecution execution = gd.getModelService().executeMaqlDdl(project,
+                asList("synchronize {dataset.chunk1}; synchronize {dataset.chunk2}"), new MaqlChunking(1, 1024), null);
+        try {
+            execution.get();
+            fail("update should fail");
+        } catch (ModelException e) {
+            assertThat(execution.getExecutedChunks(), is(1));
+        }
+
+        final MaqlDdlExecution resumed = gd.getModelService().resumeMaqlDdl(execution);
+        resumed.get();
+        assertThat(resumed.getExecutedChunks(), is(2));
+    }
+
+    @Test
+    public void shouldResumeMaqlDdlFailedOnFirstSubmit() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(LDM_MANAGE2)
+            .respond()
+                .withStatus(503)
+            .thenRespond()
+                .withStatus(202)
+                .withBody(readFromResource("/model/maqlDdlLinks.json"));
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(STATUS_URI)
+            .respond()
+                .withStatus(200)
+                .withBody(MAPPER.writeValueAsString(new TaskStatus("OK", STATUS_URI)));
+
+        final MaqlDdlExecution execution = gd.getModelService().executeMaqlDdl(project,
+                asList("synchronize {dataset.chunk1}"), MaqlChunking.DEFAULT, null);
+        assertThat(execution.getFailure(), is(notNullValue()));
+        try {
+            execution.get();
+            fail("update should fail");
+        } catch (ModelException e) {
+            assertThat(execution.getExecutedChunks(), is(0));
+        }
+
+        final MaqlDdlExecution resumed = gd.getModelService().resumeMaqlDdl(execution);
+        resumed.get();
+        assertThat(resumed.getExecutedChunks(), is(1));
+    }
+}
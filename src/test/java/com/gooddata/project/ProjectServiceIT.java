@@ -1,6 +1,9 @@
 package com.gooddata.project;
 
 import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.BulkOutcome;
+import com.gooddata.ChainedResult;
+import com.gooddata.FutureResult;
 import com.gooddata.GoodDataException;
 import com.gooddata.collections.PageRequest;
 import com.gooddata.gdc.AsyncTask;
@@ -17,14 +20,19 @@ import static com.gooddata.project.ProjectFeatureFlags.FEATURE_FLAGS_TEMPLATE;
 import static com.gooddata.project.ProjectFeatureFlag.FEATURE_FLAG_TEMPLATE;
 import static com.gooddata.util.ResourceUtils.readFromResource;
 import static com.gooddata.util.ResourceUtils.readStringFromResource;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.verifyThatRequest;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -72,6 +80,82 @@ public class ProjectServiceIT extends AbstractGoodDataIT {
         assertThat(project.getTitle(), is("TITLE"));
     }
 
+    @Test
+    public void shouldCreateProjectsWithFollowUp() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(Projects.URI)
+                .respond()
+                .withBody(MAPPER.writeValueAsString(new UriResponse(PROJECT_URI)))
+                .withStatus(202)
+        ;
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(PROJECT_URI)
+            .respond()
+                .withBody(readFromResource("/project/project.json"))
+                .withStatus(200)
+        ;
+
+        final List<Project> provisioned = new ArrayList<>();
+        final ChainedResult.Step<Project, Void> followUp = new ChainedResult.Step<Project, Void>() {
+            @Override
+            public FutureResult<Void> start(final Project project) {
+                provisioned.add(project);
+                return ChainedResult.completed(null);
+            }
+        };
+
+        final List<BulkOutcome<Project, Project>> outcomes = gd.getProjectService().createProjects(
+                asList(new Project("TITLE", "AUTH_TOKEN"), new Project("TITLE", "AUTH_TOKEN")), 2, 1,
+                singletonList(followUp)).awaitAll();
+
+        assertThat(outcomes, hasSize(2));
+        for (BulkOutcome<Project, Project> outcome : outcomes) {
+            assertThat(outcome.isSuccess(), is(true));
+            assertThat(outcome.getResult().getId(), is(PROJECT_ID));
+        }
+        assertThat(provisioned, hasSize(2));
+    }
+
+    @Test
+    public void shouldNotRetryCreatedProjectWhenFollowUpFails() throws Exception {
+        onRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(Projects.URI)
+                .respond()
+                .withBody(MAPPER.writeValueAsString(new UriResponse(PROJECT_URI)))
+                .withStatus(202)
+        ;
+        onRequest()
+                .havingMethodEqualTo("GET")
+                .havingPathEqualTo(PROJECT_URI)
+            .respond()
+                .withBody(readFromResource("/project/project.json"))
+                .withStatus(200)
+        ;
+
+        final ChainedResult.Step<Project, Void> followUp = new ChainedResult.Step<Project, Void>() {
+            @Override
+            public FutureResult<Void> start(final Project project) {
+                throw new GoodDataException("follow-up failed");
+            }
+        };
+
+        final List<BulkOutcome<Project, Project>> outcomes = gd.getProjectService().createProjects(
+                singletonList(new Project("TITLE", "AUTH_TOKEN")), 1, 3, singletonList(followUp)).awaitAll();
+
+        assertThat(outcomes, hasSize(1));
+        assertThat(outcomes.get(0).isSuccess(), is(false));
+        assertThat(outcomes.get(0).getAttempts(), is(1));
+        assertThat(outcomes.get(0).getFailure(), is(instanceOf(ProjectProvisioningException.class)));
+        assertThat(((ProjectProvisioningException) outcomes.get(0).getFailure()).getProject().getId(), is(PROJECT_ID));
+        verifyThatRequest()
+                .havingMethodEqualTo("POST")
+                .havingPathEqualTo(Projects.URI)
+                .receivedOnce();
+    }
+
     @Test(expectedExceptions = GoodDataException.class)
     public void shouldFailWhenPostFails() throws Exception {
         onRequest()
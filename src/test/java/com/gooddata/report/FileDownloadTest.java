@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import com.gooddata.GoodDataException;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileDownloadTest {
+
+    private static final String URI = "/gdc/exporter/result/123";
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private Path target;
+    private List<String> ranges;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        target = Files.createTempFile("report", ".csv");
+        Files.write(target, "previous content".getBytes(US_ASCII));
+        ranges = new ArrayList<>();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(target);
+    }
+
+    @Test
+    public void shouldDownload() throws Exception {
+        mockResponses(new Response(HttpStatus.OK, CONTENT, null, CONTENT.length()));
+
+        final long size = new FileDownload(restTemplate, URI, target).download();
+
+        assertThat(size, is(10L));
+        assertThat(new String(Files.readAllBytes(target), US_ASCII), is(CONTENT));
+        assertThat(ranges, contains((String) null));
+    }
+
+    @Test
+    public void shouldResumeDroppedDownload() throws Exception {
+        mockResponses(new Response(HttpStatus.OK, "012345", null, CONTENT.length()).dropConnection(),
+                new Response(HttpStatus.PARTIAL_CONTENT, "6789", "bytes 6-9/10", 4));
+
+        new FileDownload(restTemplate, URI, target).download();
+
+        assertThat(new String(Files.readAllBytes(target), US_ASCII), is(CONTENT));
+        assertThat(ranges, contains(null, "bytes=6-"));
+    }
+
+    @Test
+    public void shouldResumeTruncatedDownload() throws Exception {
+        mockResponses(new Response(HttpStatus.OK, "0123", null, CONTENT.length()),
+                new Response(HttpStatus.PARTIAL_CONTENT, "456789", "bytes 4-9/10", 6));
+
+        new FileDownload(restTemplate, URI, target).download();
+
+        assertThat(new String(Files.readAllBytes(target), US_ASCII), is(CONTENT));
+        assertThat(ranges, contains(null, "bytes=4-"));
+    }
+
+    @Test
+    public void shouldStartOverWhenRangeIgnored() throws Exception {
+        mockResponses(new Response(HttpStatus.OK, "012345", null, CONTENT.length()).dropConnection(),
+                new Response(HttpStatus.OK, CONTENT, null, CONTENT.length()));
+
+        new FileDownload(restTemplate, URI, target).download();
+
+        assertThat(new String(Files.readAllBytes(target), US_ASCII), is(CONTENT));
+    }
+
+    @Test(expectedExceptions = GoodDataException.class, expectedExceptionsMessageRegExp = ".*doesn't match.*")
+    public void shouldFailWhenSizeDoesNotMatch() throws Exception {
+        mockResponses(new Response(HttpStatus.OK, CONTENT + "extra", null, CONTENT.length()));
+
+        new FileDownload(restTemplate, URI, target).download();
+    }
+
+    @Test(expectedExceptions = GoodDataException.class, expectedExceptionsMessageRegExp = "Unable to download .*")
+    public void shouldGiveUpResuming() throws Exception {
+        final Response[] responses = new Response[FileDownload.MAX_RESUMES + 1];
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new Response(HttpStatus.OK, "", null, CONTENT.length()).dropConnection();
+        }
+        mockResponses(responses);
+
+        new FileDownload(restTemplate, URI, target).download();
+    }
+
+    @Test
+    public void shouldParseContentRange() throws Exception {
+        assertThat(FileDownload.parseRangeStart("bytes 100-199/1000"), is(100L));
+        assertThat(FileDownload.parseRangeTotal("bytes 100-199/1000"), is(1000L));
+        assertThat(FileDownload.parseRangeTotal("bytes 100-199/*"), is(-1L));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldFailOnMalformedContentRange() throws Exception {
+        FileDownload.parseRangeStart("bytes */1000");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockResponses(final Response... responses) {
+        when(restTemplate.execute(anyString(), any(HttpMethod.class), any(RequestCallback.class),
+                any(ResponseExtractor.class))).thenAnswer(new Answer<Object>() {
+            private int index;
+
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final ClientHttpRequest request = mock(ClientHttpRequest.class);
+                final HttpHeaders requestHeaders = new HttpHeaders();
+                when(request.getHeaders()).thenReturn(requestHeaders);
+                ((RequestCallback) invocation.getArguments()[2]).doWithRequest(request);
+                ranges.add(requestHeaders.getFirst("Range"));
+
+                final Response response = responses[index++];
+                try {
+                    return ((ResponseExtractor<?>) invocation.getArguments()[3]).extractData(response.create());
+                } catch (IOException e) {
+                    throw new ResourceAccessException("I/O error", e);
+                }
+            }
+        });
+    }
+
+    private static class Response {
+        private final HttpStatus status;
+        private final String body;
+        private final String contentRange;
+        private final long contentLength;
+        private boolean drop;
+
+        private Response(final HttpStatus status, final String body, final String contentRange,
+                         final long contentLength) {
+            this.status = status;
+            this.body = body;
+            this.contentRange = contentRange;
+            this.contentLength = contentLength;
+        }
+
+        private Response dropConnection() {
+            drop = true;
+            return this;
+        }
+
+        private ClientHttpResponse create() throws IOException {
+            final ClientHttpResponse response = mock(ClientHttpResponse.class);
+            final HttpHeaders headers = new HttpHeaders();
+            headers.setContentLength(contentLength);
+            if (contentRange != null) {
+                headers.set("Content-Range", contentRange);
+            }
+            when(response.getStatusCode()).thenReturn(status);
+            when(response.getHeaders()).thenReturn(headers);
+            final InputStream content = new ByteArrayInputStream(body.getBytes(US_ASCII));
+            when(response.getBody()).thenReturn(drop ? new DroppingInputStream(content) : content);
+            return response;
+        }
+    }
+
+    /**
+     * Fails when all the content was read, like a connection dropped midway
+     */
+    private static class DroppingInputStream extends InputStream {
+        private final InputStream content;
+
+        private DroppingInputStream(final InputStream content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = content.read();
+            if (b == -1) {
+                throw new IOException("Connection reset");
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int read = content.read(b, off, len);
+            if (read == -1) {
+                throw new IOException("Connection reset");
+            }
+            return read;
+        }
+    }
+}
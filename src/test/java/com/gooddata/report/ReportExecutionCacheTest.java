@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import com.gooddata.md.report.Report;
+import com.gooddata.md.report.ReportDefinition;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ReportExecutionCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void shouldShareExecution() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 1024);
+        final CountingExecution execution = new CountingExecution(10);
+
+        final byte[] first = cache.get("report:1", execution);
+        final byte[] second = cache.get("report:1", execution);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(execution.count.get(), is(1));
+        assertThat(cache.getBytes(), is(10L));
+    }
+
+    @Test
+    public void shouldExpire() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.MILLISECONDS, 1024);
+        final CountingExecution execution = new CountingExecution(10);
+
+        cache.get("report:1", execution);
+        Thread.sleep(10);
+        cache.get("report:1", execution);
+
+        assertThat(execution.count.get(), is(2));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 25);
+        final CountingExecution execution = new CountingExecution(10);
+
+        cache.get("report:1", execution);
+        cache.get("report:2", execution);
+        cache.get("report:1", execution);
+        cache.get("report:3", execution);
+        assertThat(execution.count.get(), is(3));
+
+        cache.get("report:1", execution);
+        assertThat(execution.count.get(), is(3));
+        cache.get("report:2", execution);
+        assertThat(execution.count.get(), is(4));
+        assertThat(cache.getBytes(), is(20L));
+    }
+
+    @Test
+    public void shouldNotCacheResultLargerThanLimit() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 5);
+
+        cache.get("report:1", new CountingExecution(10));
+
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldWaitForRunningExecution() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 1024);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger count = new AtomicInteger();
+        final Callable<byte[]> execution = new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                count.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new byte[10];
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<byte[]> first = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return cache.get("report:1", execution);
+                }
+            });
+            started.await();
+            final Future<byte[]> second = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return cache.get("report:1", execution);
+                }
+            });
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(second.get(), is(sameInstance(first.get())));
+            assertThat(count.get(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expectedExceptions = ReportException.class)
+    public void shouldNotCacheFailure() throws Exception {
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 1024);
+        try {
+            cache.get("report:1", new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    throw new ReportException("Unable to execute report");
+                }
+            });
+        } finally {
+            assertThat(cache.size(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldInvalidate() throws Exception {
+        final Report report = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        final ReportExecutionCache cache = new ReportExecutionCache(1, TimeUnit.HOURS, 1024);
+        cache.get(ReportExecutionCache.keyOf(report), new CountingExecution(10));
+
+        cache.invalidate(report);
+
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getBytes(), is(0L));
+    }
+
+    @Test
+    public void shouldKeyDefinitionByContent() throws Exception {
+        final ReportDefinition definition = MAPPER.readValue(
+                readFromResource("/md/report/gridReportDefinition.json"), ReportDefinition.class);
+        final ReportDefinition same = MAPPER.readValue(
+                readFromResource("/md/report/gridReportDefinition.json"), ReportDefinition.class);
+        final ReportDefinition other = MAPPER.readValue(
+                readFromResource("/md/report/oneNumberReportDefinition.json"), ReportDefinition.class);
+
+        assertThat(ReportExecutionCache.keyOf(same), is(ReportExecutionCache.keyOf(definition)));
+        assertThat(ReportExecutionCache.keyOf(other), is(not(ReportExecutionCache.keyOf(definition))));
+    }
+
+    private static class CountingExecution implements Callable<byte[]> {
+        private final AtomicInteger count = new AtomicInteger();
+        private final int size;
+
+        private CountingExecution(final int size) {
+            this.size = size;
+        }
+
+        @Override
+        public byte[] call() {
+            count.incrementAndGet();
+            return new byte[size];
+        }
+    }
+}
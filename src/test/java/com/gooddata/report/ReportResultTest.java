@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2007-2015, GoodData(R) Corporation. All rights reserved.
+ */
+package com.gooddata.report;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.testng.annotations.Test;
+
+import static com.gooddata.util.ResourceUtils.readFromResource;
+import static com.gooddata.util.ResourceUtils.readStringFromResource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class ReportResultTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void testDeserialization() throws Exception {
+        final ReportResult result = MAPPER.readValue(readFromResource("/report/reportResult.json"), ReportResult.class);
+
+        assertThat(result.getRowCount(), is(4));
+        assertThat(result.getColumnCount(), is(2));
+        assertThat(result.getColumn(0).toArray(), is(new double[]{10, 20, 30.5, 40}));
+        assertThat(result.get(0, 1), is(2.5));
+        assertThat(result.getColumn(1).isMissing(1), is(true));
+        assertThat(result.getColumn(1).isMissing(2), is(true));
+        assertThat(result.getColumn(1).sum(), is(6.5));
+
+        assertThat(result.getRowHeaders(), hasSize(2));
+        final HeaderColumn years = result.getRowHeaders().get(0);
+        assertThat(years.getLabel(0), is("2014"));
+        assertThat(years.getLabel(1), is("2014"));
+        assertThat(years.getLabel(2), is("2015"));
+        assertThat(years.getDictionarySize(), is(2));
+        final HeaderColumn quarters = result.getRowHeaders().get(1);
+        assertThat(quarters.getId(2), is("10"));
+        assertThat(quarters.getLabel(3), is("Q2"));
+        assertThat(quarters.getCode(3), is(quarters.getCode(1)));
+
+        assertThat(result.getColumnHeaders(), hasSize(1));
+        assertThat(result.getColumnHeaders().get(0).getLabel(1), is("Count"));
+    }
+
+    @Test
+    public void testSlice() throws Exception {
+        final ReportResult result = MAPPER.readValue(readFromResource("/report/reportResult.json"), ReportResult.class);
+
+        final ReportResult slice = result.slice(1, 3);
+
+        assertThat(slice.getRowCount(), is(2));
+        assertThat(slice.getColumn(0).toArray(), is(new double[]{20, 30.5}));
+        assertThat(slice.getRowHeaders().get(0).getLabel(1), is("2015"));
+        assertThat(slice.getRowHeaders().get(1).getLabel(0), is("Q2"));
+        assertThat(slice.getColumn(0).slice(1, 2).get(0), is(30.5));
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testSliceOutOfRange() throws Exception {
+        final ReportResult result = MAPPER.readValue(readFromResource("/report/reportResult.json"), ReportResult.class);
+        result.slice(2, 5);
+    }
+
+    @Test
+    public void testBuilder() throws Exception {
+        final ReportResult.Builder builder = new ReportResult.Builder();
+        final HeaderColumn.Builder header = new HeaderColumn.Builder();
+        for (int i = 0; i < 100; i++) {
+            builder.addRow(i, i * 2);
+            header.add(String.valueOf(i % 3), "label" + i % 3);
+        }
+        final ReportResult result = builder.addRowHeader(header.build()).build();
+
+        assertThat(result.getRowCount(), is(100));
+        assertThat(result.get(99, 1), is(198.0));
+        assertThat(result.getRowHeaders().get(0).getDictionarySize(), is(3));
+        assertThat(result.getRowHeaders().get(0).getLabel(98), is("label2"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBuilderRowsOfDifferentSize() throws Exception {
+        new ReportResult.Builder().addRow(1, 2).addRow(1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testBuilderHeaderOfDifferentSize() throws Exception {
+        new ReportResult.Builder().addRow(1, 2).addColumnHeader(new HeaderColumn.Builder().add("1", "a").build())
+                .build();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testBuilderCannotBeReused() throws Exception {
+        final ReportResult.Builder builder = new ReportResult.Builder().addRow(1, 2);
+        builder.build();
+        builder.addRow(3, 4);
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void testDeserializationOfHeaderNotMatchingData() throws Exception {
+        final String json = readStringFromResource("/report/reportResult.json")
+                .replace("[ 40, 4 ]", "[ 40, 4 ], [ 50, 5 ]");
+        MAPPER.readValue(json, ReportResult.class);
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void testDeserializationOfRowsOfDifferentSize() throws Exception {
+        final String json = readStringFromResource("/report/reportResult.json").replace("[ 40, 4 ]", "[ 40 ]");
+        MAPPER.readValue(json, ReportResult.class);
+    }
+}
@@ -1,6 +1,7 @@
 package com.gooddata.report;
 
 import com.gooddata.AbstractGoodDataIT;
+import com.gooddata.BulkOutcome;
 import com.gooddata.gdc.UriResponse;
 import com.gooddata.md.report.Report;
 import com.gooddata.md.report.ReportDefinition;
@@ -10,10 +11,16 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 import static com.gooddata.util.ResourceUtils.readFromResource;
+import static java.util.Arrays.asList;
 import static net.jadler.Jadler.onRequest;
 import static net.jadler.Jadler.port;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -62,6 +69,108 @@ public class ReportServiceIT extends AbstractGoodDataIT {
         assertThat(output.toString(StandardCharsets.US_ASCII.name()), is(RESPONSE));
     }
 
+    @Test
+    public void shouldExportReportToFile() throws Exception {
+        final Report rd = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        final Path target = Files.createTempFile("report", ".csv");
+        try {
+            gd.getReportService().exportReport(rd, ReportExportFormat.CSV, target).get();
+            assertThat(new String(Files.readAllBytes(target), StandardCharsets.US_ASCII), is(RESPONSE));
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    @Test
+    public void shouldPassExecutionResultToExporter() throws Exception {
+        final String execResult = "{\"execResult\":{\"dataResult\":\"/gdc/projects/PROJECT_ID/dataResult/1\"}}";
+        onRequest()
+                .havingPathEqualTo(ReportRequest.URI)
+                .havingMethodEqualTo("POST")
+            .respond()
+                .withBody(execResult);
+        onRequest()
+                .havingPathEqualTo(ReportService.EXPORTING_URI)
+                .havingMethodEqualTo("POST")
+                .havingBodyEqualTo("{\"result_req\":{\"format\":\"csv\",\"result\":" + execResult + "}}")
+            .respond()
+                .withStatus(202)
+                .withBody(MAPPER.writeValueAsString(new UriResponse("http://localhost:" + port() + URI)));
+
+        final Report rd = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        gd.getReportService().exportReport(rd, ReportExportFormat.CSV, output).get();
+        assertThat(output.toString(StandardCharsets.US_ASCII.name()), is(RESPONSE));
+    }
+
+    @Test
+    public void shouldGetReportResult() throws Exception {
+        onRequest()
+                .havingPathEqualTo(ReportRequest.URI)
+                .havingMethodEqualTo("POST")
+            .respond()
+                .withBody("{\"execResult\":{\"dataResult\":\"/gdc/app/projects/PROJECT_ID/dataResult/1\"}}");
+        onRequest()
+                .havingPathEqualTo("/gdc/app/projects/PROJECT_ID/dataResult/1")
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(202)
+            .thenRespond()
+                .withStatus(200)
+                .withBody(readFromResource("/report/reportResult.json"));
+
+        final Report rd = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        final ReportResult result = gd.getReportService().getReportResult(rd).get();
+
+        assertThat(result.getRowCount(), is(4));
+        assertThat(result.get(3, 0), is(40.0));
+        assertThat(result.getRowHeaders().get(0).getLabel(3), is("2015"));
+    }
+
+    @Test
+    public void shouldExportReports() throws Exception {
+        final String noDataUri = ReportService.EXPORTING_URI + "/456";
+        onRequest()
+                .havingPathEqualTo(ReportService.EXPORTING_URI)
+                .havingMethodEqualTo("POST")
+                .havingBodyEqualTo("{\"result_req\":{\"format\":\"xls\",\"result\":{}}}")
+            .respond()
+                .withStatus(202)
+                .withBody(MAPPER.writeValueAsString(new UriResponse("http://localhost:" + port() + noDataUri)));
+        onRequest()
+                .havingPathEqualTo(noDataUri)
+                .havingMethodEqualTo("GET")
+            .respond()
+                .withStatus(204);
+
+        final Report report = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        final ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        final ReportExport csvExport = new ReportExport(report, ReportExportFormat.CSV, csv);
+        final ReportExport xlsExport = new ReportExport(report, ReportExportFormat.XLS, new ByteArrayOutputStream());
+
+        final Map<ReportExport, BulkOutcome<ReportExport, Void>> outcomes = new HashMap<>();
+        for (BulkOutcome<ReportExport, Void> outcome : gd.getReportService()
+                .exportReports(asList(csvExport, xlsExport), 2, 1).awaitAll()) {
+            outcomes.put(outcome.getItem(), outcome);
+        }
+
+        assertThat(outcomes.get(csvExport).isSuccess(), is(true));
+        assertThat(csv.toString(StandardCharsets.US_ASCII.name()), is(RESPONSE));
+        assertThat(outcomes.get(xlsExport).getFailure(), is(instanceOf(NoDataReportException.class)));
+    }
+
+    @Test(expectedExceptions = ReportException.class, expectedExceptionsMessageRegExp = "Unable to read execution result")
+    public void shouldFailOnMalformedExecutionResult() throws Exception {
+        onRequest()
+                .havingPathEqualTo(ReportRequest.URI)
+                .havingMethodEqualTo("POST")
+            .respond()
+                .withBody("{\"execResult\":");
+
+        final Report rd = MAPPER.readValue(readFromResource("/md/report/report.json"), Report.class);
+        gd.getReportService().exportReport(rd, ReportExportFormat.CSV, new ByteArrayOutputStream());
+    }
+
     @Test(expectedExceptions = ReportException.class, expectedExceptionsMessageRegExp = "Unable to export report")
     public void shouldFail() throws Exception {
         onRequest()
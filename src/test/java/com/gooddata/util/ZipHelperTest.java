@@ -1,9 +1,11 @@
 package com.gooddata.util;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.*;
 
 import org.apache.commons.io.FileUtils;
+import org.springframework.util.StreamUtils;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -12,10 +14,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class ZipHelperTest {
@@ -93,6 +101,93 @@ public class ZipHelperTest {
         }
     }
 
+    @Test
+    public void shouldZipDirInParallelInDeterministicOrder() throws Exception {
+        final Path toZipDir = temporaryFolder.resolve("parallel");
+        for (int i = 0; i < 20; i++) {
+            final Path file = toZipDir.resolve("dir" + (i % 3)).resolve("file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.write(file, ("content of file " + i).getBytes(UTF_8));
+        }
+
+        final ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        ZipHelper.zip(toZipDir.toFile(), sequential, false, Deflater.BEST_SPEED, 1);
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        ZipHelper.zip(toZipDir.toFile(), parallel, false, Deflater.BEST_SPEED, 4);
+        final ByteArrayOutputStream parallelAgain = new ByteArrayOutputStream();
+        ZipHelper.zip(toZipDir.toFile(), parallelAgain, false, Deflater.BEST_SPEED, 3);
+
+        final Map<String, String> expected = readZip(sequential);
+        assertThat(expected.size(), is(20));
+        assertThat(readZip(parallel), is(expected));
+        assertThat(new ArrayList<>(readZip(parallel).keySet()), is(new ArrayList<>(expected.keySet())));
+        assertThat(parallel.toByteArray(), is(parallelAgain.toByteArray()));
+    }
+
+    @Test
+    public void shouldZipStored() throws Exception {
+        final Path toZipDir = temporaryFolder.resolve("stored");
+        Files.createDirectories(toZipDir);
+        Files.write(toZipDir.resolve("a.txt"), "aaa".getBytes(UTF_8));
+        Files.write(toZipDir.resolve("b.txt"), "bbb".getBytes(UTF_8));
+
+        for (int parallelism : new int[] {1, 2}) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ZipHelper.zip(toZipDir.toFile(), output, false, ZipHelper.STORED, parallelism);
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+                final ZipEntry entry = zip.getNextEntry();
+                assertThat(entry.getName(), is("a.txt"));
+                assertThat(entry.getMethod(), is(ZipEntry.STORED));
+            }
+            assertThat(readZip(output).get("b.txt"), is("bbb"));
+        }
+    }
+
+    @Test
+    public void shouldStreamLargeEntriesInParallelZip() throws Exception {
+        final Path toZipDir = temporaryFolder.resolve("large");
+        Files.createDirectories(toZipDir);
+        Files.write(toZipDir.resolve("a.txt"), "aaa".getBytes(UTF_8));
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; large.length() <= 9 * 1024 * 1024; i++) {
+            large.append("line ").append(i).append('\n');
+        }
+        Files.write(toZipDir.resolve("b.txt"), large.toString().getBytes(UTF_8));
+        Files.write(toZipDir.resolve("c.txt"), "ccc".getBytes(UTF_8));
+
+        for (int level : new int[] {Deflater.BEST_SPEED, ZipHelper.STORED}) {
+            final File zipped = temporaryFolder.resolve("large" + level + ".zip").toFile();
+            try (FileOutputStream output = new FileOutputStream(zipped)) {
+                ZipHelper.zip(toZipDir.toFile(), output, false, level, 2);
+            }
+            try (ZipFile zip = new ZipFile(zipped)) {
+                assertThat(zip.size(), is(3));
+                try (InputStream input = zip.getInputStream(zip.getEntry("b.txt"))) {
+                    assertThat(new String(StreamUtils.copyToByteArray(input), UTF_8), is(large.toString()));
+                }
+            }
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            output.write(Files.readAllBytes(zipped.toPath()));
+            assertThat(readZip(output).get("c.txt"), is("ccc"));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldRejectInvalidLevel() throws Exception {
+        ZipHelper.zip(temporaryFolder.toFile(), new ByteArrayOutputStream(), false, 10, 1);
+    }
+
+    private static Map<String, String> readZip(ByteArrayOutputStream zip) throws Exception {
+        final Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(StreamUtils.copyToByteArray(zipInputStream), UTF_8));
+            }
+        }
+        return entries;
+    }
+
     private static void verifyZipContent(ByteArrayOutputStream zip, String shouldContain) throws Exception {
         try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
             ZipEntry entry = zipInputStream.getNextEntry();